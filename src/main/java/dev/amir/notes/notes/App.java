@@ -1,5 +1,6 @@
 package dev.amir.notes.notes;
 
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Contact;
 import io.swagger.v3.oas.annotations.info.Info;
@@ -7,6 +8,7 @@ import io.swagger.v3.oas.annotations.info.License;
 import io.swagger.v3.oas.annotations.servers.Server;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
 
 /**
@@ -19,6 +21,7 @@ import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
  */
 @SpringBootApplication
 @EnableReactiveMongoAuditing
+@EnableConfigurationProperties(NotesProperties.class)
 @OpenAPIDefinition(
         info = @Info(
                 title = "Simple Notes API",
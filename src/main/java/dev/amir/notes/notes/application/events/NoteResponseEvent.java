@@ -1,18 +1,44 @@
 package dev.amir.notes.notes.application.events;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import dev.amir.notes.notes.application.responses.NoteResponse;
 import dev.amir.notes.notes.domain.events.AbstractEvent;
 import dev.amir.notes.notes.domain.events.EventType;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an event related to NoteResponse entities.
  * <p>
  * This class extends {@link AbstractEvent} to provide specific functionality for {@link NoteResponse} events.
  * It includes constructors for creating events with a body or just an entity ID.
+ * The resume token is sent as the SSE event ID, so a reconnecting client resumes after it.
+ * {@link EventType#PATCH} events carry the changed fields of the note instead of the note.
  */
+@Getter
+@EqualsAndHashCode(callSuper = true)
 public class NoteResponseEvent extends AbstractEvent<NoteResponse> {
-    public NoteResponseEvent(EventType eventType, NoteResponse body, String entityId) {
+    private final String resumeToken;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Map<String, Object> updatedFields;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final List<String> removedFields;
+
+    public NoteResponseEvent(EventType eventType, NoteResponse body, String entityId, String resumeToken) {
+        this(eventType, body, entityId, resumeToken, null, null);
+    }
+
+    @JsonCreator
+    public NoteResponseEvent(EventType eventType, NoteResponse body, String entityId, String resumeToken,
+                             Map<String, Object> updatedFields, List<String> removedFields) {
         super(eventType, body, entityId);
+        this.resumeToken = resumeToken;
+        this.updatedFields = updatedFields;
+        this.removedFields = removedFields;
     }
 
     @Override
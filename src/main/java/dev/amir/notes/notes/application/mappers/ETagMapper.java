@@ -0,0 +1,76 @@
+package dev.amir.notes.notes.application.mappers;
+
+import dev.amir.notes.notes.application.responses.NoteResponse;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Mapper class to convert note versions to strong entity tags and back.
+ * <p>
+ * A single note is tagged with its version. A page is tagged with a digest of
+ * the IDs and versions of its notes, its next cursor and its sorted sparse fieldset, so
+ * any insert, update or delete that changes what the page would return, or a request
+ * for other fields of the same notes, also changes its tag.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ETagMapper {
+    private static final String ANY = "*";
+
+    /**
+     * Helper method to map the version of a note to its ETag.
+     * Notes written before versioning have no version and are tagged as version 0.
+     */
+    public static String toETag(Long version) {
+        return quote(Long.toString(version != null ? version : 0L));
+    }
+
+    /**
+     * Helper method to map the notes, next cursor and requested fields of a page to its ETag.
+     * Null fields stand for every field.
+     */
+    public static String toPageETag(List<NoteResponse> notes, String nextCursor, Set<String> fields) {
+        StringBuilder page = new StringBuilder();
+        for (NoteResponse note : notes) {
+            page.append(note.getId()).append(':').append(toETag(note.getVersion())).append('\n');
+        }
+        page.append(nextCursor).append('\n');
+        page.append(fields != null ? String.join(",", new TreeSet<>(fields)) : ANY);
+
+        return quote(DigestUtils.md5DigestAsHex(page.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Helper method to map the ETags of an If-Match header to the note versions they stand for.
+     * Returns null when any version is acceptable; weak or unknown tags never match, as If-Match
+     * uses the strong comparison.
+     */
+    public static List<Long> toVersions(List<String> eTags) {
+        if (eTags == null || eTags.isEmpty() || eTags.stream().anyMatch(eTag -> ANY.equals(eTag.trim()))) {
+            return null;
+        }
+
+        List<Long> versions = new ArrayList<>();
+        for (String eTag : eTags) {
+            String tag = eTag.trim();
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException ignored) {
+                    // Not one of our tags, so it cannot match any version
+                }
+            }
+        }
+        return versions;
+    }
+
+    private static String quote(String tag) {
+        return "\"" + tag + "\"";
+    }
+}
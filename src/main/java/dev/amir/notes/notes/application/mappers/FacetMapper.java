@@ -0,0 +1,41 @@
+package dev.amir.notes.notes.application.mappers;
+
+import dev.amir.notes.notes.application.responses.FacetBucketResponse;
+import dev.amir.notes.notes.application.responses.NoteSearchResponse;
+import dev.amir.notes.notes.domain.results.FacetBucket;
+import dev.amir.notes.notes.domain.results.NoteFacets;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mapper class to convert faceted search results to NoteSearchResponse DTOs.
+ * <p>
+ * This class provides static methods to facilitate the conversion process.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class FacetMapper {
+
+    /**
+     * Helper method to map NoteFacets to NoteSearchResponse DTO, keeping the requested fields of every note
+     */
+    public static NoteSearchResponse toNoteSearchResponse(NoteFacets facets, Set<String> fields) {
+        return NoteSearchResponse.builder()
+                .items(facets.getNotes().stream()
+                        .map(note -> NoteMapper.mapToNoteResponse(note, fields))
+                        .toList())
+                .total(facets.getTotal())
+                .importantCount(facets.getImportant())
+                .categories(toBucketResponses(facets.getCategories()))
+                .tags(toBucketResponses(facets.getTags()))
+                .build();
+    }
+
+    private static List<FacetBucketResponse> toBucketResponses(List<FacetBucket> buckets) {
+        return buckets.stream()
+                .map(bucket -> new FacetBucketResponse(bucket.getValue(), bucket.getCount()))
+                .toList();
+    }
+}
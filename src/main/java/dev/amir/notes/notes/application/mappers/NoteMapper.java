@@ -2,11 +2,14 @@ package dev.amir.notes.notes.application.mappers;
 
 import dev.amir.notes.notes.application.events.NoteResponseEvent;
 import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.application.responses.SparseNoteResponse;
 import dev.amir.notes.notes.domain.entities.Note;
 import dev.amir.notes.notes.infrastructure.data.events.NoteEvent;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import java.util.Set;
+
 /**
  * Mapper class to convert Note entities to NoteResponse DTOs and NoteEvent to NoteResponseEvent.
  * <p>
@@ -19,7 +22,8 @@ public final class NoteMapper {
      */
     public static NoteResponseEvent mapToNoteResponseEvent(NoteEvent event) {
         return event != null
-                ? new NoteResponseEvent(event.getEventType(), mapToNoteResponse(event.getBody()), event.getEntityId())
+                ? new NoteResponseEvent(event.getEventType(), mapToNoteResponse(event.getBody()), event.getEntityId(),
+                event.getResumeToken(), event.getUpdatedFields(), event.getRemovedFields())
                 : null;
 
     }
@@ -37,8 +41,32 @@ public final class NoteMapper {
                 .important(note.getImportant())
                 .createdAt(note.getCreatedAt())
                 .updatedAt(note.getUpdatedAt())
+                .version(note.getVersion())
                 .tags(note.getTags())
                 .build()
                 : null;
     }
+
+    /**
+     * Helper method to map the requested fields of a Note entity to NoteResponse DTO.
+     * The ID and version are always mapped; every field is mapped when no fields are requested.
+     * Requested fields are mapped to a SparseNoteResponse, which leaves out the fields without a value.
+     */
+    public static NoteResponse mapToNoteResponse(Note note, Set<String> fields) {
+        if (note == null || fields == null) {
+            return mapToNoteResponse(note);
+        }
+
+        return SparseNoteResponse.builder()
+                .id(note.getId())
+                .title(fields.contains(Note.Fields.title) ? note.getTitle() : null)
+                .content(fields.contains(Note.Fields.content) ? note.getContent() : null)
+                .category(fields.contains(Note.Fields.category) ? note.getCategory() : null)
+                .important(fields.contains(Note.Fields.important) ? note.getImportant() : null)
+                .createdAt(fields.contains(Note.Fields.createdAt) ? note.getCreatedAt() : null)
+                .updatedAt(fields.contains(Note.Fields.updatedAt) ? note.getUpdatedAt() : null)
+                .version(note.getVersion())
+                .tags(fields.contains(Note.Fields.tags) ? note.getTags() : null)
+                .build();
+    }
 }
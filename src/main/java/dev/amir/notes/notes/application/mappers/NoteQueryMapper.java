@@ -0,0 +1,55 @@
+package dev.amir.notes.notes.application.mappers;
+
+import dev.amir.notes.notes.application.requests.NoteQueryRequest;
+import dev.amir.notes.notes.application.requests.NoteStreamRequest;
+import dev.amir.notes.notes.domain.queries.NoteQuery;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Mapper class to convert query requests to NoteQuery and stream requests to NoteStreamFilter.
+ * <p>
+ * Blank text filters are treated as missing so they do not turn into match-everything regular expressions.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class NoteQueryMapper {
+    private static final String DESCENDING_PREFIX = "-";
+
+    /**
+     * Helper method to map NoteQueryRequest DTO to NoteQuery
+     */
+    public static NoteQuery toNoteQuery(NoteQueryRequest queryRequest) {
+        String sort = queryRequest.getSort();
+        boolean descending = sort.startsWith(DESCENDING_PREFIX);
+
+        return NoteQuery.builder()
+                .category(queryRequest.getCategory())
+                .important(queryRequest.getImportant())
+                .tag(blankToNull(queryRequest.getTag()))
+                .title(blankToNull(queryRequest.getTitle()))
+                .content(blankToNull(queryRequest.getContent()))
+                .sortField(descending ? sort.substring(DESCENDING_PREFIX.length()) : sort)
+                .descending(descending)
+                .limit(queryRequest.getLimit())
+                .fields(PageMapper.toFields(queryRequest.getFields()))
+                .build();
+    }
+
+    /**
+     * Helper method to map NoteStreamRequest DTO to NoteStreamFilter
+     */
+    public static NoteStreamFilter toNoteStreamFilter(NoteStreamRequest streamRequest) {
+        return streamRequest != null
+                ? NoteStreamFilter.builder()
+                .category(streamRequest.getCategory())
+                .important(streamRequest.getImportant())
+                .tag(blankToNull(streamRequest.getTag()))
+                .build()
+                : NoteStreamFilter.NONE;
+    }
+
+    private static String blankToNull(String text) {
+        return text == null || text.isBlank() ? null : text;
+    }
+}
@@ -0,0 +1,108 @@
+package dev.amir.notes.notes.application.mappers;
+
+import dev.amir.notes.notes.application.requests.NotePageRequest;
+import dev.amir.notes.notes.application.responses.NotePageResponse;
+import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.domain.exceptions.ValidationException;
+import dev.amir.notes.notes.domain.pagination.PageQuery;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mapper class to convert page requests to PageQuery and note lists to NotePageResponse DTOs.
+ * <p>
+ * Cursors are the base64url encoded bytes of the last note ID of a page,
+ * so clients treat them as opaque values.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PageMapper {
+    private static final int OBJECT_ID_LENGTH = 12;
+    private static final Set<String> FIELDS = Set.of(Note.Fields.id, Note.Fields.title, Note.Fields.content,
+            Note.Fields.category, Note.Fields.important, Note.Fields.createdAt, Note.Fields.updatedAt,
+            Note.Fields.version, Note.Fields.tags);
+
+    /**
+     * Helper method to map NotePageRequest DTO to PageQuery.
+     * One extra note is requested so the response knows whether another page exists.
+     */
+    public static PageQuery toPageQuery(NotePageRequest pageRequest) {
+        return PageQuery.builder()
+                .afterId(decodeCursor(pageRequest.getAfter()))
+                .limit(limitOf(pageRequest) + 1)
+                .fields(toFields(pageRequest.getFields()))
+                .build();
+    }
+
+    /**
+     * Helper method to map the requested fields of a sparse fieldset to note field names.
+     * Returns null when no fields are requested, meaning every field.
+     */
+    public static Set<String> toFields(List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+
+        Set<String> noteFields = new LinkedHashSet<>();
+        for (String field : fields) {
+            String name = field.trim();
+            if (!FIELDS.contains(name)) {
+                throw new ValidationException("Unknown field: " + name);
+            }
+            noteFields.add(name);
+        }
+        return noteFields;
+    }
+
+    /**
+     * Helper method to map the notes read for a PageQuery to NotePageResponse DTO
+     */
+    public static NotePageResponse toNotePageResponse(List<NoteResponse> notes, NotePageRequest pageRequest) {
+        int limit = limitOf(pageRequest);
+        if (notes.size() <= limit) {
+            return new NotePageResponse(notes, null);
+        }
+
+        List<NoteResponse> items = notes.subList(0, limit);
+        return new NotePageResponse(items, encodeCursor(items.get(limit - 1).getId()));
+    }
+
+    /**
+     * Helper method to get the page limit, falling back to the default when it is bound empty, as with ?limit=
+     */
+    private static int limitOf(NotePageRequest pageRequest) {
+        return pageRequest.getLimit() != null ? pageRequest.getLimit() : NotePageRequest.DEFAULT_LIMIT;
+    }
+
+    /**
+     * Encodes a note ID as an opaque cursor
+     */
+    public static String encodeCursor(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(new ObjectId(id).toByteArray());
+    }
+
+    /**
+     * Decodes an opaque cursor into the note ID it points after
+     */
+    public static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != OBJECT_ID_LENGTH) {
+                throw new ValidationException("Invalid cursor: " + cursor);
+            }
+            return new ObjectId(bytes).toHexString();
+        } catch (IllegalArgumentException ex) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package dev.amir.notes.notes.application.requests;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for bulk delete requests
+ * <p>
+ * This class represents the list of note IDs
+ * removed together by the bulk delete endpoint.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteRequest {
+
+    /**
+     * Largest number of IDs a single request may contain.
+     */
+    public static final int MAX_IDS = 500;
+
+    /**
+     * IDs of the notes to delete.
+     * This field is required; IDs that do not exist are ignored.
+     */
+    @NotEmpty(message = "IDs cannot be empty")
+    @Size(max = MAX_IDS, message = "IDs must not exceed " + MAX_IDS)
+    private List<String> ids;
+}
@@ -0,0 +1,36 @@
+package dev.amir.notes.notes.application.requests;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for multi-get requests
+ * <p>
+ * This class represents the list of note IDs
+ * fetched together by the multi-get endpoint.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetRequest {
+
+    /**
+     * Largest number of IDs a single request may contain.
+     */
+    public static final int MAX_IDS = 500;
+
+    /**
+     * IDs of the notes to fetch.
+     * This field is required and the notes are returned in the same order.
+     */
+    @NotEmpty(message = "IDs cannot be empty")
+    @Size(max = MAX_IDS, message = "IDs must not exceed " + MAX_IDS)
+    private List<String> ids;
+}
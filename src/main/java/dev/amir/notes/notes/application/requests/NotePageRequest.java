@@ -0,0 +1,55 @@
+package dev.amir.notes.notes.application.requests;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for paginated list requests
+ * <p>
+ * This class represents the cursor pagination and sparse fieldset parameters
+ * accepted by the list and search endpoints.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotePageRequest {
+
+    /**
+     * Number of notes returned when no limit is requested.
+     */
+    public static final int DEFAULT_LIMIT = 50;
+
+    /**
+     * Largest number of notes a single page may return.
+     */
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * Opaque cursor returned as nextCursor by the previous page.
+     * This field is optional and the first page is returned when it is missing.
+     */
+    private String after;
+
+    /**
+     * Maximum number of notes to return.
+     * This field is optional and defaults to 50.
+     */
+    @Builder.Default
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = MAX_LIMIT, message = "Limit must not exceed " + MAX_LIMIT)
+    private Integer limit = DEFAULT_LIMIT;
+
+    /**
+     * Note fields to return, as a comma separated list such as title,category.
+     * This field is optional and all fields are returned when it is missing.
+     * The ID and version are always returned.
+     */
+    private List<String> fields;
+}
@@ -0,0 +1,53 @@
+package dev.amir.notes.notes.application.requests;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for partial note updates
+ * <p>
+ * This class represents the fields sent to the PATCH endpoint.
+ * Every field is optional and only the fields that are present are changed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotePatchRequest {
+
+    /**
+     * New title of the note.
+     * This field must not be blank when present.
+     */
+    @Pattern(regexp = "(?s).*\\S.*", message = "Title cannot be blank")
+    @Size(min = 1, max = 200, message = "Title must be between 1 and 200 characters")
+    private String title;
+
+    /**
+     * New content of the note.
+     * This field must not be blank when present.
+     */
+    @Pattern(regexp = "(?s).*\\S.*", message = "Content cannot be blank")
+    @Size(min = 1, max = 5000, message = "Content must be between 1 and 5000 characters")
+    private String content;
+
+    /**
+     * New category of the note.
+     */
+    @Size(max = 50, message = "Category must not exceed 50 characters")
+    private String category;
+
+    /**
+     * New importance flag of the note.
+     */
+    private Boolean important;
+
+    /**
+     * New tags of the note.
+     */
+    private String tags;
+}
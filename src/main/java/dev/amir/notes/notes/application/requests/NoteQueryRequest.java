@@ -0,0 +1,89 @@
+package dev.amir.notes.notes.application.requests;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for combined filter query requests
+ * <p>
+ * This class represents the filters, sort and limit accepted by the query endpoint.
+ * Every filter is optional and the filters that are given must all match.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteQueryRequest {
+
+    /**
+     * Number of notes returned when no limit is requested.
+     */
+    public static final int DEFAULT_LIMIT = 50;
+
+    /**
+     * Largest number of notes a single query may return.
+     */
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * Exact category the notes must have.
+     */
+    @Size(max = 50, message = "Category must not exceed 50 characters")
+    private String category;
+
+    /**
+     * Importance the notes must have.
+     */
+    private Boolean important;
+
+    /**
+     * Text the tags must contain, ignoring case.
+     */
+    @Size(max = 100, message = "Tag must not exceed 100 characters")
+    private String tag;
+
+    /**
+     * Text the title must contain, ignoring case.
+     */
+    @Size(max = 200, message = "Title must not exceed 200 characters")
+    private String title;
+
+    /**
+     * Text the content must contain, ignoring case.
+     */
+    @Size(max = 200, message = "Content must not exceed 200 characters")
+    private String content;
+
+    /**
+     * Field to sort by, prefixed with - for descending order.
+     * This field is optional and defaults to id.
+     */
+    @Builder.Default
+    @Pattern(regexp = "-?(id|createdAt|updatedAt|title)",
+            message = "Sort must be one of id, createdAt, updatedAt or title, optionally prefixed with -")
+    private String sort = "id";
+
+    /**
+     * Maximum number of notes to return.
+     * This field is optional and defaults to 50.
+     */
+    @Builder.Default
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = MAX_LIMIT, message = "Limit must not exceed " + MAX_LIMIT)
+    private Integer limit = DEFAULT_LIMIT;
+
+    /**
+     * Note fields to return, as a comma separated list such as title,category.
+     * This field is optional and all fields are returned when it is missing.
+     * The ID and version are always returned.
+     */
+    private List<String> fields;
+}
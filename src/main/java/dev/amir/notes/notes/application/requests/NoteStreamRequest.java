@@ -0,0 +1,56 @@
+package dev.amir.notes.notes.application.requests;
+
+import dev.amir.notes.notes.domain.events.OverflowPolicy;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for note stream subscription requests
+ * <p>
+ * This class represents the filters accepted by the stream endpoint.
+ * Every filter is optional and the filters that are given must all match.
+ * Clients can also opt in to receiving updates as patches of the changed fields
+ * and choose what happens when they fall behind the stream. Clients streaming in batches receive
+ * the events gathered over a short window as one array per frame, the initial notes included.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteStreamRequest {
+
+    /**
+     * Exact category the notes must have.
+     */
+    @Size(max = 50, message = "Category must not exceed 50 characters")
+    private String category;
+
+    /**
+     * Importance the notes must have.
+     */
+    private Boolean important;
+
+    /**
+     * Tag the notes must have, ignoring case.
+     */
+    @Size(max = 100, message = "Tag must not exceed 100 characters")
+    private String tag;
+
+    /**
+     * Whether updates are sent as patches carrying only the changed fields.
+     */
+    private boolean delta;
+
+    /**
+     * What happens when the client falls behind, instead of the configured default.
+     */
+    private OverflowPolicy overflow;
+
+    /**
+     * Whether events are sent in batches, as one array per frame.
+     */
+    private boolean batch;
+}
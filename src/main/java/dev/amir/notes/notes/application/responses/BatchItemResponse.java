@@ -0,0 +1,49 @@
+package dev.amir.notes.notes.application.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Response DTO for one item of a batch create request.
+ * <p>
+ * This class reports the outcome of a single note of the batch,
+ * identified by its position in the request body.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResponse {
+
+    /**
+     * Zero based position of the note in the request body.
+     */
+    private long index;
+
+    /**
+     * Outcome of the item.
+     */
+    private BatchItemStatus status;
+
+    /**
+     * ID of the created note.
+     * This field is only set when the note was created.
+     */
+    private String id;
+
+    /**
+     * Field-specific validation errors.
+     * This field is only set when the note was invalid.
+     */
+    private Map<String, String> validationErrors;
+
+    /**
+     * Error message of the database.
+     * This field is only set when the note failed to be written.
+     */
+    private String error;
+}
@@ -0,0 +1,19 @@
+package dev.amir.notes.notes.application.responses;
+
+/**
+ * Enum representing the outcome of one item of a batch request.
+ */
+public enum BatchItemStatus {
+    /**
+     * The note was created.
+     */
+    CREATED,
+    /**
+     * The note failed validation and was not written.
+     */
+    INVALID,
+    /**
+     * The note was valid but the database rejected it.
+     */
+    FAILED
+}
@@ -0,0 +1,23 @@
+package dev.amir.notes.notes.application.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for a bulk delete request.
+ * <p>
+ * This class holds how many of the requested notes were actually deleted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteResponse {
+
+    /**
+     * Number of notes deleted by the request.
+     */
+    private long deletedCount;
+}
@@ -0,0 +1,28 @@
+package dev.amir.notes.notes.application.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for one bucket of the category statistics.
+ * <p>
+ * This class holds a category and the number of notes in it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryCountResponse {
+
+    /**
+     * The category, or null for notes without a category.
+     */
+    private String category;
+
+    /**
+     * Number of notes in the category.
+     */
+    private long count;
+}
@@ -0,0 +1,28 @@
+package dev.amir.notes.notes.application.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for one bucket of a search facet.
+ * <p>
+ * This class holds a value of the faceted field and how many matching notes have it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetBucketResponse {
+
+    /**
+     * The value of the faceted field, or null for notes without one.
+     */
+    private String value;
+
+    /**
+     * Number of matching notes with the value.
+     */
+    private long count;
+}
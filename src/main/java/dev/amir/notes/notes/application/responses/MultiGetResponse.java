@@ -0,0 +1,31 @@
+package dev.amir.notes.notes.application.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO for a multi-get request.
+ * <p>
+ * This class holds the notes that were found, in the order they were requested,
+ * along with the requested IDs that do not exist.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetResponse {
+
+    /**
+     * Notes that were found, in request order.
+     */
+    private List<NoteResponse> notes;
+
+    /**
+     * Requested IDs that do not match any note, in request order.
+     */
+    private List<String> missing;
+}
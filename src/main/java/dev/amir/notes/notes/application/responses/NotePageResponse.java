@@ -0,0 +1,32 @@
+package dev.amir.notes.notes.application.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO for a page of notes.
+ * <p>
+ * This class represents one page of a cursor paginated list.
+ * The nextCursor is passed back as the after parameter to read the following page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotePageResponse {
+
+    /**
+     * Notes in this page, ordered by ID.
+     */
+    private List<NoteResponse> items;
+
+    /**
+     * Opaque cursor of the next page.
+     * This field is null when this is the last page.
+     */
+    private String nextCursor;
+}
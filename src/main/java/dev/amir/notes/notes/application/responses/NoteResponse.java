@@ -1,9 +1,9 @@
 package dev.amir.notes.notes.application.responses;
 
 import lombok.AllArgsConstructor;
-import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
 
 import java.time.Instant;
 
@@ -12,9 +12,10 @@ import java.time.Instant;
  * <p>
  * This class represents the structure of note data returned by the API endpoints.
  * It includes fields for note details and uses Lombok annotations to reduce boilerplate code.
+ * Every field is written, with or without a value; sparse fieldsets use {@link SparseNoteResponse}.
  */
 @Data
-@Builder
+@SuperBuilder
 @NoArgsConstructor
 @AllArgsConstructor
 public class NoteResponse {
@@ -61,6 +62,12 @@ public class NoteResponse {
      */
     private Instant updatedAt;
 
+    /**
+     * Version of the note, incremented by every write.
+     * This field is sent back as the ETag of the note.
+     */
+    private Long version;
+
     /**
      * Tags associated with the note.
      * This field is optional and can be used to add metadata to the note.
@@ -0,0 +1,46 @@
+package dev.amir.notes.notes.application.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO for a faceted search.
+ * <p>
+ * This class holds the first matching notes together with the facet counts of all matching notes,
+ * so a search page can show results and filters from a single request.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteSearchResponse {
+
+    /**
+     * First matching notes, in the requested sort order.
+     */
+    private List<NoteResponse> items;
+
+    /**
+     * Number of matching notes.
+     */
+    private long total;
+
+    /**
+     * Number of matching notes marked as important.
+     */
+    private long importantCount;
+
+    /**
+     * Most common categories of the matching notes, most common first.
+     */
+    private List<FacetBucketResponse> categories;
+
+    /**
+     * Most common tags of the matching notes, most common first.
+     */
+    private List<FacetBucketResponse> tags;
+}
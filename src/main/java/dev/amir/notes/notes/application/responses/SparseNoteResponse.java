@@ -0,0 +1,18 @@
+package dev.amir.notes.notes.application.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Response DTO for the requested fields of a Note entity.
+ * <p>
+ * This class is a NoteResponse that leaves out the fields without a value,
+ * so sparse fieldsets only carry the requested fields, the ID and the version.
+ * It compares equal to a NoteResponse with the same values.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@SuperBuilder
+@NoArgsConstructor
+public class SparseNoteResponse extends NoteResponse {
+}
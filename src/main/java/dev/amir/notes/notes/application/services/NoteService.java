@@ -1,11 +1,24 @@
 package dev.amir.notes.notes.application.services;
 
 import dev.amir.notes.notes.application.events.NoteResponseEvent;
+import dev.amir.notes.notes.application.requests.NotePageRequest;
+import dev.amir.notes.notes.application.requests.NoteQueryRequest;
+import dev.amir.notes.notes.application.requests.NotePatchRequest;
 import dev.amir.notes.notes.application.requests.NoteRequest;
+import dev.amir.notes.notes.application.requests.NoteStreamRequest;
+import dev.amir.notes.notes.application.responses.BatchItemResponse;
+import dev.amir.notes.notes.application.responses.BulkDeleteResponse;
+import dev.amir.notes.notes.application.responses.CategoryCountResponse;
+import dev.amir.notes.notes.application.responses.MultiGetResponse;
+import dev.amir.notes.notes.application.responses.NotePageResponse;
 import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.application.responses.NoteSearchResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Service interface for Note operations
  * <p>
@@ -23,18 +36,55 @@ public interface NoteService {
     Mono<NoteResponse> createNote(NoteRequest noteRequest);
 
     /**
-     * Get all notes
+     * Create several notes, validating each one and writing them in chunks
+     *
+     * @param noteRequests The note creation requests
+     * @return Flux containing the outcome of every request, in request order
+     */
+    Flux<BatchItemResponse> createNotes(Flux<NoteRequest> noteRequests);
+
+    /**
+     * Get a page of all notes
+     *
+     * @param pageRequest The cursor and limit of the page
+     * @return Mono containing the page of note responses
+     */
+    Mono<NotePageResponse> getAllNotes(NotePageRequest pageRequest);
+
+    /**
+     * Get the ETag of a page of all notes without reading the full notes
+     *
+     * @param pageRequest The cursor and limit of the page
+     * @return Mono containing the ETag the page would be served with
+     */
+    Mono<String> getAllNotesETag(NotePageRequest pageRequest);
+
+    /**
+     * Export all notes as a stream
+     *
+     * @return Flux of all note responses, emitted as they are read
+     */
+    Flux<NoteResponse> exportNotes();
+
+    /**
+     * Get all notes with updates, or only the updates after the last one a client received
      *
-     * @return Flux of all note responses
+     * @param lastEventId   The resume token of the last event the client received, or null
+     * @param streamRequest The filters of the notes to stream, whether to send updates as patches
+     *                      and what happens when the client falls behind
+     * @return Flux of all matching notes and their updates, or of the missed and new updates
      */
-    Flux<NoteResponse> getAllNotes();
+    Flux<NoteResponseEvent> getAllNotesWithUpdates(String lastEventId, NoteStreamRequest streamRequest);
 
     /**
-     * Get all notes with updates
+     * Get all notes with updates in batches, gathered over the configured window or up to the configured size
      *
-     * @return Flux of all notes
+     * @param lastEventId   The resume token of the last event the client received, or null
+     * @param streamRequest The filters of the notes to stream, whether to send updates as patches
+     *                      and what happens when the client falls behind
+     * @return Flux of batches of all matching notes and their updates, or of the missed and new updates
      */
-    Flux<NoteResponseEvent> getAllNotesWithUpdates();
+    Flux<List<NoteResponseEvent>> getAllNotesWithUpdatesInBatches(String lastEventId, NoteStreamRequest streamRequest);
 
     /**
      * Get a note by ID
@@ -44,62 +94,119 @@ public interface NoteService {
      */
     Mono<NoteResponse> getNoteById(String id);
 
+    /**
+     * Get the ETag of a note without reading the full note
+     *
+     * @param id The note ID
+     * @return Mono containing the ETag the note would be served with, or empty if not found
+     */
+    Mono<String> getNoteETag(String id);
+
+    /**
+     * Get several notes by their IDs
+     *
+     * @param ids The note IDs
+     * @return Mono containing the notes found in request order and the IDs that are missing
+     */
+    Mono<MultiGetResponse> getNotesByIds(List<String> ids);
+
     /**
      * Update an existing note
      *
-     * @param id          The note ID
-     * @param noteRequest The note update request
+     * @param id               The note ID
+     * @param noteRequest      The note update request
+     * @param expectedVersions The versions the note must have, or null to update any version
+     * @return Mono containing the updated note response
+     */
+    Mono<NoteResponse> updateNote(String id, NoteRequest noteRequest, Collection<Long> expectedVersions);
+
+    /**
+     * Partially update an existing note, changing only the fields that are present
+     *
+     * @param id               The note ID
+     * @param patchRequest     The fields to change
+     * @param expectedVersions The versions the note must have, or null to update any version
      * @return Mono containing the updated note response
      */
-    Mono<NoteResponse> updateNote(String id, NoteRequest noteRequest);
+    Mono<NoteResponse> patchNote(String id, NotePatchRequest patchRequest, Collection<Long> expectedVersions);
 
     /**
      * Delete a note by ID
      *
-     * @param id The note ID
+     * @param id               The note ID
+     * @param expectedVersions The versions the note must have, or null to delete any version
      * @return Mono<Void> indicating completion
      */
-    Mono<Void> deleteNote(String id);
+    Mono<Void> deleteNote(String id, Collection<Long> expectedVersions);
+
+    /**
+     * Delete several notes by ID
+     *
+     * @param ids The note IDs
+     * @return Mono containing the number of deleted notes
+     */
+    Mono<BulkDeleteResponse> deleteNotes(List<String> ids);
 
     /**
-     * Get notes by category
+     * Get a page of notes by category
      *
-     * @param category The category to filter by
-     * @return Flux of note responses in the specified category
+     * @param category    The category to filter by
+     * @param pageRequest The cursor and limit of the page
+     * @return Mono containing the page of note responses in the specified category
      */
-    Flux<NoteResponse> getNotesByCategory(String category);
+    Mono<NotePageResponse> getNotesByCategory(String category, NotePageRequest pageRequest);
 
     /**
-     * Get important notes
+     * Get a page of important notes
      *
-     * @param important Boolean indicating importance
-     * @return Flux of important note responses
+     * @param important   Boolean indicating importance
+     * @param pageRequest The cursor and limit of the page
+     * @return Mono containing the page of important note responses
      */
-    Flux<NoteResponse> getImportantNotes(Boolean important);
+    Mono<NotePageResponse> getImportantNotes(Boolean important, NotePageRequest pageRequest);
 
     /**
-     * Search notes by title
+     * Search a page of notes by title
      *
-     * @param title The title text to search for
-     * @return Flux of note responses with matching titles
+     * @param title       The title text to search for
+     * @param pageRequest The cursor and limit of the page
+     * @return Mono containing the page of note responses with matching titles
      */
-    Flux<NoteResponse> searchNotesByTitle(String title);
+    Mono<NotePageResponse> searchNotesByTitle(String title, NotePageRequest pageRequest);
 
     /**
-     * Search notes by content
+     * Search a page of notes by content
      *
-     * @param content The satisfied text to search for
-     * @return Flux of note responses with matching content
+     * @param content     The satisfied text to search for
+     * @param pageRequest The cursor and limit of the page
+     * @return Mono containing the page of note responses with matching content
      */
-    Flux<NoteResponse> searchNotesByContent(String content);
+    Mono<NotePageResponse> searchNotesByContent(String content, NotePageRequest pageRequest);
 
     /**
-     * Get notes by tag
+     * Get a page of notes by tag
      *
-     * @param tag The tag to search for
-     * @return Flux of note responses containing the specified tag
+     * @param tag         The tag to search for
+     * @param pageRequest The cursor and limit of the page
+     * @return Mono containing the page of note responses containing the specified tag
      */
-    Flux<NoteResponse> getNotesByTag(String tag);
+    Mono<NotePageResponse> getNotesByTag(String tag, NotePageRequest pageRequest);
+
+    /**
+     * Query notes with combined filters, sort and limit
+     *
+     * @param queryRequest The filters, sort, limit and fields of the query
+     * @return Flux of the matching note responses, in sort order
+     */
+    Flux<NoteResponse> queryNotes(NoteQueryRequest queryRequest);
+
+    /**
+     * Search notes with combined filters and count the category, tag and importance facets of all matches
+     *
+     * @param queryRequest The filters, sort, limit and fields of the search
+     * @return Mono containing the first matching notes and the facet counts
+     */
+    Mono<NoteSearchResponse> searchNotes(NoteQueryRequest queryRequest);
 
     /**
      * Count notes by category
@@ -108,4 +215,11 @@ public interface NoteService {
      * @return Mono containing the count
      */
     Mono<Long> countNotesByCategory(String category);
-}
\ No newline at end of file
+
+    /**
+     * Get the number of notes in every category
+     *
+     * @return Mono containing the count of every category, ordered by category
+     */
+    Mono<List<CategoryCountResponse>> getCategoryStats();
+}
@@ -1,17 +1,51 @@
 package dev.amir.notes.notes.application.services;
 
 import dev.amir.notes.notes.application.events.NoteResponseEvent;
+import dev.amir.notes.notes.application.mappers.ETagMapper;
+import dev.amir.notes.notes.application.mappers.FacetMapper;
 import dev.amir.notes.notes.application.mappers.NoteMapper;
+import dev.amir.notes.notes.application.mappers.NoteQueryMapper;
+import dev.amir.notes.notes.application.mappers.PageMapper;
+import dev.amir.notes.notes.application.requests.NotePageRequest;
+import dev.amir.notes.notes.application.requests.NoteQueryRequest;
+import dev.amir.notes.notes.application.requests.NotePatchRequest;
 import dev.amir.notes.notes.application.requests.NoteRequest;
+import dev.amir.notes.notes.application.requests.NoteStreamRequest;
+import dev.amir.notes.notes.application.responses.BatchItemResponse;
+import dev.amir.notes.notes.application.responses.BatchItemStatus;
+import dev.amir.notes.notes.application.responses.BulkDeleteResponse;
+import dev.amir.notes.notes.application.responses.CategoryCountResponse;
+import dev.amir.notes.notes.application.responses.MultiGetResponse;
+import dev.amir.notes.notes.application.responses.NotePageResponse;
 import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.application.responses.NoteSearchResponse;
+import dev.amir.notes.notes.application.stats.CategoryHistogram;
 import dev.amir.notes.notes.domain.entities.Note;
 import dev.amir.notes.notes.domain.exceptions.NoteNotFoundException;
+import dev.amir.notes.notes.domain.exceptions.NoteVersionMismatchException;
+import dev.amir.notes.notes.domain.exceptions.ValidationException;
+import dev.amir.notes.notes.domain.pagination.PageQuery;
 import dev.amir.notes.notes.domain.repositories.NoteRepository;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of NoteService using reactive programming
@@ -24,28 +58,37 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class NoteServiceImpl implements NoteService {
     private final NoteRepository noteRepository;
+    private final Validator validator;
+    private final NotesProperties properties;
+    private final CategoryHistogram categoryHistogram;
 
     @Override
     public Mono<NoteResponse> createNote(NoteRequest noteRequest) {
         log.info("Creating new note with title: {}", noteRequest.getTitle());
 
-        Note note = Note.builder()
-                .title(noteRequest.getTitle())
-                .content(noteRequest.getContent())
-                .category(noteRequest.getCategory())
-                .important(noteRequest.getImportant())
-                .tags(noteRequest.getTags())
-                .build();
-
-        return noteRepository.save(note)
+        return noteRepository.save(toNote(noteRequest))
                 .map(NoteMapper::mapToNoteResponse)
                 .doOnSuccess(savedNote -> log.info("Successfully created note with ID: {}", savedNote.getId()))
                 .doOnError(error -> log.error("Error creating note: {}", error.getMessage()));
     }
 
     @Override
-    public Flux<NoteResponseEvent> getAllNotesWithUpdates() {
-        return noteRepository.getAllNotesWithUpdates()
+    public Flux<BatchItemResponse> createNotes(Flux<NoteRequest> noteRequests) {
+        log.info("Creating notes in batch");
+
+        return noteRequests
+                .index()
+                .buffer(properties.getBatch().getChunkSize())
+                .concatMap(this::createChunk)
+                .doOnComplete(() -> log.info("Successfully processed note batch"))
+                .doOnError(error -> log.error("Error creating notes in batch: {}", error.getMessage()));
+    }
+
+    @Override
+    public Flux<NoteResponseEvent> getAllNotesWithUpdates(String lastEventId, NoteStreamRequest streamRequest) {
+        return noteRepository.getAllNotesWithUpdates(lastEventId, NoteQueryMapper.toNoteStreamFilter(streamRequest),
+                        streamRequest != null && streamRequest.isDelta(),
+                        streamRequest != null ? streamRequest.getOverflow() : null)
                 .map(NoteMapper::mapToNoteResponseEvent)
                 .doOnSubscribe(subscription -> log.info("Subscribed to note updates"))
                 .doOnNext(event -> log.info("Received note update: {}", event.getEntityId()))
@@ -54,15 +97,44 @@ public class NoteServiceImpl implements NoteService {
     }
 
     @Override
-    public Flux<NoteResponse> getAllNotes() {
-        log.info("Fetching all notes");
+    public Flux<List<NoteResponseEvent>> getAllNotesWithUpdatesInBatches(String lastEventId,
+                                                                        NoteStreamRequest streamRequest) {
+        NotesProperties.Stream stream = properties.getStream();
+        // Fair backpressure only closes a batch once the client asks for it, so a slow client is not overflowed
+        return getAllNotesWithUpdates(lastEventId, streamRequest)
+                .bufferTimeout(stream.getBatchSize(), stream.getBatchWindow(), true)
+                .doOnNext(batch -> log.debug("Sending a batch of {} note updates", batch.size()));
+    }
 
-        return noteRepository.getAllNotes()
-                .map(NoteMapper::mapToNoteResponse)
-                .doOnComplete(() -> log.info("Successfully fetched all notes"))
+    @Override
+    public Mono<NotePageResponse> getAllNotes(NotePageRequest pageRequest) {
+        log.info("Fetching notes page after cursor: {}", pageRequest.getAfter());
+
+        return findPage(pageRequest, noteRepository::getAllNotes)
+                .doOnSuccess(page -> log.info("Successfully fetched notes page"))
                 .doOnError(error -> log.error("Error fetching notes: {}", error.getMessage()));
     }
 
+    @Override
+    public Mono<String> getAllNotesETag(NotePageRequest pageRequest) {
+        log.info("Fetching ETag of notes page after cursor: {}", pageRequest.getAfter());
+
+        return findPage(pageRequest, noteRepository::getAllNoteVersions)
+                .map(page -> ETagMapper.toPageETag(page.getItems(), page.getNextCursor(),
+                        PageMapper.toFields(pageRequest.getFields())))
+                .doOnError(error -> log.error("Error fetching ETag of notes page: {}", error.getMessage()));
+    }
+
+    @Override
+    public Flux<NoteResponse> exportNotes() {
+        log.info("Exporting all notes");
+
+        return noteRepository.streamAllNotes()
+                .map(NoteMapper::mapToNoteResponse)
+                .doOnComplete(() -> log.info("Successfully exported all notes"))
+                .doOnError(error -> log.error("Error exporting notes: {}", error.getMessage()));
+    }
+
     @Override
     public Mono<NoteResponse> getNoteById(String id) {
         log.info("Fetching note with ID: {}", id);
@@ -71,90 +143,164 @@ public class NoteServiceImpl implements NoteService {
                 .map(NoteMapper::mapToNoteResponse)
                 .switchIfEmpty(Mono.error(new NoteNotFoundException(id)))
                 .doOnSuccess(note -> log.info("Successfully fetched note with ID: {}", id))
-                .doOnError(error -> log.error("Error fetching note with ID {}: {}", id, error.getMessage()));
+                .doOnError(error -> !(error instanceof NoteNotFoundException),
+                        error -> log.error("Error fetching note with ID {}: {}", id, error.getMessage()));
+    }
+
+    @Override
+    public Mono<String> getNoteETag(String id) {
+        log.info("Fetching ETag of note with ID: {}", id);
+
+        return noteRepository.findVersionById(id)
+                .map(note -> ETagMapper.toETag(note.getVersion()))
+                .doOnError(error -> log.error("Error fetching ETag of note with ID {}: {}", id, error.getMessage()));
+    }
+
+    @Override
+    public Mono<MultiGetResponse> getNotesByIds(List<String> ids) {
+        log.info("Fetching {} notes by ID", ids.size());
+
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        return noteRepository.findAllById(uniqueIds)
+                .collectMap(Note::getId, NoteMapper::mapToNoteResponse)
+                .map(found -> MultiGetResponse.builder()
+                        .notes(uniqueIds.stream().filter(found::containsKey).map(found::get).toList())
+                        .missing(uniqueIds.stream().filter(id -> !found.containsKey(id)).toList())
+                        .build())
+                .doOnSuccess(response -> log.info("Successfully fetched {} notes, {} missing",
+                        response.getNotes().size(), response.getMissing().size()))
+                .doOnError(error -> log.error("Error fetching notes by ID: {}", error.getMessage()));
     }
 
     @Override
-    public Mono<NoteResponse> updateNote(String id, NoteRequest noteRequest) {
+    public Mono<NoteResponse> updateNote(String id, NoteRequest noteRequest, Collection<Long> expectedVersions) {
         log.info("Updating note with ID: {}", id);
 
-        return noteRepository.findById(id)
-                .switchIfEmpty(Mono.error(new NoteNotFoundException(id)))
-                .map(existingNote -> {
-                    existingNote.setTitle(noteRequest.getTitle());
-                    existingNote.setContent(noteRequest.getContent());
-                    existingNote.setCategory(noteRequest.getCategory());
-                    existingNote.setImportant(noteRequest.getImportant());
-                    existingNote.setTags(noteRequest.getTags());
-                    return existingNote;
-                })
-                .flatMap(noteRepository::save)
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(Note.Fields.title, noteRequest.getTitle());
+        fields.put(Note.Fields.content, noteRequest.getContent());
+        fields.put(Note.Fields.category, noteRequest.getCategory());
+        fields.put(Note.Fields.important, noteRequest.getImportant());
+        fields.put(Note.Fields.tags, noteRequest.getTags());
+
+        return noteRepository.updateFields(id, expectedVersions, fields)
+                .switchIfEmpty(Mono.defer(() -> writeFailure(id, expectedVersions)))
                 .map(NoteMapper::mapToNoteResponse)
                 .doOnSuccess(updatedNote -> log.info("Successfully updated note with ID: {}", id))
                 .doOnError(error -> log.error("Error updating note with ID {}: {}", id, error.getMessage()));
     }
 
     @Override
-    public Mono<Void> deleteNote(String id) {
+    public Mono<NoteResponse> patchNote(String id, NotePatchRequest patchRequest, Collection<Long> expectedVersions) {
+        log.info("Patching note with ID: {}", id);
+
+        Map<String, Object> fields = new HashMap<>();
+        putIfPresent(fields, Note.Fields.title, patchRequest.getTitle());
+        putIfPresent(fields, Note.Fields.content, patchRequest.getContent());
+        putIfPresent(fields, Note.Fields.category, patchRequest.getCategory());
+        putIfPresent(fields, Note.Fields.important, patchRequest.getImportant());
+        putIfPresent(fields, Note.Fields.tags, patchRequest.getTags());
+
+        if (fields.isEmpty()) {
+            return Mono.error(new ValidationException("At least one field must be provided"));
+        }
+
+        return noteRepository.updateFields(id, expectedVersions, fields)
+                .switchIfEmpty(Mono.defer(() -> writeFailure(id, expectedVersions)))
+                .map(NoteMapper::mapToNoteResponse)
+                .doOnSuccess(patchedNote -> log.info("Successfully patched note with ID: {}", id))
+                .doOnError(error -> log.error("Error patching note with ID {}: {}", id, error.getMessage()));
+    }
+
+    @Override
+    public Mono<Void> deleteNote(String id, Collection<Long> expectedVersions) {
         log.info("Deleting note with ID: {}", id);
 
-        return noteRepository.findById(id)
-                .switchIfEmpty(Mono.error(new NoteNotFoundException(id)))
-                .flatMap(noteRepository::delete)
+        return noteRepository.deleteById(id, expectedVersions)
+                .filter(deletedCount -> deletedCount > 0)
+                .switchIfEmpty(Mono.defer(() -> writeFailure(id, expectedVersions)))
+                .then()
                 .doOnSuccess(unused -> log.info("Successfully deleted note with ID: {}", id))
                 .doOnError(error -> log.error("Error deleting note with ID {}: {}", id, error.getMessage()));
     }
 
     @Override
-    public Flux<NoteResponse> getNotesByCategory(String category) {
+    public Mono<BulkDeleteResponse> deleteNotes(List<String> ids) {
+        log.info("Deleting {} notes by ID", ids.size());
+
+        return noteRepository.deleteAllById(new LinkedHashSet<>(ids))
+                .map(deletedCount -> BulkDeleteResponse.builder().deletedCount(deletedCount).build())
+                .doOnSuccess(response -> log.info("Successfully deleted {} notes", response.getDeletedCount()))
+                .doOnError(error -> log.error("Error deleting notes by ID: {}", error.getMessage()));
+    }
+
+    @Override
+    public Mono<NotePageResponse> getNotesByCategory(String category, NotePageRequest pageRequest) {
         log.info("Fetching notes by category: {}", category);
 
-        return noteRepository.findByCategory(category)
-                .map(NoteMapper::mapToNoteResponse)
-                .doOnComplete(() -> log.info("Successfully fetched notes for category: {}", category))
+        return findPage(pageRequest, page -> noteRepository.findByCategory(category, page))
+                .doOnSuccess(page -> log.info("Successfully fetched notes for category: {}", category))
                 .doOnError(error -> log.error("Error fetching notes by category {}: {}", category, error.getMessage()));
     }
 
     @Override
-    public Flux<NoteResponse> getImportantNotes(Boolean important) {
+    public Mono<NotePageResponse> getImportantNotes(Boolean important, NotePageRequest pageRequest) {
         log.info("Fetching important notes: {}", important);
 
-        return noteRepository.findByImportant(important)
-                .map(NoteMapper::mapToNoteResponse)
-                .doOnComplete(() -> log.info("Successfully fetched important notes"))
+        return findPage(pageRequest, page -> noteRepository.findByImportant(important, page))
+                .doOnSuccess(page -> log.info("Successfully fetched important notes"))
                 .doOnError(error -> log.error("Error fetching important notes: {}", error.getMessage()));
     }
 
     @Override
-    public Flux<NoteResponse> searchNotesByTitle(String title) {
+    public Mono<NotePageResponse> searchNotesByTitle(String title, NotePageRequest pageRequest) {
         log.info("Searching notes by title: {}", title);
 
-        return noteRepository.findByTitleContainingIgnoreCase(title)
-                .map(NoteMapper::mapToNoteResponse)
-                .doOnComplete(() -> log.info("Successfully searched notes by title: {}", title))
+        return findPage(pageRequest, page -> noteRepository.findByTitleContainingIgnoreCase(title, page))
+                .doOnSuccess(page -> log.info("Successfully searched notes by title: {}", title))
                 .doOnError(error -> log.error("Error searching notes by title {}: {}", title, error.getMessage()));
     }
 
     @Override
-    public Flux<NoteResponse> searchNotesByContent(String content) {
+    public Mono<NotePageResponse> searchNotesByContent(String content, NotePageRequest pageRequest) {
         log.info("Searching notes by content: {}", content);
 
-        return noteRepository.findByContentContainingIgnoreCase(content)
-                .map(NoteMapper::mapToNoteResponse)
-                .doOnComplete(() -> log.info("Successfully searched notes by content"))
+        return findPage(pageRequest, page -> noteRepository.findByContentContainingIgnoreCase(content, page))
+                .doOnSuccess(page -> log.info("Successfully searched notes by content"))
                 .doOnError(error -> log.error("Error searching notes by content: {}", error.getMessage()));
     }
 
     @Override
-    public Flux<NoteResponse> getNotesByTag(String tag) {
+    public Mono<NotePageResponse> getNotesByTag(String tag, NotePageRequest pageRequest) {
         log.info("Fetching notes by tag: {}", tag);
 
-        return noteRepository.findByTagsContaining(tag)
-                .map(NoteMapper::mapToNoteResponse)
-                .doOnComplete(() -> log.info("Successfully fetched notes by tag: {}", tag))
+        return findPage(pageRequest, page -> noteRepository.findByTagsContaining(tag, page))
+                .doOnSuccess(page -> log.info("Successfully fetched notes by tag: {}", tag))
                 .doOnError(error -> log.error("Error fetching notes by tag {}: {}", tag, error.getMessage()));
     }
 
+    @Override
+    public Flux<NoteResponse> queryNotes(NoteQueryRequest queryRequest) {
+        log.info("Querying notes with filters: {}", queryRequest);
+
+        return Mono.fromCallable(() -> NoteQueryMapper.toNoteQuery(queryRequest))
+                .flatMapMany(query -> noteRepository.findByQuery(query)
+                        .map(note -> NoteMapper.mapToNoteResponse(note, query.getFields())))
+                .doOnComplete(() -> log.info("Successfully queried notes"))
+                .doOnError(error -> log.error("Error querying notes: {}", error.getMessage()));
+    }
+
+    @Override
+    public Mono<NoteSearchResponse> searchNotes(NoteQueryRequest queryRequest) {
+        log.info("Searching notes with facets: {}", queryRequest);
+
+        return Mono.fromCallable(() -> NoteQueryMapper.toNoteQuery(queryRequest))
+                .flatMap(query -> noteRepository.findFacetsByQuery(query)
+                        .map(facets -> FacetMapper.toNoteSearchResponse(facets, query.getFields())))
+                .doOnSuccess(response -> log.info("Found {} notes matching the search", response.getTotal()))
+                .doOnError(error -> log.error("Error searching notes: {}", error.getMessage()));
+    }
+
     @Override
     public Mono<Long> countNotesByCategory(String category) {
         log.info("Counting notes by category: {}", category);
@@ -163,4 +309,114 @@ public class NoteServiceImpl implements NoteService {
                 .doOnSuccess(count -> log.info("Found {} notes in category: {}", count, category))
                 .doOnError(error -> log.error("Error counting notes by category {}: {}", category, error.getMessage()));
     }
+
+    @Override
+    public Mono<List<CategoryCountResponse>> getCategoryStats() {
+        log.info("Getting note counts of all categories");
+
+        return categoryHistogram.getCounts()
+                .map(counts -> counts.stream()
+                        .map(count -> CategoryCountResponse.builder()
+                                .category(count.getCategory())
+                                .count(count.getCount())
+                                .build())
+                        .toList())
+                .doOnSuccess(stats -> log.info("Found note counts of {} categories", stats.size()))
+                .doOnError(error -> log.error("Error getting category stats: {}", error.getMessage()));
+    }
+
+    /**
+     * Reads one page through the given finder and maps it to a NotePageResponse.
+     * The cursor is decoded lazily so an invalid cursor surfaces as an error signal.
+     */
+    private Mono<NotePageResponse> findPage(NotePageRequest pageRequest, Function<PageQuery, Flux<Note>> finder) {
+        return Mono.fromCallable(() -> PageMapper.toPageQuery(pageRequest))
+                .flatMap(page -> finder.apply(page)
+                        .map(note -> NoteMapper.mapToNoteResponse(note, page.getFields()))
+                        .collectList())
+                .map(notes -> PageMapper.toNotePageResponse(notes, pageRequest));
+    }
+
+    /**
+     * Explains why a write by ID matched no note.
+     * Only a conditional write that failed pays for the existence check, to tell a missing note from a newer version.
+     */
+    private <T> Mono<T> writeFailure(String id, Collection<Long> expectedVersions) {
+        if (expectedVersions == null) {
+            return Mono.error(new NoteNotFoundException(id));
+        }
+
+        return noteRepository.existsById(id)
+                .flatMap(exists -> Mono.error(exists
+                        ? new NoteVersionMismatchException(id)
+                        : new NoteNotFoundException(id)));
+    }
+
+    /**
+     * Validates a chunk of indexed requests and writes the valid ones in a single bulk write.
+     */
+    private Flux<BatchItemResponse> createChunk(List<Tuple2<Long, NoteRequest>> chunk) {
+        List<BatchItemResponse> responses = new ArrayList<>(chunk.size());
+        List<Long> noteIndexes = new ArrayList<>(chunk.size());
+        List<Note> notes = new ArrayList<>(chunk.size());
+
+        for (Tuple2<Long, NoteRequest> item : chunk) {
+            Set<ConstraintViolation<NoteRequest>> violations = validator.validate(item.getT2());
+            if (violations.isEmpty()) {
+                noteIndexes.add(item.getT1());
+                notes.add(toNote(item.getT2()));
+            } else {
+                responses.add(BatchItemResponse.builder()
+                        .index(item.getT1())
+                        .status(BatchItemStatus.INVALID)
+                        .validationErrors(toValidationErrors(violations))
+                        .build());
+            }
+        }
+
+        if (notes.isEmpty()) {
+            return Flux.fromIterable(responses);
+        }
+
+        return noteRepository.saveAll(notes)
+                .flatMapMany(result -> {
+                    for (int i = 0; i < notes.size(); i++) {
+                        responses.add(result.isFailed(i)
+                                ? BatchItemResponse.builder()
+                                .index(noteIndexes.get(i))
+                                .status(BatchItemStatus.FAILED)
+                                .error(result.getFailures().get(i))
+                                .build()
+                                : BatchItemResponse.builder()
+                                .index(noteIndexes.get(i))
+                                .status(BatchItemStatus.CREATED)
+                                .id(notes.get(i).getId())
+                                .build());
+                    }
+                    responses.sort(Comparator.comparingLong(BatchItemResponse::getIndex));
+                    return Flux.fromIterable(responses);
+                });
+    }
+
+    private static Map<String, String> toValidationErrors(Set<ConstraintViolation<NoteRequest>> violations) {
+        return violations.stream()
+                .collect(Collectors.toMap(violation -> violation.getPropertyPath().toString(),
+                        ConstraintViolation::getMessage, (first, second) -> first));
+    }
+
+    private static void putIfPresent(Map<String, Object> fields, String field, Object value) {
+        if (value != null) {
+            fields.put(field, value);
+        }
+    }
+
+    private static Note toNote(NoteRequest noteRequest) {
+        return Note.builder()
+                .title(noteRequest.getTitle())
+                .content(noteRequest.getContent())
+                .category(noteRequest.getCategory())
+                .important(noteRequest.getImportant())
+                .tags(noteRequest.getTags())
+                .build();
+    }
 }
@@ -0,0 +1,216 @@
+package dev.amir.notes.notes.application.stats;
+
+import dev.amir.notes.notes.domain.events.EventType;
+import dev.amir.notes.notes.domain.repositories.NoteRepository;
+import dev.amir.notes.notes.domain.results.CategoryCount;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import dev.amir.notes.notes.infrastructure.data.events.CategoryChangeEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonTimestamp;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory histogram of the number of notes per category
+ * <p>
+ * The histogram is loaded with a single aggregation and then kept current from the change stream,
+ * so reads are served from memory without touching the database. When notes.stats.pre-images is on, the
+ * notes collection is set to keep pre-images at startup, so updates and deletes report the category they
+ * leave. A change whose previous category is unknown, as when the collection keeps no pre-images, marks the
+ * histogram stale and it is recomputed after a short delay.
+ * <p>
+ * The changes that arrive while a recompute runs are recorded and replayed on top of its result, except
+ * those at or before the operation time taken just before the aggregation, which it already counts.
+ * A write made while the aggregation runs may still be counted twice; that drift and any change missed
+ * while the change stream reconnected are corrected by a periodic reconcile.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryHistogram implements SmartLifecycle {
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(1);
+    private static final Comparator<CategoryCount> BY_CATEGORY =
+            Comparator.comparing(CategoryCount::getCategory, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final NoteRepository noteRepository;
+    private final NotesProperties properties;
+
+    private final AtomicReference<Map<String, Long>> counts = new AtomicReference<>();
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private final List<List<CategoryChangeEvent>> recordings = new ArrayList<>();
+    private volatile Instant lastRecompute = Instant.MIN;
+    private volatile Disposable subscription;
+
+    @Override
+    public void start() {
+        NotesProperties.Stats stats = properties.getStats();
+
+        Flux<CategoryChangeEvent> changes = noteRepository.watchCategoryChanges()
+                .doOnNext(this::apply)
+                .doOnError(error -> {
+                    log.warn("Category change stream failed, the histogram will be recomputed: {}",
+                            error.getMessage());
+                    stale.set(true);
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, stats.getRecomputeDelay()).maxBackoff(MAX_RETRY_BACKOFF));
+
+        Flux<Void> recomputes = Flux.interval(Duration.ZERO, stats.getRecomputeDelay())
+                .onBackpressureDrop()
+                .filter(tick -> stale.getAndSet(false)
+                        || lastRecompute.plus(stats.getReconcileInterval()).isBefore(Instant.now()))
+                .concatMap(tick -> recompute()
+                        .onErrorResume(error -> {
+                            log.warn("Error recomputing the category histogram: {}", error.getMessage());
+                            stale.set(true);
+                            return Mono.empty();
+                        }));
+
+        Mono<Void> preImages = !stats.isPreImages() ? Mono.empty() : noteRepository.keepPreImages()
+                .doOnSuccess(done -> log.info("The notes collection keeps pre-images"))
+                .onErrorResume(error -> {
+                    log.warn("Could not set the notes collection to keep pre-images, "
+                            + "updates and deletes will recompute the category histogram: {}", error.getMessage());
+                    return Mono.empty();
+                });
+
+        subscription = Disposables.composite(preImages.subscribe(), changes.subscribe(), recomputes.subscribe());
+        log.info("Started the category histogram");
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        Disposable current = subscription;
+        return current != null && !current.isDisposed();
+    }
+
+    /**
+     * Get the number of notes per category
+     * <p>
+     * Served from memory once the histogram is loaded; before that, the counts are aggregated on demand.
+     *
+     * @return Mono of the count of every category, ordered by category with uncategorized notes first
+     */
+    public Mono<List<CategoryCount>> getCounts() {
+        Map<String, Long> current = counts.get();
+        if (current != null) {
+            return Mono.just(toSortedCounts(current));
+        }
+
+        return recompute().then(Mono.fromSupplier(() -> toSortedCounts(counts.get())));
+    }
+
+    /**
+     * Applies one change to the loaded histogram and records it for the recomputes in flight.
+     * Changes that cannot be applied incrementally mark the histogram stale instead.
+     */
+    synchronized void apply(CategoryChangeEvent change) {
+        recordings.forEach(recording -> recording.add(change));
+
+        Map<String, Long> current = counts.get();
+        if (current == null) {
+            return;
+        }
+
+        Map<String, Long> next = new HashMap<>(current);
+        if (!applyTo(next, change)) {
+            stale.set(true);
+            return;
+        }
+        counts.set(Collections.unmodifiableMap(next));
+    }
+
+    /**
+     * Replaces the histogram with a fresh aggregation, replaying on top of it the changes that arrived
+     * while it ran and that happened after the operation time taken before it.
+     */
+    Mono<Void> recompute() {
+        return Mono.usingWhen(Mono.fromSupplier(this::startRecording),
+                recording -> noteRepository.getOperationTime()
+                        .flatMap(startedAt -> noteRepository.countAllByCategory()
+                                .collectMap(CategoryCount::getCategory, CategoryCount::getCount, HashMap::new)
+                                .doOnNext(result -> install(result, startedAt, recording))),
+                this::stopRecording)
+                .then();
+    }
+
+    private synchronized List<CategoryChangeEvent> startRecording() {
+        List<CategoryChangeEvent> recording = new ArrayList<>();
+        recordings.add(recording);
+        return recording;
+    }
+
+    private synchronized Mono<Void> stopRecording(List<CategoryChangeEvent> recording) {
+        recordings.remove(recording);
+        return Mono.empty();
+    }
+
+    private synchronized void install(Map<String, Long> result, BsonTimestamp startedAt,
+                                      List<CategoryChangeEvent> recording) {
+        int replayed = 0;
+        for (CategoryChangeEvent change : recording) {
+            if (change.getClusterTime() != null && change.getClusterTime().compareTo(startedAt) <= 0) {
+                continue;
+            }
+            if (!applyTo(result, change)) {
+                stale.set(true);
+            }
+            replayed++;
+        }
+        recording.clear();
+
+        counts.set(Collections.unmodifiableMap(result));
+        lastRecompute = Instant.now();
+        if (replayed > 0) {
+            log.debug("Replayed {} changes made while recomputing the category histogram", replayed);
+        }
+    }
+
+    /**
+     * Helper method to apply a change to the counts, which is only possible when its previous category is known
+     */
+    private static boolean applyTo(Map<String, Long> counts, CategoryChangeEvent change) {
+        if (change.getEventType() != EventType.INSERT && !change.isPreviousCategoryKnown()) {
+            return false;
+        }
+
+        if (change.getEventType() != EventType.INSERT) {
+            counts.computeIfPresent(change.getPreviousCategory(), (category, count) -> count > 1 ? count - 1 : null);
+        }
+        if (change.getEventType() != EventType.DELETE) {
+            counts.merge(change.getCategory(), 1L, Long::sum);
+        }
+        return true;
+    }
+
+    private static List<CategoryCount> toSortedCounts(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .map(entry -> new CategoryCount(entry.getKey(), entry.getValue()))
+                .sorted(BY_CATEGORY)
+                .toList();
+    }
+}
@@ -6,9 +6,13 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -18,12 +22,26 @@ import java.time.Instant;
  * <p>
  * This class uses Lombok annotations to reduce boilerplate code
  * and Spring Data MongoDB annotations for document mapping.
+ * The compound indexes back the keyset pagination of the filtered list queries,
+ * which seek and sort on the note ID after an equality match. The ID and version
+ * index lets ETag checks read both fields from the index without fetching the document.
+ * The update time indexes serve combined queries that match category and importance
+ * and sort by update time.
  */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@FieldNameConstants
 @Document(collection = EntityName.NOTES)
+@CompoundIndexes({
+        @CompoundIndex(name = "category_id", def = "{'category': 1, '_id': 1}"),
+        @CompoundIndex(name = "important_id", def = "{'important': 1, '_id': 1}"),
+        @CompoundIndex(name = "id_version", def = "{'_id': 1, 'version': 1}"),
+        @CompoundIndex(name = "category_important_updatedAt_id",
+                def = "{'category': 1, 'important': 1, 'updatedAt': 1, '_id': 1}"),
+        @CompoundIndex(name = "important_updatedAt_id", def = "{'important': 1, 'updatedAt': 1, '_id': 1}")
+})
 public class Note {
 
     /**
@@ -77,6 +95,13 @@ public class Note {
     @LastModifiedDate
     private Instant updatedAt;
 
+    /**
+     * Version of the note, incremented by every write.
+     * This field is used for optimistic concurrency and as the note ETag.
+     */
+    @Version
+    private Long version;
+
     /**
      * Tags associated with the note.
      * This field is optional and can be used to add metadata to the note.
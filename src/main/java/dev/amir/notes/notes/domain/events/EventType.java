@@ -18,6 +18,10 @@ public enum EventType {
      * Event type for updating existing entities.
      */
     UPDATE,
+    /**
+     * Event type for updating existing entities, carrying only the changed fields.
+     */
+    PATCH,
     /**
      * Event type for deleting entities.
      */
@@ -0,0 +1,23 @@
+package dev.amir.notes.notes.domain.events;
+
+/**
+ * Enum representing what happens when a subscriber falls behind its event stream.
+ * <p>
+ * Every subscriber has a bounded buffer of the events it has not consumed yet; the policy
+ * decides what to do with a new event once that buffer is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Drop the oldest buffered event to make room; the subscriber silently misses it.
+     */
+    DROP_OLDEST,
+    /**
+     * End the stream with an error, so the subscriber reconnects and resumes from its last event.
+     */
+    DISCONNECT,
+    /**
+     * Keep only the latest event per entity, merged with the ones it replaces; the stream ends as with
+     * {@link #DISCONNECT} when more distinct entities are waiting than the buffer holds.
+     */
+    CONFLATE
+}
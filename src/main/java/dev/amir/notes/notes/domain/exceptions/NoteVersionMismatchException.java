@@ -0,0 +1,19 @@
+package dev.amir.notes.notes.domain.exceptions;
+
+/**
+ * Custom exception for when a conditional write finds a note at another version
+ * <p>
+ * This exception is thrown when a note was modified since the version
+ * the client based its update or delete on.
+ */
+public class NoteVersionMismatchException extends RuntimeException {
+
+    /**
+     * Constructs a NoteVersionMismatchException with the specified note ID.
+     *
+     * @param noteId the ID of the note that is at another version
+     */
+    public NoteVersionMismatchException(String noteId) {
+        super("Note was modified since the given version, ID: " + noteId);
+    }
+}
@@ -0,0 +1,33 @@
+package dev.amir.notes.notes.domain.pagination;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Represents a keyset (cursor) page request at the repository level.
+ * <p>
+ * Pages are ordered by note ID, so a page is read by seeking past the last ID
+ * of the previous page instead of skipping documents, keeping the cost of every
+ * page proportional to its size regardless of how deep it is. Restricting the fields
+ * turns into a projection, so unused fields are neither sent nor decoded.
+ */
+@Getter
+@Builder
+public final class PageQuery {
+    /**
+     * The ID of the last note of the previous page, or null for the first page.
+     */
+    private final String afterId;
+
+    /**
+     * The maximum number of notes to read.
+     */
+    private final int limit;
+
+    /**
+     * The note fields to read besides the ID and version, or null to read every field.
+     */
+    private final Set<String> fields;
+}
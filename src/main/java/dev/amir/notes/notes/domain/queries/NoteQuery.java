@@ -0,0 +1,66 @@
+package dev.amir.notes.notes.domain.queries;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Represents a combined note query at the repository level.
+ * <p>
+ * Every filter that is set narrows the result, and all of them are sent to the database
+ * as a single query. Equality filters on category and importance come first in the
+ * compound indexes, followed by the sort field, so the database can both select and
+ * order from the index; the text filters are applied to the remaining documents.
+ * Equal queries read the same notes, so concurrent equal queries can share one read.
+ */
+@Getter
+@Builder(toBuilder = true)
+@EqualsAndHashCode
+public final class NoteQuery {
+    /**
+     * The exact category to match, or null for any category.
+     */
+    private final String category;
+
+    /**
+     * The importance to match, or null for any importance.
+     */
+    private final Boolean important;
+
+    /**
+     * Text the tags must contain, ignoring case, or null for any tags.
+     */
+    private final String tag;
+
+    /**
+     * Text the title must contain, ignoring case, or null for any title.
+     */
+    private final String title;
+
+    /**
+     * Text the content must contain, ignoring case, or null for any content.
+     */
+    private final String content;
+
+    /**
+     * The note field to sort by; notes with the same value are ordered by ID.
+     */
+    private final String sortField;
+
+    /**
+     * Whether to sort from the highest value to the lowest.
+     */
+    private final boolean descending;
+
+    /**
+     * The maximum number of notes to read.
+     */
+    private final int limit;
+
+    /**
+     * The note fields to read besides the ID and version, or null to read every field.
+     */
+    private final Set<String> fields;
+}
@@ -0,0 +1,45 @@
+package dev.amir.notes.notes.domain.queries;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Represents the filter of a note stream subscription.
+ * <p>
+ * A subscriber receives the changes of the notes that match every filter that is set,
+ * either before or after the change, so it also learns about notes that stop matching.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+public final class NoteStreamFilter {
+    /**
+     * Filter that lets every change through.
+     */
+    public static final NoteStreamFilter NONE = NoteStreamFilter.builder().build();
+
+    /**
+     * The exact category to match, or null for any category.
+     */
+    private final String category;
+
+    /**
+     * The importance to match, or null for any importance.
+     */
+    private final Boolean important;
+
+    /**
+     * A tag the note must have, ignoring case, or null for any tags.
+     */
+    private final String tag;
+
+    /**
+     * Whether no filter is set, so every change matches.
+     *
+     * @return true when the filter lets every change through
+     */
+    public boolean isEmpty() {
+        return category == null && important == null && tag == null;
+    }
+}
@@ -1,10 +1,23 @@
 package dev.amir.notes.notes.domain.repositories;
 
 import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.domain.events.OverflowPolicy;
+import dev.amir.notes.notes.domain.pagination.PageQuery;
+import dev.amir.notes.notes.domain.queries.NoteQuery;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
+import dev.amir.notes.notes.domain.results.BulkSaveResult;
+import dev.amir.notes.notes.domain.results.CategoryCount;
+import dev.amir.notes.notes.domain.results.NoteFacets;
+import dev.amir.notes.notes.infrastructure.data.events.CategoryChangeEvent;
 import dev.amir.notes.notes.infrastructure.data.events.NoteEvent;
+import org.bson.BsonTimestamp;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * This interface defines the contract for a repository that handles
  * operations related to notes in the application.
@@ -21,18 +34,83 @@ public interface NoteRepository {
     Mono<Note> save(Note note);
 
     /**
-     * Get all notes
+     * Save several new notes in one unordered bulk write
+     *
+     * @param notes The notes to save, which are assigned their IDs and timestamps
+     * @return Mono containing the number of inserted notes and the failure of every other note
+     */
+    Mono<BulkSaveResult> saveAll(List<Note> notes);
+
+    /**
+     * Set the given fields of a note, refresh its update timestamp and increment its version in a single atomic command
+     *
+     * @param id               The ID of the note
+     * @param expectedVersions The versions the note must have to be updated, or null to update any version
+     * @param fields           The new value of every field to change, keyed by field name
+     * @return Mono containing the updated note or empty if not found or at another version
+     */
+    Mono<Note> updateFields(String id, Collection<Long> expectedVersions, Map<String, Object> fields);
+
+    /**
+     * Get a page of all notes ordered by ID
+     *
+     * @param page The keyset page to read
+     * @return Flux of the notes in the page
+     */
+    Flux<Note> getAllNotes(PageQuery page);
+
+    /**
+     * Get the versions of a page of all notes ordered by ID
+     *
+     * @param page The keyset page to read
+     * @return Flux of the notes in the page with only their ID and version
+     */
+    Flux<Note> getAllNoteVersions(PageQuery page);
+
+    /**
+     * Stream every note without loading the collection into memory
+     *
+     * @return Flux of all notes, emitted as they are read from the database cursor
+     */
+    Flux<Note> streamAllNotes();
+
+    /**
+     * Get all notes with real-time updates, or only the updates after the last one a client received
+     * <p>
+     * When the resume token is missing, malformed or no longer in the oplog, every matching note is sent again.
+     * An update is sent when its note matches the filter before or after it.
+     * In delta mode, updates are sent as patches of the changed fields instead of the updated note.
      *
-     * @return Flux of all notes
+     * @param resumeToken The resume token of the last update the client received, or null
+     * @param filter      The filter of the notes to stream
+     * @param deltas      Whether to send updates as patches
+     * @param overflow    What happens when the client falls behind, or null for the configured default
+     * @return Flux of notes that emits existing notes and updates, or the missed and new updates
      */
-    Flux<Note> getAllNotes();
+    Flux<NoteEvent> getAllNotesWithUpdates(String resumeToken, NoteStreamFilter filter, boolean deltas,
+                                           OverflowPolicy overflow);
 
     /**
-     * Get all notes with real-time updates
+     * Watch the changes to note categories in real time
      *
-     * @return Flux of notes that emits existing notes and updates
+     * @return Flux of category changes, emitted as notes are inserted, recategorized or deleted
      */
-    Flux<NoteEvent> getAllNotesWithUpdates();
+    Flux<CategoryChangeEvent> watchCategoryChanges();
+
+    /**
+     * Get the current operation time of the database, to order reads against the cluster time of changes
+     *
+     * @return Mono of the operation time
+     */
+    Mono<BsonTimestamp> getOperationTime();
+
+    /**
+     * Set the notes collection to keep the state of a note before each change, creating it when missing,
+     * so category changes know the previous category of updates and deletes
+     *
+     * @return Mono that completes once the collection keeps pre-images
+     */
+    Mono<Void> keepPreImages();
 
     /**
      * Find a note by its ID
@@ -43,44 +121,89 @@ public interface NoteRepository {
     Mono<Note> findById(String id);
 
     /**
-     * Find notes by category
+     * Find the version of a note by its ID
+     *
+     * @param id The ID of the note
+     * @return Mono containing the note with only its ID and version, or empty if not found
+     */
+    Mono<Note> findVersionById(String id);
+
+    /**
+     * Check whether a note exists
+     *
+     * @param id The ID of the note
+     * @return Mono containing true if the note exists
+     */
+    Mono<Boolean> existsById(String id);
+
+    /**
+     * Find several notes by their IDs in a single query
+     *
+     * @param ids The IDs of the notes
+     * @return Flux of the notes that exist, in no particular order
+     */
+    Flux<Note> findAllById(Collection<String> ids);
+
+    /**
+     * Find a page of notes by category
      *
      * @param category The category to search for
+     * @param page     The keyset page to read
      * @return Flux of notes in the specified category
      */
-    Flux<Note> findByCategory(String category);
+    Flux<Note> findByCategory(String category, PageQuery page);
 
     /**
-     * Find notes marked as important
+     * Find a page of notes marked as important
      *
      * @param important Boolean indicating importance
+     * @param page      The keyset page to read
      * @return Flux of important notes
      */
-    Flux<Note> findByImportant(Boolean important);
+    Flux<Note> findByImportant(Boolean important, PageQuery page);
 
     /**
-     * Find notes by title containing a specific string (case-insensitive)
+     * Find a page of notes by title containing a specific string (case-insensitive)
      *
      * @param title The title text to search for
+     * @param page  The keyset page to read
      * @return Flux of notes with matching titles
      */
-    Flux<Note> findByTitleContainingIgnoreCase(String title);
+    Flux<Note> findByTitleContainingIgnoreCase(String title, PageQuery page);
 
     /**
-     * Find notes by content containing a specific string (case-insensitive)
+     * Find a page of notes by content containing a specific string (case-insensitive)
      *
      * @param content The satisfied text to search for
+     * @param page    The keyset page to read
      * @return Flux of notes with matching content
      */
-    Flux<Note> findByContentContainingIgnoreCase(String content);
+    Flux<Note> findByContentContainingIgnoreCase(String content, PageQuery page);
 
     /**
-     * Custom query to find notes by tags
+     * Find a page of notes by tags
      *
-     * @param tag The tag to search for
+     * @param tag  The tag to search for
+     * @param page The keyset page to read
      * @return Flux of notes containing the specified tag
      */
-    Flux<Note> findByTagsContaining(String tag);
+    Flux<Note> findByTagsContaining(String tag, PageQuery page);
+
+    /**
+     * Find the notes matching all filters of a combined query, in its sort order
+     *
+     * @param query The filters, sort, limit and fields of the query
+     * @return Flux of the matching notes
+     */
+    Flux<Note> findByQuery(NoteQuery query);
+
+    /**
+     * Find the first notes matching a combined query together with facet counts, in a single aggregation
+     *
+     * @param query The filters, sort, limit and fields of the query
+     * @return Mono containing the matching notes, their total, the important count and category and tag buckets
+     */
+    Mono<NoteFacets> findFacetsByQuery(NoteQuery query);
 
     /**
      * Count notes by category
@@ -91,10 +214,26 @@ public interface NoteRepository {
     Mono<Long> countByCategory(String category);
 
     /**
-     * Delete a note
+     * Count the notes of every category in a single aggregation
+     *
+     * @return Flux of the count of every category, ordered by category
+     */
+    Flux<CategoryCount> countAllByCategory();
+
+    /**
+     * Delete a note by ID in a single command
+     *
+     * @param id               The note ID
+     * @param expectedVersions The versions the note must have to be deleted, or null to delete any version
+     * @return Mono containing the number of deleted notes, 0 when the note does not exist or is at another version
+     */
+    Mono<Long> deleteById(String id, Collection<Long> expectedVersions);
+
+    /**
+     * Delete several notes by ID in a single command
      *
-     * @param note The note to delete
-     * @return Mono<Void> indicating completion
+     * @param ids The note IDs
+     * @return Mono containing the number of deleted notes
      */
-    Mono<Void> delete(Note note);
+    Mono<Long> deleteAllById(Collection<String> ids);
 }
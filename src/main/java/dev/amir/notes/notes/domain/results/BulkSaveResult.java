@@ -0,0 +1,36 @@
+package dev.amir.notes.notes.domain.results;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Represents the outcome of saving several notes in one bulk write.
+ * <p>
+ * The write is unordered, so a failing note does not stop the others.
+ * Failures are reported by the position of the note in the saved list.
+ */
+@Getter
+@Builder
+public final class BulkSaveResult {
+    /**
+     * The number of notes that were inserted.
+     */
+    private final int insertedCount;
+
+    /**
+     * The error message of every note that was not inserted, keyed by its position in the saved list.
+     */
+    private final Map<Integer, String> failures;
+
+    /**
+     * Checks whether the note at the given position was not inserted.
+     *
+     * @param index the position of the note in the saved list
+     * @return true if the note failed to be inserted
+     */
+    public boolean isFailed(int index) {
+        return failures.containsKey(index);
+    }
+}
@@ -0,0 +1,29 @@
+package dev.amir.notes.notes.domain.results;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+/**
+ * Represents the number of notes in one category.
+ * <p>
+ * Notes without a category are counted under a null category.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldNameConstants
+public class CategoryCount {
+    /**
+     * The category, or null for notes without a category.
+     */
+    private String category;
+
+    /**
+     * The number of notes in the category.
+     */
+    private long count;
+}
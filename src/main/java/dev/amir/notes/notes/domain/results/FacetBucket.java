@@ -0,0 +1,29 @@
+package dev.amir.notes.notes.domain.results;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+/**
+ * Represents one bucket of a search facet.
+ * <p>
+ * A bucket holds a value of the faceted field and the number of matching notes that have it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldNameConstants
+public class FacetBucket {
+    /**
+     * The value of the faceted field, or null for notes without one.
+     */
+    private String value;
+
+    /**
+     * The number of matching notes with the value.
+     */
+    private long count;
+}
@@ -0,0 +1,47 @@
+package dev.amir.notes.notes.domain.results;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldNameConstants;
+
+import java.util.List;
+
+/**
+ * Represents the result of a faceted search.
+ * <p>
+ * The notes and every facet are computed over the same matching notes in one aggregation.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldNameConstants
+public class NoteFacets {
+    /**
+     * The first matching notes, in sort order.
+     */
+    private List<Note> notes;
+
+    /**
+     * The number of matching notes.
+     */
+    private long total;
+
+    /**
+     * The number of matching notes marked as important.
+     */
+    private long important;
+
+    /**
+     * The most common categories of the matching notes, most common first.
+     */
+    private List<FacetBucket> categories;
+
+    /**
+     * The most common tags of the matching notes, most common first.
+     */
+    private List<FacetBucket> tags;
+}
@@ -0,0 +1,220 @@
+package dev.amir.notes.notes.infrastructure.config;
+
+import dev.amir.notes.notes.domain.events.OverflowPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the Notes API
+ * <p>
+ * This class binds the tuning options under the {@code notes} prefix
+ * of the application configuration.
+ */
+@Data
+@ConfigurationProperties(prefix = "notes")
+public class NotesProperties {
+
+    /**
+     * Options of the streaming export.
+     */
+    private Export export = new Export();
+
+    /**
+     * Options of the batch create endpoint.
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * Options of the SSE note stream.
+     */
+    private Stream stream = new Stream();
+
+    /**
+     * Options of the in-memory statistics.
+     */
+    private Stats stats = new Stats();
+
+    /**
+     * Options of the faceted search.
+     */
+    private Search search = new Search();
+
+    /**
+     * Options of the coalescing of identical concurrent reads.
+     */
+    private Coalescing coalescing = new Coalescing();
+
+    /**
+     * Options of the in-process note cache.
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * Options of the streaming export.
+     */
+    @Data
+    public static class Export {
+        /**
+         * Number of notes fetched from the MongoDB cursor per batch.
+         */
+        private int batchSize = 500;
+    }
+
+    /**
+     * Options of the batch create endpoint.
+     */
+    @Data
+    public static class Batch {
+        /**
+         * Number of notes written to MongoDB per bulk write.
+         */
+        private int chunkSize = 500;
+    }
+
+    /**
+     * Options of the SSE note stream.
+     */
+    @Data
+    public static class Stream {
+        /**
+         * Largest number of events buffered for a subscriber that has not consumed them yet.
+         */
+        private int bufferSize = 1_000;
+
+        /**
+         * What happens to a subscriber whose buffer is full, unless it asks for another policy.
+         */
+        private OverflowPolicy overflow = OverflowPolicy.DISCONNECT;
+
+        /**
+         * Longest time events are gathered into one frame for a client streaming in batches.
+         */
+        private Duration batchWindow = Duration.ofMillis(50);
+
+        /**
+         * Largest number of events sent in one frame for a client streaming in batches.
+         */
+        private int batchSize = 500;
+    }
+
+    /**
+     * Options of the in-memory statistics.
+     */
+    @Data
+    public static class Stats {
+        /**
+         * Delay after which a histogram invalidated by the change stream is recomputed.
+         */
+        private Duration recomputeDelay = Duration.ofSeconds(1);
+
+        /**
+         * Interval of the full recompute that corrects any drift of the histogram.
+         */
+        private Duration reconcileInterval = Duration.ofMinutes(10);
+
+        /**
+         * Whether the notes collection is set to keep pre-images at startup, so the histogram applies
+         * updates and deletes without a recompute. Off by default, as it changes the collection options,
+         * needs the collMod privilege and stores pre-images until the cluster expires them.
+         */
+        private boolean preImages = false;
+    }
+
+    /**
+     * Options of the faceted search.
+     */
+    @Data
+    public static class Search {
+        /**
+         * Largest number of buckets returned per facet.
+         */
+        private int facetSize = 20;
+    }
+
+    /**
+     * Options of the coalescing of identical concurrent reads.
+     */
+    @Data
+    public static class Coalescing {
+        /**
+         * Largest number of distinct reads in flight per operation; further reads bypass coalescing.
+         * Set to 0 to disable coalescing.
+         */
+        private int maxInFlight = 10_000;
+    }
+
+    /**
+     * Options of the in-process note cache.
+     */
+    @Data
+    public static class Cache {
+        /**
+         * Whether notes read by ID are cached; requires MongoDB change streams, so a replica set.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Largest number of cached notes.
+         */
+        private long maximumSize = 10_000;
+
+        /**
+         * Time after which a cached note is read again even if no change was seen.
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+
+        /**
+         * Largest number of IDs remembered as missing.
+         */
+        private long missingMaximumSize = 10_000;
+
+        /**
+         * Time after which an ID remembered as missing is looked up again even if no insert was seen.
+         */
+        private Duration missingTimeToLive = Duration.ofMinutes(1);
+
+        /**
+         * Largest number of cached search and filter results.
+         */
+        private long queryMaximumSize = 1_000;
+
+        /**
+         * Time after which a cached search or filter result is run again even if no write was seen.
+         */
+        private Duration queryTimeToLive = Duration.ofMinutes(5);
+
+        /**
+         * Largest number of distinct categories and tag lists shared by compact cached notes.
+         */
+        private int dictionaryMaximumSize = 100_000;
+
+        /**
+         * Options of the off-heap tier of the note cache.
+         */
+        private OffHeap offHeap = new OffHeap();
+
+        /**
+         * Options of the off-heap tier of the note cache.
+         */
+        @Data
+        public static class OffHeap {
+            /**
+             * Whether cached notes are kept compressed in direct memory instead of on the heap.
+             */
+            private boolean enabled = false;
+
+            /**
+             * Direct memory reserved for cached notes.
+             */
+            private DataSize capacity = DataSize.ofMegabytes(64);
+
+            /**
+             * Size of one slab, the unit in which the oldest notes are evicted together.
+             */
+            private DataSize slabSize = DataSize.ofMegabytes(1);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import dev.amir.notes.notes.domain.entities.Note;
+
+/**
+ * A note held by the note cache: compacted on the heap ({@link CompactNote}), in the off-heap store,
+ * or as is when it can be neither.
+ */
+sealed interface CachedNote permits CachedNote.OnHeap, CachedNote.OffHeap, CompactNote {
+
+    /**
+     * A note kept as is on the heap.
+     */
+    record OnHeap(Note note) implements CachedNote {
+    }
+
+    /**
+     * A note kept compressed in the off-heap store at the given address.
+     */
+    record OffHeap(long address) implements CachedNote {
+    }
+}
@@ -0,0 +1,104 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Compact on-heap form of a cached note
+ * <p>
+ * The ID is held as the 12 raw bytes of its ObjectId, split over a {@code long} and an {@code int}; the times
+ * are epoch milliseconds, which is the precision MongoDB stores; the importance flag and the presence of the
+ * optional fields are packed into one byte; and the category and tags, which repeat across many notes, are
+ * codes into a shared {@link TermDictionary}. Only the title and content keep a string of their own.
+ */
+record CompactNote(
+        long idHigh,
+        int idLow,
+        String title,
+        String content,
+        int category,
+        int tags,
+        long createdAt,
+        long updatedAt,
+        long version,
+        byte flags
+) implements CachedNote {
+    private static final int IMPORTANT_PRESENT = 1;
+    private static final int IMPORTANT = 1 << 1;
+    private static final int CREATED_AT_PRESENT = 1 << 2;
+    private static final int UPDATED_AT_PRESENT = 1 << 3;
+    private static final int VERSION_PRESENT = 1 << 4;
+
+    /**
+     * Compacts a note.
+     *
+     * @param note       the note to compact
+     * @param dictionary the dictionary of categories and tags
+     * @return the compact note, or null when the note cannot be compacted without loss, such as an ID that is
+     * not an ObjectId, a time finer than milliseconds or a full dictionary
+     */
+    static CompactNote of(Note note, TermDictionary dictionary) {
+        if (note.getId() == null || !ObjectId.isValid(note.getId())
+                || !isMillis(note.getCreatedAt()) || !isMillis(note.getUpdatedAt())) {
+            return null;
+        }
+        int category = dictionary.encode(note.getCategory());
+        int tags = dictionary.encode(note.getTags());
+        if (category == TermDictionary.NOT_ENCODED || tags == TermDictionary.NOT_ENCODED) {
+            return null;
+        }
+
+        int flags = 0;
+        if (note.getImportant() != null) {
+            flags |= note.getImportant() ? IMPORTANT_PRESENT | IMPORTANT : IMPORTANT_PRESENT;
+        }
+        flags |= note.getCreatedAt() != null ? CREATED_AT_PRESENT : 0;
+        flags |= note.getUpdatedAt() != null ? UPDATED_AT_PRESENT : 0;
+        flags |= note.getVersion() != null ? VERSION_PRESENT : 0;
+
+        ByteBuffer id = ByteBuffer.wrap(new ObjectId(note.getId()).toByteArray());
+        return new CompactNote(
+                id.getLong(),
+                id.getInt(),
+                note.getTitle(),
+                note.getContent(),
+                category,
+                tags,
+                note.getCreatedAt() != null ? note.getCreatedAt().toEpochMilli() : 0,
+                note.getUpdatedAt() != null ? note.getUpdatedAt().toEpochMilli() : 0,
+                note.getVersion() != null ? note.getVersion() : 0,
+                (byte) flags);
+    }
+
+    /**
+     * Expands the compact note into a new note.
+     *
+     * @param dictionary the dictionary the note was compacted with
+     * @return a new copy of the note
+     */
+    Note toNote(TermDictionary dictionary) {
+        byte[] id = ByteBuffer.allocate(12).putLong(idHigh).putInt(idLow).array();
+        return Note.builder()
+                .id(new ObjectId(id).toHexString())
+                .title(title)
+                .content(content)
+                .category(dictionary.decode(category))
+                .tags(dictionary.decode(tags))
+                .important(has(IMPORTANT_PRESENT) ? has(IMPORTANT) : null)
+                .createdAt(has(CREATED_AT_PRESENT) ? Instant.ofEpochMilli(createdAt) : null)
+                .updatedAt(has(UPDATED_AT_PRESENT) ? Instant.ofEpochMilli(updatedAt) : null)
+                .version(has(VERSION_PRESENT) ? version : null)
+                .build();
+    }
+
+    private boolean has(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private static boolean isMillis(Instant instant) {
+        return instant == null || instant.getNano() % 1_000_000 == 0;
+    }
+}
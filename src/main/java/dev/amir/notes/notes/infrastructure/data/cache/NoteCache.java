@@ -0,0 +1,300 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import dev.amir.notes.notes.infrastructure.data.events.ChangeSignal;
+import dev.amir.notes.notes.infrastructure.data.events.NoteChangeHub;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Optional in-process read-through cache of notes by ID
+ * <p>
+ * The cache admits and evicts entries with Caffeine's W-TinyLFU policy, bounded by size and a time to live,
+ * and reports its hits, misses and evictions under {@code cache.*} with {@code cache=notes}.
+ * Cached notes are held in a compact form ({@link CompactNote}) whose categories and tags are codes into a
+ * shared dictionary. With the off-heap tier enabled, notes are kept deflate-compressed in direct memory slabs
+ * ({@link OffHeapNoteStore}) and the heap only keeps their ID and address.
+ * IDs found missing are remembered in a second, smaller cache ({@code cache=notes-missing}), so repeated reads
+ * of deleted or made-up IDs are answered without a database call until the ID is inserted.
+ * Every node keeps its cache coherent from its shared change stream on the notes collection: a changed
+ * note is evicted as soon as its change arrives, and writes made through this node evict it right away.
+ * While the change stream is down, the cache is bypassed and it is emptied when the stream comes back,
+ * since changes may have been missed in between.
+ */
+@Slf4j
+@Component
+public class NoteCache implements SmartLifecycle {
+    static final String CACHE_NAME = "notes";
+    static final String MISSING_CACHE_NAME = "notes-missing";
+
+    private final NoteChangeHub changeHub;
+    private final NotesProperties.Cache options;
+    private final Cache<String, CachedNote> cache;
+    private final OffHeapNoteStore offHeapStore;
+    private final TermDictionary dictionary;
+    private final Cache<String, Boolean> missing;
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile boolean coherent;
+    private volatile Disposable subscription;
+
+    public NoteCache(NoteChangeHub changeHub, NotesProperties properties, MeterRegistry meterRegistry) {
+        this.changeHub = changeHub;
+        this.options = properties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(options.getMaximumSize())
+                .expireAfterWrite(options.getTimeToLive())
+                .recordStats()
+                .build();
+        NotesProperties.Cache.OffHeap offHeap = options.getOffHeap();
+        this.offHeapStore = offHeap.isEnabled()
+                ? new OffHeapNoteStore(offHeap.getCapacity().toBytes(), (int) offHeap.getSlabSize().toBytes(), meterRegistry)
+                : null;
+        this.dictionary = new TermDictionary(options.getDictionaryMaximumSize());
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(options.getMissingMaximumSize())
+                .expireAfterWrite(options.getMissingTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, missing, MISSING_CACHE_NAME);
+    }
+
+    @Override
+    public void start() {
+        if (!options.isEnabled()) {
+            return;
+        }
+
+        subscription = changeHub.signals()
+                .subscribe(this::apply);
+        log.info("Started the note cache");
+    }
+
+    @Override
+    public void stop() {
+        coherent = false;
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        Disposable current = subscription;
+        return current != null && !current.isDisposed();
+    }
+
+    /**
+     * Get a note from the cache, loading it on a miss
+     * <p>
+     * A loaded note, or the absence of one, is only cached when no note was invalidated while it loaded,
+     * so a read racing a write can never put the old state back after its invalidation.
+     *
+     * @param id     The ID of the note
+     * @param loader The read of the note on a miss
+     * @return Mono containing the note, or empty when it does not exist
+     */
+    public Mono<Note> get(String id, Supplier<Mono<Note>> loader) {
+        if (!coherent) {
+            return Mono.defer(loader);
+        }
+
+        return Mono.defer(() -> {
+            Note cached = resolve(id, cache.getIfPresent(id));
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            if (missing.getIfPresent(id) != null) {
+                return Mono.empty();
+            }
+
+            long invalidationsBefore = invalidations.get();
+            return loader.get().doOnSuccess(note -> {
+                if (!coherent || invalidations.get() != invalidationsBefore) {
+                    return;
+                }
+                if (note != null) {
+                    put(note);
+                } else {
+                    missing.put(id, Boolean.TRUE);
+                }
+            });
+        });
+    }
+
+    /**
+     * Get notes from the cache in the given order, reading the ones it misses with one multi-get
+     * <p>
+     * Notes that no longer exist are left out.
+     *
+     * @param ids    The IDs of the notes, in the order to return them
+     * @param loader The read of the notes that are not cached
+     * @return Flux of the notes that exist, in the order of their IDs
+     */
+    public Flux<Note> getAll(List<String> ids, Function<Collection<String>, Flux<Note>> loader) {
+        return Flux.defer(() -> {
+            Map<String, Note> notes = new HashMap<>();
+            cache.getAllPresent(ids).forEach((id, cached) -> {
+                Note note = resolve(id, cached);
+                if (note != null) {
+                    notes.put(id, note);
+                }
+            });
+            List<String> uncached = ids.stream().filter(id -> !notes.containsKey(id)).toList();
+            if (uncached.isEmpty()) {
+                return Flux.fromIterable(ids).mapNotNull(notes::get);
+            }
+
+            long invalidationsBefore = invalidations.get();
+            return loader.apply(uncached)
+                    .doOnNext(note -> {
+                        notes.put(note.getId(), note);
+                        if (coherent && invalidations.get() == invalidationsBefore) {
+                            put(note);
+                        }
+                    })
+                    .thenMany(Flux.defer(() -> Flux.fromIterable(ids).mapNotNull(notes::get)));
+        });
+    }
+
+    /**
+     * Get the write epoch, which moves on with every invalidation
+     *
+     * @return The current write epoch
+     */
+    public long writeEpoch() {
+        return invalidations.get();
+    }
+
+    /**
+     * Whether the cache is kept current from the change stream and may be used
+     *
+     * @return true when cached data can be served
+     */
+    public boolean isCoherent() {
+        return coherent;
+    }
+
+    /**
+     * Evict a note that was written through this node
+     *
+     * @param id The ID of the note
+     */
+    public void invalidate(String id) {
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+        missing.invalidate(id);
+    }
+
+    /**
+     * Evict notes that were written through this node
+     *
+     * @param ids The IDs of the notes
+     */
+    public void invalidateAll(Collection<String> ids) {
+        invalidations.incrementAndGet();
+        cache.invalidateAll(ids);
+        missing.invalidateAll(ids);
+    }
+
+    private void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+        missing.invalidateAll();
+    }
+
+    /**
+     * Keeps a note in the off-heap store when it is enabled and the note fits in a slab,
+     * otherwise compacted on the heap, or as is when it cannot be compacted.
+     */
+    private void put(Note note) {
+        long address = offHeapStore != null ? offHeapStore.store(note) : OffHeapNoteStore.NOT_STORED;
+        if (address != OffHeapNoteStore.NOT_STORED) {
+            cache.put(note.getId(), new CachedNote.OffHeap(address));
+            return;
+        }
+
+        CompactNote compact = CompactNote.of(note, dictionary);
+        cache.put(note.getId(), compact != null ? compact : new CachedNote.OnHeap(note));
+    }
+
+    /**
+     * Resolves a cached note, dropping its entry when the off-heap store has recycled it.
+     */
+    private Note resolve(String id, CachedNote cached) {
+        if (cached == null) {
+            return null;
+        }
+
+        Note note = switch (cached) {
+            case CompactNote compact -> compact.toNote(dictionary);
+            case CachedNote.OffHeap offHeap -> offHeapStore.read(offHeap.address());
+            case CachedNote.OnHeap onHeap -> onHeap.note();
+        };
+        if (note == null) {
+            cache.asMap().remove(id, cached);
+        }
+        return note;
+    }
+
+    /**
+     * Applies a signal of the change stream. The cache is emptied both when the stream goes down, since it is
+     * bypassed until it comes back, and when it connects, since changes may have been missed in between.
+     */
+    void apply(ChangeSignal signal) {
+        switch (signal.getKind()) {
+            case CONNECTED -> {
+                invalidateAll();
+                coherent = true;
+            }
+            case CHANGE -> {
+                if (signal.getEvent().getRaw() != null) {
+                    invalidate(signal.getEvent().getRaw());
+                }
+            }
+            case DISCONNECTED -> {
+                log.warn("Note cache change stream disconnected, bypassing the cache");
+                coherent = false;
+                invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Evicts the note of a change, or every note when the change does not name one, such as a drop.
+     * An insert clears the ID from the missing notes.
+     */
+    void invalidate(ChangeStreamDocument<Document> raw) {
+        BsonValue id = raw.getDocumentKey() != null ? raw.getDocumentKey().get("_id") : null;
+        if (id == null) {
+            invalidateAll();
+        } else if (id.isObjectId()) {
+            invalidate(id.asObjectId().getValue().toHexString());
+        } else if (id.isString()) {
+            invalidate(id.asString().getValue());
+        } else {
+            invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Off-heap store of deflate-compressed notes
+ * <p>
+ * Notes are encoded with their text as UTF-8, compressed and appended to fixed-size direct {@link ByteBuffer}
+ * slabs, so cached titles and contents neither take heap space nor add to garbage collection. Slabs are
+ * filled one after the other and, once all are in use, the oldest slab is recycled whole: every note in it
+ * is dropped at once, which makes eviction first in, first out and free of fragmentation. A stored note is
+ * identified by a single {@code long} address, which is all the on-heap index has to keep.
+ * <p>
+ * Addresses pack the slab index, the slab generation and the offset of the record. Recycling a slab moves
+ * its generation on, so addresses into the old content stop resolving, and reads validate the generation
+ * with an optimistic stamp so they never return bytes that were overwritten while they were copied.
+ */
+final class OffHeapNoteStore {
+    static final long NOT_STORED = -1L;
+    private static final String METRIC_PREFIX = "notes.cache.off.heap";
+    private static final int HEADER_BYTES = Integer.BYTES;
+    private static final int MAX_SLABS = 1 << 15;
+    private static final int GENERATION_MASK = 0xFFFF;
+
+    private final ByteBuffer[] slabs;
+    private final int[] generations;
+    private final StampedLock[] locks;
+    private final int slabSize;
+    private final Counter recycles;
+    private int currentSlab;
+    private int writeOffset;
+
+    OffHeapNoteStore(long capacityBytes, int slabSize, MeterRegistry meterRegistry) {
+        int slabCount = (int) Math.min(MAX_SLABS, Math.max(1, capacityBytes / slabSize));
+        this.slabSize = slabSize;
+        this.slabs = new ByteBuffer[slabCount];
+        this.generations = new int[slabCount];
+        this.locks = new StampedLock[slabCount];
+        for (int i = 0; i < slabCount; i++) {
+            locks[i] = new StampedLock();
+        }
+        this.recycles = Counter.builder(METRIC_PREFIX + ".slab.recycles")
+                .description("Slabs of the off-heap note store recycled to make room, dropping their notes")
+                .register(meterRegistry);
+        meterRegistry.gauge(METRIC_PREFIX + ".capacity.bytes", this, store -> (double) store.capacityBytes());
+    }
+
+    /**
+     * Compresses a note and appends it to the current slab, recycling the oldest slab when all are full.
+     *
+     * @param note the note to store
+     * @return the address of the stored note, or {@link #NOT_STORED} when it does not fit in a slab
+     */
+    long store(Note note) {
+        byte[] compressed = compress(encode(note));
+        int recordBytes = HEADER_BYTES + compressed.length;
+        if (recordBytes > slabSize) {
+            return NOT_STORED;
+        }
+
+        synchronized (this) {
+            if (slabs[currentSlab] == null) {
+                slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+            } else if (writeOffset + recordBytes > slabSize) {
+                currentSlab = (currentSlab + 1) % slabs.length;
+                writeOffset = 0;
+                if (slabs[currentSlab] == null) {
+                    slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+                } else {
+                    recycle(currentSlab);
+                }
+            }
+
+            ByteBuffer slab = slabs[currentSlab];
+            int offset = writeOffset;
+            slab.putInt(offset, compressed.length);
+            slab.put(offset + HEADER_BYTES, compressed);
+            writeOffset += recordBytes;
+            return address(currentSlab, generations[currentSlab], offset);
+        }
+    }
+
+    /**
+     * Reads the note at an address.
+     *
+     * @param address the address returned when the note was stored
+     * @return a new copy of the note, or null when its slab was recycled since
+     */
+    Note read(long address) {
+        int slabIndex = (int) (address >>> 48);
+        int generation = (int) (address >>> 32) & GENERATION_MASK;
+        int offset = (int) address;
+
+        StampedLock lock = locks[slabIndex];
+        long stamp = lock.tryOptimisticRead();
+        byte[] compressed = null;
+        if (stamp != 0 && (generations[slabIndex] & GENERATION_MASK) == generation) {
+            ByteBuffer slab = slabs[slabIndex];
+            int length = slab.getInt(offset);
+            if (length >= 0 && length <= slabSize - offset - HEADER_BYTES) {
+                compressed = new byte[length];
+                slab.get(offset + HEADER_BYTES, compressed);
+            }
+        }
+        if (compressed == null || !lock.validate(stamp)) {
+            return null;
+        }
+
+        return decode(compressed);
+    }
+
+    long capacityBytes() {
+        return (long) slabs.length * slabSize;
+    }
+
+    /**
+     * Moves the generation of a slab on under its write lock, so optimistic reads of its old content fail.
+     */
+    private void recycle(int slabIndex) {
+        long stamp = locks[slabIndex].writeLock();
+        try {
+            generations[slabIndex]++;
+        } finally {
+            locks[slabIndex].unlockWrite(stamp);
+        }
+        recycles.increment();
+    }
+
+    private static long address(int slabIndex, int generation, int offset) {
+        return ((long) slabIndex << 48) | ((long) (generation & GENERATION_MASK) << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static byte[] encode(Note note) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, note.getId());
+            writeString(out, note.getTitle());
+            writeString(out, note.getContent());
+            writeString(out, note.getCategory());
+            writeString(out, note.getTags());
+            out.writeByte(note.getImportant() == null ? -1 : note.getImportant() ? 1 : 0);
+            writeInstant(out, note.getCreatedAt());
+            writeInstant(out, note.getUpdatedAt());
+            out.writeLong(note.getVersion() != null ? note.getVersion() : Long.MIN_VALUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Note decode(byte[] compressed) {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+            Note note = new Note();
+            note.setId(readString(in));
+            note.setTitle(readString(in));
+            note.setContent(readString(in));
+            note.setCategory(readString(in));
+            note.setTags(readString(in));
+            byte important = in.readByte();
+            note.setImportant(important < 0 ? null : important == 1);
+            note.setCreatedAt(readInstant(in));
+            note.setUpdatedAt(readInstant(in));
+            long version = in.readLong();
+            note.setVersion(version != Long.MIN_VALUE ? version : null);
+            return note;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 16);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeBoolean(instant != null);
+        if (instant != null) {
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+}
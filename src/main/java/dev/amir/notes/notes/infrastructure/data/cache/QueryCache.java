@@ -0,0 +1,92 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Optional cache of the note IDs returned by search and filter queries
+ * <p>
+ * Entries are keyed by the normalized query and by the write epoch of the {@link NoteCache}, which moves on
+ * with every change seen on the notes collection. A write therefore retires every cached result at once, and a
+ * result whose query overlapped a write is stored under the epoch it started in, so it is never served. Retired
+ * entries are no longer read and age out of the cache, which reports under {@code cache.*} with
+ * {@code cache=notes-queries}. Hits are re-hydrated from the note cache, reading the notes it misses
+ * with a single multi-get, so repeated searches no longer scan the collection.
+ */
+@Component
+public class QueryCache {
+    static final String CACHE_NAME = "notes-queries";
+
+    private final NoteCache noteCache;
+    private final Cache<EpochKey, List<String>> cache;
+
+    public QueryCache(NoteCache noteCache, NotesProperties properties, MeterRegistry meterRegistry) {
+        NotesProperties.Cache options = properties.getCache();
+        this.noteCache = noteCache;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(options.getQueryMaximumSize())
+                .expireAfterWrite(options.getQueryTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Builds the cache key of a query
+     *
+     * @param operation The kind of query, such as the searched field
+     * @param criteria  The normalized criteria of the query, which must implement equals and hashCode
+     * @param afterId   The ID the page starts after, or null for the first page
+     * @param limit     The number of notes the query reads
+     * @return The key of the query
+     */
+    public static Object key(String operation, Object criteria, String afterId, int limit) {
+        return new QueryKey(operation, criteria, afterId, limit);
+    }
+
+    /**
+     * Find the notes of a query, from the cached IDs when the query already ran in the current write epoch
+     *
+     * @param key      The key of the query
+     * @param query    The query to run on a miss
+     * @param multiGet The read of the notes of a hit that are not in the note cache
+     * @return Flux of the notes of the query, in query order
+     */
+    public Flux<Note> find(Object key, Supplier<Flux<Note>> query,
+                           Function<Collection<String>, Flux<Note>> multiGet) {
+        return Flux.defer(() -> {
+            if (!noteCache.isCoherent()) {
+                return query.get();
+            }
+
+            EpochKey epochKey = new EpochKey(noteCache.writeEpoch(), key);
+            List<String> ids = cache.getIfPresent(epochKey);
+            if (ids != null) {
+                return noteCache.getAll(ids, multiGet);
+            }
+
+            // A page is bounded by its limit, so it is collected to record its IDs
+            return query.get()
+                    .collectList()
+                    .doOnNext(notes -> cache.put(epochKey, notes.stream().map(Note::getId).toList()))
+                    .flatMapMany(Flux::fromIterable);
+        });
+    }
+
+    private record QueryKey(String operation, Object criteria, String afterId, int limit) {
+    }
+
+    private record EpochKey(long epoch, Object query) {
+    }
+}
@@ -0,0 +1,77 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of repetitive strings, such as categories and tag lists, shared by every compact note
+ * <p>
+ * Each distinct string is kept once and referred to by an {@code int} code. Codes are never reused, so a
+ * code stays valid for as long as a note refers to it. The dictionary only grows up to its maximum size;
+ * once full, strings it does not know cannot be encoded and notes holding them are cached as they are.
+ */
+final class TermDictionary {
+    static final int NULL_CODE = -1;
+    static final int NOT_ENCODED = -2;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final int maximumSize;
+    private volatile String[] terms = new String[INITIAL_CAPACITY];
+    private int size;
+
+    TermDictionary(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Gets the code of a string, adding it to the dictionary when it is new.
+     *
+     * @param term the string to encode, may be null
+     * @return the code of the string, {@link #NULL_CODE} for null, or {@link #NOT_ENCODED} when the dictionary is full
+     */
+    int encode(String term) {
+        if (term == null) {
+            return NULL_CODE;
+        }
+
+        Integer code = codes.get(term);
+        return code != null ? code : add(term);
+    }
+
+    /**
+     * Gets the string of a code returned by {@link #encode(String)}.
+     */
+    String decode(int code) {
+        return code == NULL_CODE ? null : terms[code];
+    }
+
+    int size() {
+        return codes.size();
+    }
+
+    /**
+     * Adds a string under the next code. The string is written to the terms before its code is published
+     * in the map, so any reader that finds the code also sees the string.
+     */
+    private synchronized int add(String term) {
+        Integer existing = codes.get(term);
+        if (existing != null) {
+            return existing;
+        }
+        if (size >= maximumSize) {
+            return NOT_ENCODED;
+        }
+
+        String[] current = terms;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, Math.min(maximumSize, current.length * 2));
+            terms = current;
+        }
+        int code = size++;
+        current[code] = term;
+        codes.put(term, code);
+        return code;
+    }
+}
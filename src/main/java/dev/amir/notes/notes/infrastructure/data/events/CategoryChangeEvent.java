@@ -0,0 +1,43 @@
+package dev.amir.notes.notes.infrastructure.data.events;
+
+import dev.amir.notes.notes.domain.events.EventType;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.bson.BsonTimestamp;
+
+/**
+ * Represents a change to the category of a note, read from the change stream.
+ * <p>
+ * The previous category of an update or delete is only known when MongoDB keeps
+ * pre-images for the collection, so consumers must be prepared for it to be unknown.
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public class CategoryChangeEvent {
+    /**
+     * The kind of change: INSERT, UPDATE or DELETE.
+     */
+    private final EventType eventType;
+
+    /**
+     * The category after the change; not used for deletes.
+     */
+    private final String category;
+
+    /**
+     * The category before the change; not used for inserts.
+     */
+    private final String previousCategory;
+
+    /**
+     * Whether the previous category is known for an update or delete.
+     */
+    private final boolean previousCategoryKnown;
+
+    /**
+     * The cluster time of the change, which orders it against reads; null when no change was read.
+     */
+    private final BsonTimestamp clusterTime;
+}
@@ -0,0 +1,82 @@
+package dev.amir.notes.notes.infrastructure.data.events;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+
+/**
+ * Represents a signal of the shared change stream of the notes collection.
+ * <p>
+ * Besides the changes themselves, subscribers are told when the stream connects and disconnects,
+ * so consumers that must not miss a change, such as caches, know when to resynchronize.
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ChangeSignal {
+    /**
+     * The kind of signal.
+     */
+    private final Kind kind;
+
+    /**
+     * The change; only set for changes.
+     */
+    private final ChangeStreamEvent<Note> event;
+
+    /**
+     * The {@link System#nanoTime()} at which the change was received from MongoDB, to measure its fan-out.
+     */
+    @EqualsAndHashCode.Exclude
+    private final long receivedNanos;
+
+    /**
+     * Creates the signal of a change received now.
+     *
+     * @param event the change
+     * @return the change signal
+     */
+    public static ChangeSignal change(ChangeStreamEvent<Note> event) {
+        return new ChangeSignal(Kind.CHANGE, event, System.nanoTime());
+    }
+
+    /**
+     * Creates the signal that the stream is connected; changes before it may have been missed,
+     * every write after it is delivered.
+     *
+     * @return the connected signal
+     */
+    public static ChangeSignal connected() {
+        return new ChangeSignal(Kind.CONNECTED, null, 0);
+    }
+
+    /**
+     * Creates the signal that the stream is down and will reconnect; changes until then are missed.
+     *
+     * @return the disconnected signal
+     */
+    public static ChangeSignal disconnected() {
+        return new ChangeSignal(Kind.DISCONNECTED, null, 0);
+    }
+
+    /**
+     * Kinds of change stream signals.
+     */
+    public enum Kind {
+        /**
+         * The stream is connected and changes from now on are delivered.
+         */
+        CONNECTED,
+        /**
+         * A change of a note.
+         */
+        CHANGE,
+        /**
+         * The stream failed or closed and is reconnecting.
+         */
+        DISCONNECTED
+    }
+}
@@ -0,0 +1,471 @@
+package dev.amir.notes.notes.infrastructure.data.events;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import dev.amir.notes.notes.domain.entities.EntityName;
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Shared change stream of the notes collection, fanned out to every subscriber of the node
+ * <p>
+ * A single change stream cursor is opened while there is at least one subscriber, however many SSE clients,
+ * caches and read models listen, and it is closed a short grace period after the last one leaves so that
+ * reconnecting clients do not churn the cursor. The stream asks for the full document of updates and for
+ * pre-images when the collection keeps them, which covers what every consumer needs. When the stream fails
+ * or closes, subscribers are sent a {@link ChangeSignal.Kind#DISCONNECTED} signal and the stream reconnects
+ * with exponential backoff, followed by a {@link ChangeSignal.Kind#CONNECTED} signal.
+ * <p>
+ * The shared stream is opened at the operation time the server reports just before, rather than wherever
+ * the cursor happens to start, so the connected signal is sent as soon as that time is known: every write
+ * after it is delivered, however long the cursor then takes to open.
+ * <p>
+ * A subscriber that was disconnected can resume after the last change it received: a private cursor replays
+ * what it missed from the resume token and, once it reaches a change the shared stream has delivered since,
+ * the subscriber is handed over to the shared stream and the private cursor is closed.
+ * <p>
+ * A subscriber can follow only the notes matching a {@link NoteStreamFilter}. On the shared stream, filtered
+ * subscribers are kept in a {@link SubscriberIndex} fed by a single dispatcher, so a change is only matched
+ * against the subscribers that can want it. A private cursor pushes the filter to the server as a
+ * {@code $match} stage instead.
+ * <p>
+ * The number of subscribers is reported as {@code notes.changes.subscribers}, the time from receiving a
+ * change to handing it to each subscriber as {@code notes.changes.fan.out.latency} and the reconnections
+ * as {@code notes.changes.reconnects}.
+ */
+@Slf4j
+@Component
+public class NoteChangeHub {
+    static final String METRIC_PREFIX = "notes.changes";
+    private static final Duration MIN_RETRY_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(1);
+    private static final Duration GRACE_PERIOD = Duration.ofSeconds(5);
+    private static final int MAX_PENDING_CHANGES = 10_000;
+    private static final String RESUME_TOKEN_DATA = "_data";
+    private static final String OPERATION_TIME = "operationTime";
+    private static final Pattern RESUME_TOKEN_PATTERN = Pattern.compile("[0-9A-Fa-f]+");
+    // InvalidResumeToken, ChangeStreamFatalError and ChangeStreamHistoryLost
+    private static final Set<Integer> HISTORY_LOST_CODES = Set.of(260, 280, 286);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final Flux<ChangeSignal> shared;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Timer fanOutLatency;
+    private final Counter reconnects;
+    private final Counter resumes;
+    private final SubscriberIndex index = new SubscriberIndex();
+    private Disposable dispatcher;
+    private volatile boolean connected;
+
+    public NoteChangeHub(ReactiveMongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.fanOutLatency = Timer.builder(METRIC_PREFIX + ".fan.out.latency")
+                .description("Time from receiving a note change to handing it to a subscriber")
+                .register(meterRegistry);
+        this.reconnects = Counter.builder(METRIC_PREFIX + ".reconnects")
+                .description("Reconnections of the shared change stream of the notes collection")
+                .register(meterRegistry);
+        this.resumes = Counter.builder(METRIC_PREFIX + ".resumes")
+                .description("Subscribers that resumed the change stream after the last change they received")
+                .register(meterRegistry);
+        meterRegistry.gauge(METRIC_PREFIX + ".subscribers", subscribers);
+
+        this.shared = Flux.defer(() -> operationTime()
+                        .flatMapMany(startAt -> listen(null, startAt, NoteStreamFilter.NONE, true)
+                                .map(ChangeSignal::change)
+                                .startWith(ChangeSignal.connected()))
+                        .concatWith(Mono.error(() -> new IllegalStateException("The change stream closed"))))
+                .doOnNext(signal -> {
+                    if (signal.getKind() == ChangeSignal.Kind.CONNECTED) {
+                        connected = true;
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.warn("Note change stream failed, reconnecting: {}", error.getMessage());
+                    connected = false;
+                    reconnects.increment();
+                    return Flux.just(ChangeSignal.disconnected()).concatWith(Mono.error(error));
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_RETRY_BACKOFF)
+                        .maxBackoff(MAX_RETRY_BACKOFF)
+                        .transientErrors(true))
+                .doFinally(signal -> connected = false)
+                .publish()
+                .refCount(1, GRACE_PERIOD);
+    }
+
+    /**
+     * Subscribe to the signals of the shared change stream
+     * <p>
+     * A subscriber joining a stream that is already connected is sent a connected signal of its own,
+     * so every subscriber sees one before its first change.
+     *
+     * @return Flux of the connection signals and changes, which never fails
+     */
+    public Flux<ChangeSignal> signals() {
+        return Flux.<ChangeSignal>create(sink -> {
+                    subscribers.incrementAndGet();
+                    ConnectedOnce subscriber = new ConnectedOnce(sink);
+                    Disposable subscription = shared.subscribe(subscriber);
+                    sink.onDispose(() -> {
+                        subscription.dispose();
+                        subscribers.decrementAndGet();
+                    });
+                    // Checked once subscribed, so a connection made meanwhile is not missed
+                    subscriber.joined(connected);
+                })
+                .doOnNext(signal -> {
+                    if (signal.getKind() == ChangeSignal.Kind.CHANGE) {
+                        fanOutLatency.record(System.nanoTime() - signal.getReceivedNanos(), TimeUnit.NANOSECONDS);
+                    }
+                });
+    }
+
+    /**
+     * Subscribe to the signals of the shared change stream for the notes matching a filter
+     * <p>
+     * A change is sent when its note matches the filter before or after the change, so the subscriber also
+     * learns about notes leaving the filter. Connection signals are sent as with {@link #signals()}.
+     *
+     * @param filter the filter of the notes to follow
+     * @return Flux of the connection signals and matching changes, which never fails
+     */
+    public Flux<ChangeSignal> signals(NoteStreamFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return signals();
+        }
+
+        return Flux.<ChangeSignal>create(sink -> {
+                    subscribers.incrementAndGet();
+                    ConnectedOnce signals = new ConnectedOnce(sink);
+                    SubscriberIndex.Subscriber subscriber = new SubscriberIndex.Subscriber(filter, signals);
+                    register(subscriber);
+                    sink.onDispose(() -> {
+                        unregister(subscriber);
+                        subscribers.decrementAndGet();
+                    });
+                    // Checked once registered, so a connection made meanwhile is not missed
+                    signals.joined(connected);
+                })
+                .doOnNext(signal -> {
+                    if (signal.getKind() == ChangeSignal.Kind.CHANGE) {
+                        fanOutLatency.record(System.nanoTime() - signal.getReceivedNanos(), TimeUnit.NANOSECONDS);
+                    }
+                });
+    }
+
+    /**
+     * Subscribe to the changes of the shared change stream, for consumers that can do without
+     * knowing about reconnections
+     *
+     * @return Flux of the changes, which never fails
+     */
+    public Flux<ChangeStreamEvent<Note>> changes() {
+        return signals()
+                .filter(signal -> signal.getKind() == ChangeSignal.Kind.CHANGE)
+                .map(ChangeSignal::getEvent);
+    }
+
+    /**
+     * Subscribe to the changes after the given resume token, then to the shared change stream
+     * <p>
+     * Fails with an error recognized by {@link #isHistoryLost(Throwable)} when the token is no longer in the oplog.
+     * Should the shared stream get too far ahead of the catch-up, the subscriber stays on its private cursor.
+     * Should the shared stream disconnect after the hand-over, the subscriber fails so it resumes again.
+     *
+     * @param resumeToken          the resume token of the last change the subscriber received
+     * @param filter               the filter of the notes to follow
+     * @param fullDocumentOnUpdate whether the missed updates need the full document, which Mongo looks up;
+     *                             it is always looked up for a filter to match it
+     * @return Flux of the missed changes followed by the live ones
+     */
+    public Flux<ChangeStreamEvent<Note>> changesAfter(BsonValue resumeToken, NoteStreamFilter filter,
+                                                      boolean fullDocumentOnUpdate) {
+        return Flux.create(sink -> {
+            resumes.increment();
+            CatchUp catchUp = new CatchUp(sink);
+            Disposable.Composite subscriptions = Disposables.composite();
+            sink.onDispose(subscriptions);
+            catchUp.live = signals(filter).subscribe(catchUp::onLive);
+            subscriptions.add(catchUp.live);
+            catchUp.missed = listen(resumeToken, null, filter, fullDocumentOnUpdate || !filter.isEmpty()).subscribe(catchUp::onMissed, sink::error, catchUp::onMissedComplete);
+            subscriptions.add(catchUp.missed);
+            if (catchUp.handedOver) {
+                catchUp.missed.dispose();
+            }
+        });
+    }
+
+    /**
+     * Get the operation time of the server, from which a change stream is sure to see every later write
+     *
+     * @return Mono of the operation time, which fails when the deployment has none, as a standalone server
+     */
+    public Mono<BsonTimestamp> operationTime() {
+        return mongoTemplate.executeCommand(new Document("ping", 1))
+                .mapNotNull(reply -> reply.get(OPERATION_TIME, BsonTimestamp.class))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                        "MongoDB reported no operation time, change streams need a replica set")));
+    }
+
+    /**
+     * Get the resume token of a change as the string sent to clients
+     *
+     * @param event the change
+     * @return the resume token, or null when the change has none
+     */
+    public static String resumeTokenOf(ChangeStreamEvent<Note> event) {
+        BsonValue token = event.getResumeToken();
+        if (token == null || !token.isDocument() || !token.asDocument().isString(RESUME_TOKEN_DATA)) {
+            return null;
+        }
+        return token.asDocument().getString(RESUME_TOKEN_DATA).getValue();
+    }
+
+    /**
+     * Parse a resume token sent back by a client
+     *
+     * @param resumeToken the resume token of the last change the client received
+     * @return the resume token, or null when it is absent or malformed
+     */
+    public static BsonValue parseResumeToken(String resumeToken) {
+        if (resumeToken == null || !RESUME_TOKEN_PATTERN.matcher(resumeToken).matches()) {
+            return null;
+        }
+        return new BsonDocument(RESUME_TOKEN_DATA, new BsonString(resumeToken));
+    }
+
+    /**
+     * Whether the change stream could not be resumed from a token, usually because it aged out of the oplog
+     *
+     * @param error the error of the change stream
+     * @return true when the subscriber has to start over from a snapshot
+     */
+    public static boolean isHistoryLost(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && HISTORY_LOST_CODES.contains(mongoException.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void register(SubscriberIndex.Subscriber subscriber) {
+        index.add(subscriber);
+        if (dispatcher == null) {
+            dispatcher = shared.subscribe(index::dispatch);
+        }
+    }
+
+    private synchronized void unregister(SubscriberIndex.Subscriber subscriber) {
+        index.remove(subscriber);
+        if (index.isEmpty() && dispatcher != null) {
+            dispatcher.dispose();
+            dispatcher = null;
+        }
+    }
+
+    private Flux<ChangeStreamEvent<Note>> listen(BsonValue resumeToken, BsonTimestamp startAt,
+                                                 NoteStreamFilter filter, boolean fullDocumentOnUpdate) {
+        return mongoTemplate
+                .changeStream(Note.class)
+                .withOptions(options -> {
+                    options.fullDocumentBeforeChangeLookup(FullDocumentBeforeChange.WHEN_AVAILABLE);
+                    if (fullDocumentOnUpdate) {
+                        options.returnFullDocumentOnUpdate();
+                    }
+                    if (resumeToken != null) {
+                        options.resumeAfter(resumeToken);
+                    } else if (startAt != null) {
+                        options.resumeAt(startAt);
+                    }
+                    if (!filter.isEmpty()) {
+                        options.filter(Aggregation.newAggregation(Aggregation.match(matchOf(filter))));
+                    }
+                })
+                .watchCollection(EntityName.NOTES)
+                .listen();
+    }
+
+    /**
+     * Helper method to match the changes of the notes matching a filter before or after the change,
+     * along with the deletes of unknown notes, the same changes the subscriber index lets through
+     */
+    static Criteria matchOf(NoteStreamFilter filter) {
+        return new Criteria().orOperator(
+                NoteStreamFilters.criteriaOf("fullDocument.", filter),
+                NoteStreamFilters.criteriaOf("fullDocumentBeforeChange.", filter),
+                Criteria.where("operationType").is("delete").and("fullDocumentBeforeChange").exists(false));
+    }
+
+    /**
+     * Signals of one subscriber of the shared stream. A subscriber joining a connected stream is sent a
+     * connected signal of its own, and the connected signal of the stream is then dropped if it still
+     * arrives, so the subscriber sees exactly one per connection and before any of its changes.
+     */
+    private static final class ConnectedOnce implements Consumer<ChangeSignal> {
+        private final FluxSink<ChangeSignal> sink;
+        private boolean signaledConnected;
+
+        ConnectedOnce(FluxSink<ChangeSignal> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public synchronized void accept(ChangeSignal signal) {
+            if (signal.getKind() == ChangeSignal.Kind.CONNECTED) {
+                if (signaledConnected) {
+                    return;
+                }
+                signaledConnected = true;
+            } else if (signal.getKind() == ChangeSignal.Kind.DISCONNECTED) {
+                signaledConnected = false;
+            }
+            sink.next(signal);
+        }
+
+        synchronized void joined(boolean connected) {
+            if (connected && !signaledConnected) {
+                signaledConnected = true;
+                sink.next(ChangeSignal.connected());
+            }
+        }
+    }
+
+    /**
+     * Hand-over of a resuming subscriber from its private catch-up cursor to the shared stream.
+     * Changes of the shared stream are held back until the catch-up reaches the first of them, so the
+     * subscriber sees every change exactly once and in order. Both cursors see the changes in oplog order,
+     * which is the order of their resume tokens, so a change of the shared stream at or before the last one
+     * the catch-up sent is dropped, whichever cursor saw it first.
+     */
+    private static final class CatchUp {
+        private final FluxSink<ChangeStreamEvent<Note>> sink;
+        private final ArrayDeque<ChangeStreamEvent<Note>> pending = new ArrayDeque<>();
+        private volatile Disposable live;
+        private volatile Disposable missed;
+        private volatile boolean handedOver;
+        private boolean abandoned;
+        // Resume token of the first change of the shared stream since it connected
+        private String liveFrom;
+        // Resume token of the last change sent by the private cursor
+        private String sentUpTo;
+
+        private CatchUp(FluxSink<ChangeStreamEvent<Note>> sink) {
+            this.sink = sink;
+        }
+
+        synchronized void onLive(ChangeSignal signal) {
+            if (signal.getKind() == ChangeSignal.Kind.DISCONNECTED) {
+                if (handedOver) {
+                    sink.error(new IllegalStateException("The change stream disconnected, resume from the last event"));
+                } else {
+                    // The private cursor still delivers the held back changes; hand over after the reconnection
+                    pending.clear();
+                    liveFrom = null;
+                }
+                return;
+            }
+            if (signal.getKind() != ChangeSignal.Kind.CHANGE) {
+                return;
+            }
+
+            ChangeStreamEvent<Note> event = signal.getEvent();
+            if (handedOver) {
+                sink.next(event);
+                return;
+            }
+            if (abandoned) {
+                return;
+            }
+
+            String token = resumeTokenOf(event);
+            if (liveFrom == null) {
+                liveFrom = token;
+            }
+            // A change the private cursor saw first is not held back
+            if (!isSent(token)) {
+                if (pending.size() >= MAX_PENDING_CHANGES) {
+                    log.debug("Change stream catch-up fell too far behind, staying on the private cursor");
+                    abandoned = true;
+                    pending.clear();
+                    if (live != null) {
+                        live.dispose();
+                    }
+                    return;
+                }
+                pending.add(event);
+            }
+            handOverIfCaughtUp();
+        }
+
+        synchronized void onMissed(ChangeStreamEvent<Note> event) {
+            if (handedOver) {
+                return;
+            }
+
+            sink.next(event);
+            sentUpTo = resumeTokenOf(event);
+            while (!pending.isEmpty() && isSent(resumeTokenOf(pending.peek()))) {
+                pending.poll();
+            }
+            handOverIfCaughtUp();
+        }
+
+        /**
+         * Hands over once the private cursor sent a change at or after the first one of the shared stream,
+         * as every later change is then either held back or still to come from the shared stream.
+         */
+        private void handOverIfCaughtUp() {
+            if (abandoned || !isSent(liveFrom)) {
+                return;
+            }
+
+            pending.forEach(sink::next);
+            pending.clear();
+            handedOver = true;
+            if (missed != null) {
+                missed.dispose();
+            }
+        }
+
+        private boolean isSent(String token) {
+            return token != null && sentUpTo != null && token.compareTo(sentUpTo) <= 0;
+        }
+
+        synchronized void onMissedComplete() {
+            if (!handedOver) {
+                sink.error(new IllegalStateException("The change stream closed"));
+            }
+        }
+    }
+}
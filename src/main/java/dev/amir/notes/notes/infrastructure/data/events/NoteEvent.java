@@ -3,14 +3,38 @@ package dev.amir.notes.notes.infrastructure.data.events;
 import dev.amir.notes.notes.domain.entities.Note;
 import dev.amir.notes.notes.domain.events.AbstractEvent;
 import dev.amir.notes.notes.domain.events.EventType;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an event related to Note entities.
  * <p>
  * This class extends AbstractEvent to provide specific functionality for Note events.
  * It includes constructors for creating events with a body or just an entity ID.
+ * Events read from the change stream carry its resume token, so a stream can be resumed after them.
+ * {@link EventType#PATCH} events carry the changed fields of the note instead of the note.
  */
+@Getter
+@EqualsAndHashCode(callSuper = true)
 public class NoteEvent extends AbstractEvent<Note> {
+    /**
+     * The resume token of the change stream event; null for existing notes.
+     */
+    private final String resumeToken;
+
+    /**
+     * The fields set by a patch and their new values; null for other events.
+     */
+    private final Map<String, Object> updatedFields;
+
+    /**
+     * The fields removed by a patch; null for other events.
+     */
+    private final List<String> removedFields;
+
     /**
      * Constructs a NoteEvent with the specified event type and body.
      *
@@ -19,6 +43,9 @@ public class NoteEvent extends AbstractEvent<Note> {
      */
     public NoteEvent(EventType eventType, Note body) {
         super(eventType, body);
+        this.resumeToken = null;
+        this.updatedFields = null;
+        this.removedFields = null;
     }
 
     /**
@@ -29,6 +56,39 @@ public class NoteEvent extends AbstractEvent<Note> {
      */
     public NoteEvent(EventType eventType, String entityId) {
         super(eventType, entityId);
+        this.resumeToken = null;
+        this.updatedFields = null;
+        this.removedFields = null;
+    }
+
+    /**
+     * Constructs a NoteEvent read from the change stream.
+     *
+     * @param eventType   the type of the event
+     * @param body        the Note entity associated with the event, null for deletes
+     * @param entityId    the ID of the Note entity associated with the event
+     * @param resumeToken the resume token of the change stream event
+     */
+    public NoteEvent(EventType eventType, Note body, String entityId, String resumeToken) {
+        super(eventType, body, entityId);
+        this.resumeToken = resumeToken;
+        this.updatedFields = null;
+        this.removedFields = null;
+    }
+
+    /**
+     * Constructs a patch read from the change stream.
+     *
+     * @param entityId      the ID of the Note entity that was updated
+     * @param resumeToken   the resume token of the change stream event
+     * @param updatedFields the fields set by the update and their new values
+     * @param removedFields the fields removed by the update
+     */
+    public NoteEvent(String entityId, String resumeToken, Map<String, Object> updatedFields, List<String> removedFields) {
+        super(EventType.PATCH, null, entityId);
+        this.resumeToken = resumeToken;
+        this.updatedFields = updatedFields;
+        this.removedFields = removedFields;
     }
 
     @Override
@@ -0,0 +1,77 @@
+package dev.amir.notes.notes.infrastructure.data.events;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles note stream filters into database criteria and in-memory predicates that match the same notes.
+ * <p>
+ * Tags are stored as one comma-separated string, so a tag filter matches one of its trimmed entries,
+ * ignoring case, rather than any text inside the tags.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class NoteStreamFilters {
+    private static final String TAG_SEPARATOR = ",";
+
+    /**
+     * Helper method to build the criteria of a filter on the note fields under the given prefix
+     *
+     * @param prefix the path of the note in the matched documents, such as {@code "fullDocument."}, or empty
+     * @param filter the non-empty filter
+     * @return the criteria matching the notes of the filter
+     */
+    public static Criteria criteriaOf(String prefix, NoteStreamFilter filter) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (filter.getCategory() != null) {
+            criteria.add(Criteria.where(prefix + Note.Fields.category).is(filter.getCategory()));
+        }
+        if (filter.getImportant() != null) {
+            criteria.add(Criteria.where(prefix + Note.Fields.important).is(filter.getImportant()));
+        }
+        if (filter.getTag() != null) {
+            criteria.add(Criteria.where(prefix + Note.Fields.tags).regex(
+                    "(^|" + TAG_SEPARATOR + ")\\s*" + Pattern.quote(filter.getTag().trim()) + "\\s*(" + TAG_SEPARATOR + "|$)",
+                    "i"));
+        }
+        return new Criteria().andOperator(criteria);
+    }
+
+    /**
+     * Helper method to compile a filter into a predicate, once per subscriber
+     */
+    static Predicate<Note> predicateOf(NoteStreamFilter filter) {
+        String category = filter.getCategory();
+        Boolean important = filter.getImportant();
+        String tag = filter.getTag() != null ? normalizeTag(filter.getTag()) : null;
+        return note -> (category == null || category.equals(note.getCategory()))
+                && (important == null || important.equals(note.getImportant()))
+                && (tag == null || tagsOf(note.getTags()).contains(tag));
+    }
+
+    /**
+     * Helper method to split the tags of a note into normalized tags
+     */
+    static List<String> tagsOf(String tags) {
+        if (tags == null) {
+            return List.of();
+        }
+        return Arrays.stream(tags.split(TAG_SEPARATOR))
+                .map(NoteStreamFilters::normalizeTag)
+                .filter(tag -> !tag.isEmpty())
+                .toList();
+    }
+
+    static String normalizeTag(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+}
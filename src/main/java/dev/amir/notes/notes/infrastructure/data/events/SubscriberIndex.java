@@ -0,0 +1,131 @@
+package dev.amir.notes.notes.infrastructure.data.events;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
+import org.bson.Document;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Index of the filtered subscribers of the shared change stream
+ * <p>
+ * Every subscriber is indexed under the most selective field of its filter: its category, else its tag,
+ * else its importance. A change is only offered to the subscribers indexed under the values the note had
+ * before or after the change, and only those run their precompiled predicate, so a subscriber does not pay
+ * for the changes of notes it does not follow. A delete whose note is unknown, which happens when the
+ * collection keeps no pre-images, is offered to every subscriber.
+ */
+final class SubscriberIndex {
+    private final Map<String, Set<Subscriber>> byCategory = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> byTag = new ConcurrentHashMap<>();
+    private final Map<Boolean, Set<Subscriber>> byImportant = new ConcurrentHashMap<>();
+    private final Set<Subscriber> all = ConcurrentHashMap.newKeySet();
+
+    void add(Subscriber subscriber) {
+        all.add(subscriber);
+        bucketOf(subscriber.filter).add(subscriber);
+    }
+
+    void remove(Subscriber subscriber) {
+        all.remove(subscriber);
+        bucketOf(subscriber.filter).remove(subscriber);
+    }
+
+    boolean isEmpty() {
+        return all.isEmpty();
+    }
+
+    /**
+     * Hands a signal to the subscribers it concerns: connection signals to all of them,
+     * a change to the subscribers whose filter the note matches before or after the change.
+     */
+    void dispatch(ChangeSignal signal) {
+        if (signal.getKind() != ChangeSignal.Kind.CHANGE) {
+            all.forEach(subscriber -> subscriber.sink.accept(signal));
+            return;
+        }
+
+        ChangeStreamDocument<Document> raw = signal.getEvent().getRaw();
+        Note after = signal.getEvent().getBody();
+        Note before = raw != null ? beforeOf(raw.getFullDocumentBeforeChange()) : null;
+        if (after == null && before == null) {
+            if (raw != null && raw.getOperationType() == OperationType.DELETE) {
+                all.forEach(subscriber -> subscriber.sink.accept(signal));
+            }
+            return;
+        }
+
+        Set<Subscriber> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        collectCandidates(after, candidates);
+        collectCandidates(before, candidates);
+        for (Subscriber subscriber : candidates) {
+            if ((after != null && subscriber.predicate.test(after))
+                    || (before != null && subscriber.predicate.test(before))) {
+                subscriber.sink.accept(signal);
+            }
+        }
+    }
+
+    private void collectCandidates(Note note, Set<Subscriber> candidates) {
+        if (note == null) {
+            return;
+        }
+        if (note.getCategory() != null) {
+            candidates.addAll(byCategory.getOrDefault(note.getCategory(), Set.of()));
+        }
+        for (String tag : NoteStreamFilters.tagsOf(note.getTags())) {
+            candidates.addAll(byTag.getOrDefault(tag, Set.of()));
+        }
+        if (note.getImportant() != null) {
+            candidates.addAll(byImportant.getOrDefault(note.getImportant(), Set.of()));
+        }
+    }
+
+    private Set<Subscriber> bucketOf(NoteStreamFilter filter) {
+        if (filter.getCategory() != null) {
+            return byCategory.computeIfAbsent(filter.getCategory(), key -> ConcurrentHashMap.newKeySet());
+        }
+        if (filter.getTag() != null) {
+            return byTag.computeIfAbsent(NoteStreamFilters.normalizeTag(filter.getTag()),
+                    key -> ConcurrentHashMap.newKeySet());
+        }
+        return byImportant.computeIfAbsent(filter.getImportant(), key -> ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Reads the filtered fields of the pre-image of a change, when the collection keeps pre-images.
+     */
+    private static Note beforeOf(Document document) {
+        if (document == null) {
+            return null;
+        }
+        return Note.builder()
+                .category(document.getString(Note.Fields.category))
+                .tags(document.getString(Note.Fields.tags))
+                .important(document.getBoolean(Note.Fields.important))
+                .build();
+    }
+
+    /**
+     * A filtered subscriber with its filter compiled once.
+     */
+    static final class Subscriber {
+        private final NoteStreamFilter filter;
+        private final Predicate<Note> predicate;
+        private final Consumer<ChangeSignal> sink;
+
+        Subscriber(NoteStreamFilter filter, Consumer<ChangeSignal> sink) {
+            this.filter = filter;
+            this.predicate = NoteStreamFilters.predicateOf(filter);
+            this.sink = sink;
+        }
+    }
+}
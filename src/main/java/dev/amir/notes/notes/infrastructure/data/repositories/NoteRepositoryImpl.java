@@ -1,21 +1,69 @@
 package dev.amir.notes.notes.infrastructure.data.repositories;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.mongodb.client.result.DeleteResult;
 import dev.amir.notes.notes.domain.entities.EntityName;
 import dev.amir.notes.notes.domain.entities.Note;
 import dev.amir.notes.notes.domain.events.EventType;
+import dev.amir.notes.notes.domain.events.OverflowPolicy;
+import dev.amir.notes.notes.domain.pagination.PageQuery;
+import dev.amir.notes.notes.domain.queries.NoteQuery;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
 import dev.amir.notes.notes.domain.repositories.NoteRepository;
+import dev.amir.notes.notes.domain.results.BulkSaveResult;
+import dev.amir.notes.notes.domain.results.CategoryCount;
+import dev.amir.notes.notes.domain.results.FacetBucket;
+import dev.amir.notes.notes.domain.results.NoteFacets;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import dev.amir.notes.notes.infrastructure.data.cache.NoteCache;
+import dev.amir.notes.notes.infrastructure.data.cache.QueryCache;
+import dev.amir.notes.notes.infrastructure.data.events.CategoryChangeEvent;
+import dev.amir.notes.notes.infrastructure.data.events.NoteChangeHub;
 import dev.amir.notes.notes.infrastructure.data.events.NoteEvent;
-import lombok.RequiredArgsConstructor;
+import dev.amir.notes.notes.infrastructure.data.events.NoteStreamFilters;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
 import org.bson.Document;
-import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.Fields;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Objects;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 /**
  * Implementation of NoteRepository using reactive programming
@@ -25,92 +73,322 @@ import java.util.Objects;
  */
 @Slf4j
 @Repository
-@RequiredArgsConstructor
 public class NoteRepositoryImpl implements NoteRepository {
+    private static final String TAG_SEPARATOR = ",";
+
+    private static final String VERSION_INDEX = "id_version";
+    private static final int NAMESPACE_NOT_FOUND = 26;
+    // The fields of a note sent to clients, the ones a patch may carry
+    private static final Set<String> PATCH_FIELDS = Set.of(Note.Fields.title, Note.Fields.content, Note.Fields.category,
+            Note.Fields.important, Note.Fields.createdAt, Note.Fields.updatedAt, Note.Fields.version, Note.Fields.tags);
+
     private final NoteMongoRepository repository;
     private final ReactiveMongoTemplate mongoTemplate;
+    private final NotesProperties properties;
+    private final NoteCache noteCache;
+    private final QueryCache queryCache;
+    private final NoteChangeHub changeHub;
+    private final MeterRegistry meterRegistry;
+    private final SingleFlight<String, Note> notesById;
+    private final SingleFlight<NoteQuery, List<Note>> notesByQuery;
+    private final SingleFlight<NoteQuery, NoteFacets> facetsByQuery;
+    private final SingleFlight<SearchKey, List<Note>> notesBySearch;
+
+    public NoteRepositoryImpl(NoteMongoRepository repository, ReactiveMongoTemplate mongoTemplate,
+                              NotesProperties properties, NoteCache noteCache, QueryCache queryCache,
+                              NoteChangeHub changeHub, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        this.noteCache = noteCache;
+        this.queryCache = queryCache;
+        this.changeHub = changeHub;
+        this.meterRegistry = meterRegistry;
+
+        int maxInFlight = properties.getCoalescing().getMaxInFlight();
+        this.notesById = new SingleFlight<>("findById", maxInFlight, meterRegistry);
+        this.notesByQuery = new SingleFlight<>("findByQuery", maxInFlight, meterRegistry);
+        this.facetsByQuery = new SingleFlight<>("findFacetsByQuery", maxInFlight, meterRegistry);
+        this.notesBySearch = new SingleFlight<>("search", maxInFlight, meterRegistry);
+    }
 
     @Override
     public Mono<Note> save(Note note) {
-        return repository.save(note);
+        return repository.save(note)
+                .doOnSuccess(saved -> {
+                    if (saved != null) {
+                        noteCache.invalidate(saved.getId());
+                    }
+                });
     }
 
     @Override
-    public Flux<Note> getAllNotes() {
-        return repository.findAll();
+    public Mono<BulkSaveResult> saveAll(List<Note> notes) {
+        // IDs are assigned up front so every note can be reported on, whatever the outcome of the write.
+        // Auditing treats notes with an ID as existing ones, so the creation date is set here as well.
+        Instant now = Instant.now();
+        notes.forEach(note -> {
+            note.setId(new ObjectId().toHexString());
+            note.setCreatedAt(now);
+            note.setUpdatedAt(now);
+            note.setVersion(0L);
+        });
+        List<String> ids = notes.stream().map(Note::getId).toList();
+
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class)
+                .insert(notes)
+                .execute()
+                .doOnTerminate(() -> noteCache.invalidateAll(ids))
+                .map(result -> BulkSaveResult.builder()
+                        .insertedCount(result.getInsertedCount())
+                        .failures(Map.of())
+                        .build())
+                .onErrorResume(error -> {
+                    MongoBulkWriteException bulkError = findBulkWriteException(error);
+                    if (bulkError == null) {
+                        return Mono.error(error);
+                    }
+
+                    log.warn("Bulk insert of {} notes had {} failures", notes.size(), bulkError.getWriteErrors().size());
+                    return Mono.just(BulkSaveResult.builder()
+                            .insertedCount(bulkError.getWriteResult().getInsertedCount())
+                            .failures(bulkError.getWriteErrors().stream()
+                                    .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage)))
+                            .build());
+                });
     }
 
     @Override
-    public Flux<NoteEvent> getAllNotesWithUpdates() {
-        log.info("Streaming notes with real-time updates");
+    public Mono<Note> updateFields(String id, Collection<Long> expectedVersions, Map<String, Object> fields) {
+        Update update = new Update();
+        fields.forEach(update::set);
+        // Auditing does not run for findAndModify, so the update timestamp is part of the $set
+        update.set(Note.Fields.updatedAt, Instant.now());
+        update.inc(Note.Fields.version, 1);
 
-        // Get existing notes first - wrap them as INSERT events
-        Flux<NoteEvent> existingNotes = repository.findAll()
-                .map(note -> new NoteEvent(EventType.INITIAL, note));
+        return mongoTemplate.findAndModify(
+                        byIdAndVersion(id, expectedVersions),
+                        update,
+                        FindAndModifyOptions.options().returnNew(true),
+                        Note.class)
+                .doOnTerminate(() -> noteCache.invalidate(id));
+    }
 
-        // Then stream changes
-        Flux<NoteEvent> changeStream = mongoTemplate
-                .changeStream(Note.class)
-                .withOptions(ChangeStreamOptions.ChangeStreamOptionsBuilder::returnFullDocumentOnUpdate)
-                .watchCollection(EntityName.NOTES)
-                .listen()
-                .mapNotNull(event -> {
-                    if (event.getRaw() == null || event.getRaw().getOperationType() == null) {
-                        return null;
-                    }
+    @Override
+    public Flux<Note> getAllNotes(PageQuery page) {
+        return findPage(new Query(), page);
+    }
 
-                    ChangeStreamDocument<Document> raw = event.getRaw();
-                    return switch (raw.getOperationType()) {
-                        case INSERT -> new NoteEvent(EventType.INSERT, event.getBody());
-                        case UPDATE, REPLACE -> new NoteEvent(EventType.UPDATE, event.getBody());
-                        case DELETE -> {
-                            if (raw.getDocumentKey() == null) {
-                                yield null;
-                            }
-                            String deletedId = raw
-                                    .getDocumentKey()
-                                    .get("_id")
-                                    .asObjectId()
-                                    .getValue()
-                                    .toString();
-                            yield new NoteEvent(EventType.DELETE, deletedId);
-                        }
-                        default -> null;
-                    };
+    @Override
+    public Flux<Note> getAllNoteVersions(PageQuery page) {
+        return seekPage(versionQuery(new Query()), page);
+    }
+
+    @Override
+    public Flux<Note> streamAllNotes() {
+        // The reactive driver only fetches the next batch once the subscriber has demanded it,
+        // so a slow client holds back the cursor instead of growing a buffer.
+        return mongoTemplate.find(new Query().cursorBatchSize(properties.getExport().getBatchSize()), Note.class);
+    }
+
+    @Override
+    public Flux<NoteEvent> getAllNotesWithUpdates(String resumeToken, NoteStreamFilter filter, boolean deltas,
+                                                  OverflowPolicy overflow) {
+        OverflowPolicy policy = overflow != null ? overflow : properties.getStream().getOverflow();
+        BsonValue token = NoteChangeHub.parseResumeToken(resumeToken);
+        if (token == null) {
+            return getAllNotesWithUpdates(filter, deltas, policy);
+        }
+
+        // Patches are read from the update description, so the missed updates need no document lookup
+        return Flux.defer(() -> {
+                    log.info("Resuming note updates after {}", resumeToken);
+                    SubscriberBuffer<NoteEvent> buffer = new SubscriberBuffer<>(properties.getStream().getBufferSize(),
+                            policy, NoteEvent::getEntityId, NoteRepositoryImpl::conflate, meterRegistry);
+                    return buffer.bufferFrom(changeHub.changesAfter(token, filter, !deltas)
+                            .mapNotNull(event -> toNoteEvent(event, deltas)));
                 })
-                .filter(Objects::nonNull);
+                .onErrorResume(NoteChangeHub::isHistoryLost, error -> {
+                    log.info("Cannot resume note updates, streaming all notes again: {}", error.getMessage());
+                    return getAllNotesWithUpdates(filter, deltas, policy);
+                });
+    }
+
+    /**
+     * Streams every note followed by the changes, without losing the writes made while the notes are read.
+     * The change stream is joined, and anchored at an operation time, before the snapshot is read, and its
+     * changes are held back until the snapshot is sent; a held back change is dropped when the snapshot sent
+     * its note at the same or a later version, since the snapshot then already shows it. Should the change
+     * stream disconnect, the stream fails so the client resumes from its last event instead of silently
+     * missing changes.
+     * With a filter, both the snapshot and the changes are limited to the matching notes.
+     * Changes wait in a bounded buffer while the snapshot is sent and the snapshot stops early when the client
+     * is disconnected for falling behind.
+     */
+    private Flux<NoteEvent> getAllNotesWithUpdates(NoteStreamFilter filter, boolean deltas, OverflowPolicy overflow) {
+        return Flux.defer(() -> {
+            log.info("Streaming notes with real-time updates");
+            SnapshotChanges changes = new SnapshotChanges(event -> toNoteEvent(event, deltas),
+                    properties.getStream().getBufferSize(), overflow, meterRegistry);
+            Disposable subscription = changeHub.signals(filter).subscribe(changes::onSignal, null, changes::onComplete);
+
+            // Get existing notes first once the change stream is joined - wrap them as INITIAL events
+            Flux<NoteEvent> existingNotes = changes.connected()
+                    .thenMany(filter.isEmpty()
+                            ? repository.findAll()
+                            : mongoTemplate.find(Query.query(NoteStreamFilters.criteriaOf("", filter)), Note.class))
+                    .doOnNext(changes::onSnapshotRead)
+                    .concatWith(changeHub.operationTime()
+                            .doOnNext(changes::onSnapshotComplete)
+                            .then(Mono.empty()))
+                    .takeUntilOther(changes.overflowed())
+                    .map(note -> new NoteEvent(EventType.INITIAL, note));
+
+            return Flux.concat(existingNotes, changes.afterSnapshot())
+                    .doFinally(signal -> {
+                        subscription.dispose();
+                        changes.close();
+                    });
+        });
+    }
+
+    @Override
+    public Flux<CategoryChangeEvent> watchCategoryChanges() {
+        // A reconnection may have missed changes, so it is reported as a change of an unknown previous category
+        return changeHub
+                .signals()
+                .mapNotNull(signal -> switch (signal.getKind()) {
+                    case CONNECTED -> new CategoryChangeEvent(EventType.UPDATE, null, null, false, null);
+                    case CHANGE -> signal.getEvent().getRaw() != null
+                            && signal.getEvent().getRaw().getOperationType() != null
+                            ? toCategoryChange(signal.getEvent().getRaw())
+                            : null;
+                    case DISCONNECTED -> null;
+                });
+    }
 
-        return Flux.concat(existingNotes, changeStream);
+    @Override
+    public Mono<BsonTimestamp> getOperationTime() {
+        return changeHub.operationTime();
+    }
+
+    @Override
+    public Mono<Void> keepPreImages() {
+        Document collMod = new Document("collMod", EntityName.NOTES)
+                .append("changeStreamPreAndPostImages", new Document("enabled", true));
+
+        return mongoTemplate.executeCommand(collMod)
+                .onErrorResume(NoteRepositoryImpl::isNamespaceNotFound,
+                        error -> mongoTemplate.createCollection(EntityName.NOTES, CollectionOptions.empty()
+                                        .changeStream(CollectionOptions.CollectionChangeStreamOptions.preAndPostImages(true)))
+                                .then(Mono.empty()))
+                .then();
     }
 
     @Override
     public Mono<Note> findById(String id) {
-        return repository.findById(id);
+        // Concurrent reads of the same note share one query and the same Note instance, which callers only read
+        return noteCache.get(id, () -> notesById.execute(id, () -> repository.findById(id)));
+    }
+
+    @Override
+    public Mono<Note> findVersionById(String id) {
+        return mongoTemplate.findOne(versionQuery(Query.query(Criteria.where(Note.Fields.id).is(id))), Note.class);
     }
 
     @Override
-    public Flux<Note> findByCategory(String category) {
-        return repository.findByCategory(category);
+    public Mono<Boolean> existsById(String id) {
+        return repository.existsById(id);
     }
 
     @Override
-    public Flux<Note> findByImportant(Boolean important) {
-        return repository.findByImportant(important);
+    public Flux<Note> findAllById(Collection<String> ids) {
+        return repository.findAllById(ids);
     }
 
     @Override
-    public Flux<Note> findByTitleContainingIgnoreCase(String title) {
-        return repository.findByTitleContainingIgnoreCase(title);
+    public Flux<Note> findByCategory(String category, PageQuery page) {
+        return findPage(Query.query(Criteria.where(Note.Fields.category).is(category)), page);
     }
 
     @Override
-    public Flux<Note> findByContentContainingIgnoreCase(String content) {
-        return repository.findByContentContainingIgnoreCase(content);
+    public Flux<Note> findByImportant(Boolean important, PageQuery page) {
+        return findPage(Query.query(Criteria.where(Note.Fields.important).is(important)), page);
     }
 
     @Override
-    public Flux<Note> findByTagsContaining(String tag) {
-        return repository.findByTagsContaining(tag);
+    public Flux<Note> findByTitleContainingIgnoreCase(String title, PageQuery page) {
+        Object key = QueryCache.key(Note.Fields.title, title.toLowerCase(Locale.ROOT), page.getAfterId(),
+                page.getLimit());
+        return queryCache.find(key,
+                () -> search(key, Query.query(Criteria.where(Note.Fields.title).regex(containingIgnoreCase(title))),
+                        page),
+                this::findAllById);
+    }
+
+    @Override
+    public Flux<Note> findByContentContainingIgnoreCase(String content, PageQuery page) {
+        Object key = QueryCache.key(Note.Fields.content, content.toLowerCase(Locale.ROOT), page.getAfterId(),
+                page.getLimit());
+        return queryCache.find(key,
+                () -> search(key, Query.query(Criteria.where(Note.Fields.content).regex(containingIgnoreCase(content))),
+                        page),
+                this::findAllById);
+    }
+
+    @Override
+    public Flux<Note> findByTagsContaining(String tag, PageQuery page) {
+        // The tag is a regular expression, so it is not lowercased for the key: that could change its meaning
+        Object key = QueryCache.key(Note.Fields.tags, tag, page.getAfterId(), page.getLimit());
+        return queryCache.find(key,
+                () -> search(key, Query.query(Criteria.where(Note.Fields.tags).regex(tag, "i")), page),
+                this::findAllById);
+    }
+
+    @Override
+    public Flux<Note> findByQuery(NoteQuery noteQuery) {
+        Query query = new Query();
+        filtersOf(noteQuery).forEach(query::addCriteria);
+
+        // The limit bounds the result, so it is collected once and replayed to every caller of an equal query
+        return queryCache.find(QueryCache.key("query", normalize(noteQuery), null, noteQuery.getLimit()),
+                () -> notesByQuery.execute(noteQuery, () -> mongoTemplate.find(project(query, noteQuery.getFields())
+                                        .with(sortOf(noteQuery))
+                                        .limit(noteQuery.getLimit()), Note.class)
+                                .collectList())
+                        .flatMapMany(Flux::fromIterable),
+                this::findAllById);
+    }
+
+    @Override
+    public Mono<NoteFacets> findFacetsByQuery(NoteQuery noteQuery) {
+        List<Criteria> filters = filtersOf(noteQuery);
+        Criteria match = filters.isEmpty() ? new Criteria() : new Criteria().andOperator(filters);
+
+        List<AggregationOperation> notes = new ArrayList<>(List.of(
+                Aggregation.sort(sortOf(noteQuery)),
+                Aggregation.limit(noteQuery.getLimit())));
+        if (noteQuery.getFields() != null) {
+            // The ID is kept by $project unless excluded
+            notes.add(Aggregation.project(noteQuery.getFields().toArray(String[]::new))
+                    .andInclude(Note.Fields.version));
+        }
+
+        // Every facet reads the documents of the single $match, so the collection is scanned once
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(match),
+                Aggregation.facet(notes.toArray(AggregationOperation[]::new)).as(NoteFacets.Fields.notes)
+                        .and(Aggregation.count().as(FacetBucket.Fields.count)).as(NoteFacets.Fields.total)
+                        .and(Aggregation.match(Criteria.where(Note.Fields.important).is(true)),
+                                Aggregation.count().as(FacetBucket.Fields.count)).as(NoteFacets.Fields.important)
+                        .and(buckets(Note.Fields.category)).as(NoteFacets.Fields.categories)
+                        .and(tagBuckets()).as(NoteFacets.Fields.tags),
+                Aggregation.project(NoteFacets.Fields.notes, NoteFacets.Fields.categories, NoteFacets.Fields.tags)
+                        .and(firstCount(NoteFacets.Fields.total)).as(NoteFacets.Fields.total)
+                        .and(firstCount(NoteFacets.Fields.important)).as(NoteFacets.Fields.important));
+
+        return facetsByQuery.execute(noteQuery,
+                () -> mongoTemplate.aggregate(aggregation, Note.class, NoteFacets.class).single());
     }
 
     @Override
@@ -119,7 +397,388 @@ public class NoteRepositoryImpl implements NoteRepository {
     }
 
     @Override
-    public Mono<Void> delete(Note note) {
-        return repository.delete(note);
+    public Flux<CategoryCount> countAllByCategory() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group(Note.Fields.category).count().as(CategoryCount.Fields.count),
+                Aggregation.project(CategoryCount.Fields.count).and(CategoryCount.Fields.category).previousOperation(),
+                Aggregation.sort(Sort.Direction.ASC, CategoryCount.Fields.category));
+
+        return mongoTemplate.aggregate(aggregation, Note.class, CategoryCount.class);
+    }
+
+    @Override
+    public Mono<Long> deleteById(String id, Collection<Long> expectedVersions) {
+        return mongoTemplate.remove(byIdAndVersion(id, expectedVersions), Note.class)
+                .map(DeleteResult::getDeletedCount)
+                .doOnTerminate(() -> noteCache.invalidate(id));
+    }
+
+    @Override
+    public Mono<Long> deleteAllById(Collection<String> ids) {
+        return mongoTemplate.remove(Query.query(Criteria.where(Note.Fields.id).in(ids)), Note.class)
+                .map(DeleteResult::getDeletedCount)
+                .doOnTerminate(() -> noteCache.invalidateAll(ids));
+    }
+
+    /**
+     * Restricts the query to the ID and version and reads them from the id_version index.
+     * Without the hint an equality match on the ID is planned as an _id lookup that fetches the document.
+     */
+    private static Query versionQuery(Query query) {
+        query.fields().include(Note.Fields.id, Note.Fields.version);
+        return query.withHint(VERSION_INDEX);
+    }
+
+    /**
+     * Matches a note by ID and, when expected versions are given, only at one of those versions.
+     * The version check is part of the write filter, so a concurrent write makes the command match nothing.
+     */
+    private static Query byIdAndVersion(String id, Collection<Long> expectedVersions) {
+        Query query = Query.query(Criteria.where(Note.Fields.id).is(id));
+        if (expectedVersions != null) {
+            List<Long> versions = new ArrayList<>(expectedVersions);
+            // Notes written before versioning have no version field and are tagged as version 0
+            if (versions.contains(0L)) {
+                versions.add(null);
+            }
+            query.addCriteria(Criteria.where(Note.Fields.version).in(versions));
+        }
+        return query;
+    }
+
+    /**
+     * Reads one keyset page of the given query, projected to the requested fields.
+     * The ID and version are always read, since the cursor and the page ETag are built from them.
+     */
+    private Flux<Note> findPage(Query query, PageQuery page) {
+        return seekPage(project(query, page.getFields()), page);
+    }
+
+    /**
+     * Helper method to find a page of a search, sharing one query between concurrent identical searches.
+     * The page is bounded by its limit, so it is collected once and replayed to every caller; the projection is
+     * part of the key since searches of the same notes with other fields must not share a result.
+     */
+    private Flux<Note> search(Object key, Query query, PageQuery page) {
+        return notesBySearch.execute(new SearchKey(key, page.getFields()), () -> findPage(query, page).collectList())
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * Builds one criteria per filter of the query that is set.
+     */
+    private static List<Criteria> filtersOf(NoteQuery noteQuery) {
+        List<Criteria> filters = new ArrayList<>();
+        if (noteQuery.getCategory() != null) {
+            filters.add(Criteria.where(Note.Fields.category).is(noteQuery.getCategory()));
+        }
+        if (noteQuery.getImportant() != null) {
+            filters.add(Criteria.where(Note.Fields.important).is(noteQuery.getImportant()));
+        }
+        if (noteQuery.getTag() != null) {
+            filters.add(Criteria.where(Note.Fields.tags).regex(containingIgnoreCase(noteQuery.getTag())));
+        }
+        if (noteQuery.getTitle() != null) {
+            filters.add(Criteria.where(Note.Fields.title).regex(containingIgnoreCase(noteQuery.getTitle())));
+        }
+        if (noteQuery.getContent() != null) {
+            filters.add(Criteria.where(Note.Fields.content).regex(containingIgnoreCase(noteQuery.getContent())));
+        }
+        return filters;
+    }
+
+    /**
+     * Drops what does not change which notes match, the case of the text filters and the fields, for caching.
+     */
+    private static NoteQuery normalize(NoteQuery noteQuery) {
+        return noteQuery.toBuilder()
+                .tag(lowerCase(noteQuery.getTag()))
+                .title(lowerCase(noteQuery.getTitle()))
+                .content(lowerCase(noteQuery.getContent()))
+                .fields(null)
+                .build();
+    }
+
+    private static String lowerCase(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static Sort sortOf(NoteQuery noteQuery) {
+        Sort.Direction direction = noteQuery.isDescending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, noteQuery.getSortField(), Note.Fields.id);
+    }
+
+    /**
+     * Counts the notes per value of the given field, keeping the most common values.
+     */
+    private AggregationOperation[] buckets(String field) {
+        return new AggregationOperation[]{
+                Aggregation.group(field).count().as(FacetBucket.Fields.count),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, FacetBucket.Fields.count)
+                        .and(Sort.by(Sort.Direction.ASC, Fields.UNDERSCORE_ID))),
+                Aggregation.limit(properties.getSearch().getFacetSize()),
+                Aggregation.project(FacetBucket.Fields.count).and(FacetBucket.Fields.value).previousOperation()
+        };
+    }
+
+    /**
+     * Counts the notes per tag. Tags are stored as one comma separated string,
+     * so they are split and trimmed before they are counted.
+     */
+    private AggregationOperation[] tagBuckets() {
+        List<AggregationOperation> operations = new ArrayList<>(List.of(
+                Aggregation.project()
+                        .and(StringOperators.valueOf(Note.Fields.tags).split(TAG_SEPARATOR)).as(Note.Fields.tags),
+                Aggregation.unwind(Note.Fields.tags),
+                Aggregation.project().and(StringOperators.valueOf(Note.Fields.tags).trim()).as(Note.Fields.tags),
+                Aggregation.match(Criteria.where(Note.Fields.tags).ne(""))));
+        operations.addAll(List.of(buckets(Note.Fields.tags)));
+        return operations.toArray(AggregationOperation[]::new);
+    }
+
+    /**
+     * Reads the count of a count facet, which is an empty array when no note matched.
+     */
+    private static AggregationExpression firstCount(String facet) {
+        return ConditionalOperators.ifNull(ArrayOperators.ArrayElemAt.arrayOf(facet + "." + FacetBucket.Fields.count)
+                .elementAt(0)).then(0L);
+    }
+
+    /**
+     * Restricts the query to the given fields plus the ID and version, or leaves it alone when fields is null.
+     */
+    private static Query project(Query query, Set<String> fields) {
+        if (fields != null) {
+            query.fields()
+                    .include(fields.toArray(String[]::new))
+                    .include(Note.Fields.id, Note.Fields.version);
+        }
+        return query;
+    }
+
+    /**
+     * Reads one keyset page of the given query.
+     * <p>
+     * The page seeks past the last ID of the previous page and walks the ID index in order,
+     * so the database never skips over earlier pages.
+     */
+    private Flux<Note> seekPage(Query query, PageQuery page) {
+        if (page.getAfterId() != null) {
+            query.addCriteria(Criteria.where(Note.Fields.id).gt(page.getAfterId()));
+        }
+
+        return mongoTemplate.find(query
+                .with(Sort.by(Sort.Direction.ASC, Note.Fields.id))
+                .limit(page.getLimit()), Note.class);
+    }
+
+    /**
+     * Maps a change to the note event sent to clients, with its resume token, or null when it is not a note change.
+     */
+    static NoteEvent toNoteEvent(ChangeStreamEvent<Note> event) {
+        if (event.getRaw() == null || event.getRaw().getOperationType() == null) {
+            return null;
+        }
+
+        ChangeStreamDocument<Document> raw = event.getRaw();
+        String resumeToken = NoteChangeHub.resumeTokenOf(event);
+        Note body = event.getBody();
+        return switch (raw.getOperationType()) {
+            case INSERT -> new NoteEvent(EventType.INSERT, body, body != null ? body.getId() : null, resumeToken);
+            case UPDATE, REPLACE -> new NoteEvent(EventType.UPDATE, body, body != null ? body.getId() : null,
+                    resumeToken);
+            case DELETE -> {
+                String deletedId = idOf(raw);
+                yield deletedId != null ? new NoteEvent(EventType.DELETE, null, deletedId, resumeToken) : null;
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Maps a change to a note event, sending an update as a patch of the fields it changed in delta mode.
+     * Replacements carry no update description, so they are still sent whole.
+     */
+    static NoteEvent toNoteEvent(ChangeStreamEvent<Note> event, boolean deltas) {
+        ChangeStreamDocument<Document> raw = event.getRaw();
+        if (!deltas || raw == null || raw.getOperationType() != OperationType.UPDATE
+                || raw.getUpdateDescription() == null) {
+            return toNoteEvent(event);
+        }
+
+        String id = idOf(raw);
+        if (id == null) {
+            return null;
+        }
+        UpdateDescription description = raw.getUpdateDescription();
+        Map<String, Object> updatedFields = new LinkedHashMap<>();
+        if (description.getUpdatedFields() != null) {
+            description.getUpdatedFields().forEach((field, value) -> {
+                if (PATCH_FIELDS.contains(field)) {
+                    updatedFields.put(field, valueOf(value));
+                }
+            });
+        }
+        List<String> removedFields = description.getRemovedFields() != null
+                ? description.getRemovedFields().stream().filter(PATCH_FIELDS::contains).toList()
+                : List.of();
+        return new NoteEvent(id, NoteChangeHub.resumeTokenOf(event), updatedFields, removedFields);
+    }
+
+    /**
+     * Merges two events of the same note for a conflating subscriber into the one event it receives instead.
+     * A full event replaces what came before, a patch is merged into an earlier patch or applied to the note
+     * of an earlier full event, and the merge carries the resume token of the newer event.
+     */
+    static NoteEvent conflate(NoteEvent older, NoteEvent newer) {
+        if (newer.getEventType() != EventType.PATCH) {
+            return newer;
+        }
+        if (older.getEventType() == EventType.PATCH) {
+            Map<String, Object> updatedFields = new LinkedHashMap<>(older.getUpdatedFields());
+            List<String> removedFields = new ArrayList<>(older.getRemovedFields());
+            newer.getUpdatedFields().forEach((field, value) -> {
+                updatedFields.put(field, value);
+                removedFields.remove(field);
+            });
+            newer.getRemovedFields().forEach(field -> {
+                updatedFields.remove(field);
+                if (!removedFields.contains(field)) {
+                    removedFields.add(field);
+                }
+            });
+            return new NoteEvent(newer.getEntityId(), newer.getResumeToken(), updatedFields, removedFields);
+        }
+        if (older.getBody() == null) {
+            return newer;
+        }
+
+        Note note = Note.builder()
+                .id(older.getBody().getId())
+                .title(older.getBody().getTitle())
+                .content(older.getBody().getContent())
+                .category(older.getBody().getCategory())
+                .important(older.getBody().getImportant())
+                .createdAt(older.getBody().getCreatedAt())
+                .updatedAt(older.getBody().getUpdatedAt())
+                .version(older.getBody().getVersion())
+                .tags(older.getBody().getTags())
+                .build();
+        newer.getUpdatedFields().forEach((field, value) -> setField(note, field, value));
+        newer.getRemovedFields().forEach(field -> setField(note, field, null));
+        return new NoteEvent(older.getEventType(), note, older.getEntityId(), newer.getResumeToken());
+    }
+
+    private static void setField(Note note, String field, Object value) {
+        switch (field) {
+            case Note.Fields.title -> note.setTitle(value instanceof String title ? title : null);
+            case Note.Fields.content -> note.setContent(value instanceof String content ? content : null);
+            case Note.Fields.category -> note.setCategory(value instanceof String category ? category : null);
+            case Note.Fields.important -> note.setImportant(value instanceof Boolean important ? important : null);
+            case Note.Fields.createdAt -> note.setCreatedAt(value instanceof Instant createdAt ? createdAt : null);
+            case Note.Fields.updatedAt -> note.setUpdatedAt(value instanceof Instant updatedAt ? updatedAt : null);
+            case Note.Fields.version -> note.setVersion(value instanceof Long version ? version : null);
+            case Note.Fields.tags -> note.setTags(value instanceof String tags ? tags : null);
+            default -> {
+            }
+        }
+    }
+
+    private static String idOf(ChangeStreamDocument<Document> raw) {
+        BsonValue id = raw.getDocumentKey() != null ? raw.getDocumentKey().get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.isString() ? id.asString().getValue() : null;
+    }
+
+    /**
+     * Converts a value of an update description to the type of the note field it sets.
+     */
+    private static Object valueOf(BsonValue value) {
+        return switch (value.getBsonType()) {
+            case STRING -> value.asString().getValue();
+            case BOOLEAN -> value.asBoolean().getValue();
+            case INT32 -> (long) value.asInt32().getValue();
+            case INT64 -> value.asInt64().getValue();
+            case DATE_TIME -> Instant.ofEpochMilli(value.asDateTime().getValue());
+            case NULL -> null;
+            default -> value.toString();
+        };
+    }
+
+    /**
+     * Maps a raw change to the category change it makes, or null when the category is untouched.
+     * Updates only report the fields they changed, so most edits are skipped without any lookup.
+     */
+    private static CategoryChangeEvent toCategoryChange(ChangeStreamDocument<Document> raw) {
+        Document before = raw.getFullDocumentBeforeChange();
+        String previousCategory = before != null ? before.getString(Note.Fields.category) : null;
+        BsonTimestamp clusterTime = raw.getClusterTime();
+
+        return switch (raw.getOperationType()) {
+            case INSERT -> new CategoryChangeEvent(EventType.INSERT, categoryOf(raw.getFullDocument()), null, true,
+                    clusterTime);
+            case REPLACE -> new CategoryChangeEvent(EventType.UPDATE, categoryOf(raw.getFullDocument()),
+                    previousCategory, before != null, clusterTime);
+            case UPDATE -> {
+                UpdateDescription description = raw.getUpdateDescription();
+                if (description == null) {
+                    yield null;
+                }
+
+                BsonDocument updatedFields = description.getUpdatedFields();
+                List<String> removedFields = description.getRemovedFields();
+                if (updatedFields != null && updatedFields.containsKey(Note.Fields.category)) {
+                    BsonValue category = updatedFields.get(Note.Fields.category);
+                    yield new CategoryChangeEvent(EventType.UPDATE,
+                            category.isString() ? category.asString().getValue() : null,
+                            previousCategory, before != null, clusterTime);
+                }
+                if (removedFields != null && removedFields.contains(Note.Fields.category)) {
+                    yield new CategoryChangeEvent(EventType.UPDATE, null, previousCategory, before != null,
+                            clusterTime);
+                }
+                yield null;
+            }
+            case DELETE -> new CategoryChangeEvent(EventType.DELETE, null, previousCategory, before != null,
+                    clusterTime);
+            default -> null;
+        };
+    }
+
+    /**
+     * Whether a command failed because the collection does not exist, which the template may have translated.
+     */
+    private static boolean isNamespaceNotFound(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && mongoException.getCode() == NAMESPACE_NOT_FOUND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String categoryOf(Document document) {
+        return document != null ? document.getString(Note.Fields.category) : null;
+    }
+
+    /**
+     * Finds the driver bulk write exception, which the template may have translated into a Spring exception.
+     */
+    private static MongoBulkWriteException findBulkWriteException(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkWriteException) {
+                return bulkWriteException;
+            }
+        }
+        return null;
+    }
+
+    private static Pattern containingIgnoreCase(String text) {
+        return Pattern.compile(Pattern.quote(text), Pattern.CASE_INSENSITIVE);
+    }
+
+    private record SearchKey(Object query, Set<String> fields) {
     }
 }
@@ -0,0 +1,84 @@
+package dev.amir.notes.notes.infrastructure.data.repositories;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent reads into a single database call
+ * <p>
+ * The first read of a key subscribes to the database and every read of the same key that arrives
+ * while it is in flight shares its result. The key is released as soon as the read terminates, so a
+ * later read always goes to the database again and never sees a result older than the in-flight window.
+ * When the number of keys in flight reaches the limit, further reads bypass coalescing instead of waiting.
+ * <p>
+ * Every read is counted under {@code notes.reads.coalescing} with an {@code outcome} tag of
+ * {@code leader}, {@code coalesced} or {@code bypassed}; the coalescing ratio is the share of coalesced reads.
+ *
+ * @param <K> the type of the read key, which must implement equals and hashCode
+ * @param <V> the type of the read result
+ */
+final class SingleFlight<K, V> {
+    static final String METRIC_NAME = "notes.reads.coalescing";
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final int maxInFlight;
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter bypassed;
+
+    SingleFlight(String operation, int maxInFlight, MeterRegistry meterRegistry) {
+        this.maxInFlight = maxInFlight;
+        this.leaders = counter(meterRegistry, operation, "leader");
+        this.coalesced = counter(meterRegistry, operation, "coalesced");
+        this.bypassed = counter(meterRegistry, operation, "bypassed");
+        meterRegistry.gaugeMapSize(METRIC_NAME + ".in.flight", Tags.of("operation", operation), inFlight);
+    }
+
+    /**
+     * Runs the read of the given key, or joins the read of the same key that is already in flight.
+     *
+     * @param key    the key identifying identical reads
+     * @param loader the read to run when none is in flight
+     * @return Mono of the shared result
+     */
+    Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            Mono<V> current = inFlight.get(key);
+            if (current != null) {
+                coalesced.increment();
+                return current;
+            }
+            if (inFlight.size() >= maxInFlight) {
+                bypassed.increment();
+                return loader.get();
+            }
+
+            AtomicReference<Mono<V>> created = new AtomicReference<>();
+            Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                Mono<V> read = Mono.defer(loader)
+                        .doFinally(signal -> inFlight.remove(k, created.get()))
+                        .share();
+                created.set(read);
+                return read;
+            });
+
+            (shared == created.get() ? leaders : coalesced).increment();
+            return shared;
+        });
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String operation, String outcome) {
+        return Counter.builder(METRIC_NAME)
+                .description("Reads by whether they ran, joined an identical read in flight or bypassed coalescing")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,145 @@
+package dev.amir.notes.notes.infrastructure.data.repositories;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.domain.events.OverflowPolicy;
+import dev.amir.notes.notes.infrastructure.data.events.ChangeSignal;
+import dev.amir.notes.notes.infrastructure.data.events.NoteEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Changes of the notes collection held back while a snapshot of it is sent
+ * <p>
+ * The change stream is anchored at an operation time before it signals that it is connected, so once the
+ * snapshot is read after that signal, every write it does not show is a change that follows. A write may
+ * also be both in the snapshot and in the changes, so every change carries the version of its note and is
+ * dropped when the snapshot sent that note at the same or a later version, whenever the server read it.
+ * The versions of the sent notes are kept until the changes pass the operation time taken once the snapshot
+ * is read, after which no change can be older than the snapshot. Changes wait in a bounded
+ * {@link SubscriberBuffer}, which conflates them with the version and cluster time of the latest change.
+ */
+final class SnapshotChanges {
+    private final Function<ChangeStreamEvent<Note>, NoteEvent> toEvent;
+    private final Sinks.One<Void> connected = Sinks.one();
+    private final SubscriberBuffer<Versioned> changes;
+    private final Map<String, Long> snapshotVersions = new HashMap<>();
+    private BsonTimestamp snapshotEnd;
+    private boolean snapshotPassed;
+
+    SnapshotChanges(Function<ChangeStreamEvent<Note>, NoteEvent> toEvent, int bufferSize, OverflowPolicy overflow,
+                    MeterRegistry meterRegistry) {
+        this.toEvent = toEvent;
+        this.changes = new SubscriberBuffer<>(bufferSize, overflow, change -> change.event().getEntityId(),
+                (older, newer) -> new Versioned(NoteRepositoryImpl.conflate(older.event(), newer.event()),
+                        newer.version(), newer.clusterTime()),
+                meterRegistry);
+    }
+
+    /**
+     * Completes once the change stream is connected, so the snapshot can be read without missing writes.
+     */
+    Mono<Void> connected() {
+        return connected.asMono();
+    }
+
+    /**
+     * Completes when the subscriber fell too far behind, so the snapshot can stop early.
+     */
+    Mono<Void> overflowed() {
+        return changes.overflowed();
+    }
+
+    /**
+     * Gets the changes that the snapshot does not already show, followed by the live changes.
+     */
+    Flux<NoteEvent> afterSnapshot() {
+        return changes.asFlux()
+                .filter(this::isNotInSnapshot)
+                .map(Versioned::event);
+    }
+
+    synchronized void onSignal(ChangeSignal signal) {
+        switch (signal.getKind()) {
+            case CONNECTED -> connected.tryEmitEmpty();
+            case CHANGE -> {
+                NoteEvent event = toEvent.apply(signal.getEvent());
+                if (event != null) {
+                    changes.offer(new Versioned(event, versionOf(signal.getEvent()),
+                            signal.getEvent().getBsonTimestamp()));
+                }
+            }
+            case DISCONNECTED -> {
+                IllegalStateException error = new IllegalStateException(
+                        "The change stream disconnected, resume from the last event to catch up");
+                connected.tryEmitError(error);
+                changes.error(error);
+            }
+        }
+    }
+
+    synchronized void onComplete() {
+        connected.tryEmitEmpty();
+        changes.complete();
+    }
+
+    void close() {
+        changes.close();
+    }
+
+    synchronized void onSnapshotRead(Note note) {
+        if (note.getVersion() != null) {
+            snapshotVersions.put(note.getId(), note.getVersion());
+        }
+    }
+
+    /**
+     * Records the operation time after the snapshot was read, past which changes are all newer than it.
+     */
+    synchronized void onSnapshotComplete(BsonTimestamp operationTime) {
+        snapshotEnd = operationTime;
+    }
+
+    private synchronized boolean isNotInSnapshot(Versioned change) {
+        if (snapshotPassed) {
+            return true;
+        }
+        if (snapshotEnd != null && change.clusterTime() != null && change.clusterTime().compareTo(snapshotEnd) > 0) {
+            snapshotPassed = true;
+            snapshotVersions.clear();
+            return true;
+        }
+
+        Long snapshotVersion = snapshotVersions.get(change.event().getEntityId());
+        return snapshotVersion == null || change.version() == null || change.version() > snapshotVersion;
+    }
+
+    /**
+     * Helper method to get the version of the note after a change, from the note or else the updated fields;
+     * null for deletes, which are always sent.
+     */
+    private static Long versionOf(ChangeStreamEvent<Note> event) {
+        if (event.getBody() != null) {
+            return event.getBody().getVersion();
+        }
+        if (event.getRaw() == null || event.getRaw().getUpdateDescription() == null) {
+            return null;
+        }
+
+        BsonDocument updatedFields = event.getRaw().getUpdateDescription().getUpdatedFields();
+        BsonValue version = updatedFields != null ? updatedFields.get(Note.Fields.version) : null;
+        return version != null && version.isNumber() ? version.asNumber().longValue() : null;
+    }
+
+    private record Versioned(NoteEvent event, Long version, BsonTimestamp clusterTime) {
+    }
+}
@@ -0,0 +1,217 @@
+package dev.amir.notes.notes.infrastructure.data.repositories;
+
+import dev.amir.notes.notes.domain.events.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Bounded buffer of the events of one stream subscriber
+ * <p>
+ * Events are offered as they arrive, whatever the demand of the subscriber, so a slow subscriber never holds
+ * back the shared change stream, and they are handed to the subscriber only as fast as it requests them.
+ * Once the buffer is full, its {@link OverflowPolicy} drops the oldest event, ends the stream so the subscriber
+ * resumes from its last event, or conflates the events of the same entity, so the memory of a subscriber stays
+ * bounded whatever the write rate.
+ * <p>
+ * The events waiting for a subscriber whenever one arrives are recorded in {@code notes.stream.subscriber.lag}
+ * and the events a subscriber did not receive, once it leaves, in {@code notes.stream.subscriber.dropped}.
+ * Both are distributions over all subscribers tagged only with the overflow policy, so the number of meters
+ * does not grow with the connections. Subscribers disconnected for falling behind are counted as
+ * {@code notes.stream.disconnects}.
+ *
+ * @param <T> the type of the events
+ */
+final class SubscriberBuffer<T> {
+    static final String METRIC_PREFIX = "notes.stream";
+
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Function<T, String> keyOf;
+    private final BinaryOperator<T> merge;
+    private final DistributionSummary lag;
+    private final DistributionSummary droppedPerSubscriber;
+    private final Counter disconnects;
+    private final Map<Object, T> pending = new LinkedHashMap<>();
+    private final Sinks.Empty<Void> overflowed = Sinks.empty();
+    private FluxSink<T> sink;
+    private Throwable error;
+    private long dropped;
+    private boolean done;
+    private boolean terminated;
+    private boolean draining;
+    private boolean closed;
+
+    /**
+     * Creates the buffer of one subscriber.
+     *
+     * @param capacity      the largest number of events waiting for the subscriber
+     * @param policy        what to do with a new event once the buffer is full
+     * @param keyOf         the entity of an event, for conflation
+     * @param merge         the merge of an older event of an entity with a newer one, for conflation
+     * @param meterRegistry the registry of the metrics shared by the subscribers
+     */
+    SubscriberBuffer(int capacity, OverflowPolicy policy, Function<T, String> keyOf, BinaryOperator<T> merge,
+                     MeterRegistry meterRegistry) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.keyOf = keyOf;
+        this.merge = merge;
+        String overflow = policy.name().toLowerCase(Locale.ROOT);
+        this.lag = DistributionSummary.builder(METRIC_PREFIX + ".subscriber.lag")
+                .description("Events waiting for a stream subscriber to consume them when another one arrives")
+                .tag("overflow", overflow)
+                .register(meterRegistry);
+        this.droppedPerSubscriber = DistributionSummary.builder(METRIC_PREFIX + ".subscriber.dropped")
+                .description("Events a stream subscriber did not receive, dropped or conflated into a later one")
+                .tag("overflow", overflow)
+                .register(meterRegistry);
+        this.disconnects = Counter.builder(METRIC_PREFIX + ".disconnects")
+                .description("Stream subscribers disconnected because they fell too far behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffers an event, applying the overflow policy when the buffer is full.
+     *
+     * @param event the event
+     */
+    synchronized void offer(T event) {
+        if (done) {
+            return;
+        }
+
+        String entity = policy == OverflowPolicy.CONFLATE ? keyOf.apply(event) : null;
+        Object key = entity != null ? entity : new Object();
+        T older = pending.remove(key);
+        if (older != null) {
+            dropped++;
+            event = merge.apply(older, event);
+        } else if (pending.size() >= capacity) {
+            if (policy != OverflowPolicy.DROP_OLDEST) {
+                disconnect();
+                return;
+            }
+            Iterator<T> oldest = pending.values().iterator();
+            oldest.next();
+            oldest.remove();
+            dropped++;
+        }
+        pending.put(key, event);
+        lag.record(pending.size());
+        drain();
+    }
+
+    /**
+     * Ends the stream with an error once the buffered events are consumed.
+     *
+     * @param failure the error
+     */
+    synchronized void error(Throwable failure) {
+        if (!done) {
+            done = true;
+            error = failure;
+            drain();
+        }
+    }
+
+    /**
+     * Completes the stream once the buffered events are consumed.
+     */
+    synchronized void complete() {
+        if (!done) {
+            done = true;
+            drain();
+        }
+    }
+
+    /**
+     * Gets the events of the buffer for its one subscriber.
+     */
+    Flux<T> asFlux() {
+        return Flux.create(subscriber -> {
+            synchronized (this) {
+                sink = subscriber;
+            }
+            subscriber.onRequest(requested -> drain());
+            subscriber.onDispose(this::close);
+        });
+    }
+
+    /**
+     * Gets the events pushed by a source that ignores demand, such as a change stream, through the buffer.
+     */
+    Flux<T> bufferFrom(Flux<T> source) {
+        return Flux.defer(() -> {
+            Disposable upstream = source.subscribe(this::offer, this::error, this::complete);
+            return asFlux().doFinally(signal -> upstream.dispose());
+        });
+    }
+
+    /**
+     * Completes when the subscriber is disconnected for falling behind, even before it subscribes.
+     */
+    Mono<Void> overflowed() {
+        return overflowed.asMono();
+    }
+
+    /**
+     * Drops the buffered events and records the events the subscriber did not receive.
+     */
+    synchronized void close() {
+        done = true;
+        pending.clear();
+        if (!closed) {
+            closed = true;
+            droppedPerSubscriber.record(dropped);
+        }
+    }
+
+    private void disconnect() {
+        disconnects.increment();
+        pending.clear();
+        done = true;
+        error = new IllegalStateException("The subscriber fell too far behind, resume from the last event");
+        overflowed.tryEmitEmpty();
+        drain();
+    }
+
+    private synchronized void drain() {
+        if (sink == null || draining || terminated) {
+            return;
+        }
+
+        draining = true;
+        try {
+            Iterator<T> events = pending.values().iterator();
+            while (events.hasNext() && sink.requestedFromDownstream() > 0) {
+                T event = events.next();
+                events.remove();
+                sink.next(event);
+                events = pending.values().iterator();
+            }
+            if (done && pending.isEmpty()) {
+                terminated = true;
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.complete();
+                }
+            }
+        } finally {
+            draining = false;
+        }
+    }
+}
@@ -1,8 +1,22 @@
 package dev.amir.notes.notes.presentation.controllers.v1;
 
 import dev.amir.notes.notes.application.events.NoteResponseEvent;
+import dev.amir.notes.notes.application.mappers.ETagMapper;
+import dev.amir.notes.notes.application.mappers.PageMapper;
+import dev.amir.notes.notes.application.requests.BulkDeleteRequest;
+import dev.amir.notes.notes.application.requests.MultiGetRequest;
+import dev.amir.notes.notes.application.requests.NotePageRequest;
+import dev.amir.notes.notes.application.requests.NotePatchRequest;
+import dev.amir.notes.notes.application.requests.NoteQueryRequest;
 import dev.amir.notes.notes.application.requests.NoteRequest;
+import dev.amir.notes.notes.application.requests.NoteStreamRequest;
+import dev.amir.notes.notes.application.responses.BatchItemResponse;
+import dev.amir.notes.notes.application.responses.BulkDeleteResponse;
+import dev.amir.notes.notes.application.responses.CategoryCountResponse;
+import dev.amir.notes.notes.application.responses.MultiGetResponse;
+import dev.amir.notes.notes.application.responses.NotePageResponse;
 import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.application.responses.NoteSearchResponse;
 import dev.amir.notes.notes.application.services.NoteService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,21 +26,30 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.function.Supplier;
+
 /**
  * Reactive REST Controller for Notes API
  * <p>
@@ -40,6 +63,8 @@ import reactor.core.publisher.Mono;
 @Tag(name = "Notes", description = "Reactive Notes API for managing personal notes")
 public class NotesController {
 
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
     private final NoteService noteService;
 
     @Operation(summary = "Create a new note", description = "Creates a new note with the provided information")
@@ -60,151 +85,333 @@ public class NotesController {
                 .doOnError(error -> log.error("Error creating note: {}", error.getMessage()));
     }
 
-    @Operation(summary = "Get all notes", description = "Retrieves all notes from the system")
-    @ApiResponse(responseCode = "200", description = "Successfully retrieved notes")
+    @Operation(summary = "Create notes in batch",
+            description = "Creates the notes of a JSON array or NDJSON body, validating each one "
+                    + "and writing them in chunks. Returns the outcome of every note in request order")
+    @ApiResponse(responseCode = "200", description = "Batch processed, see the status of each item")
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<BatchItemResponse> createNotes(@RequestBody Flux<NoteRequest> noteRequests) {
+        log.info("Received request to create notes in batch");
+
+        return noteService.createNotes(noteRequests)
+                .doOnComplete(() -> log.info("Successfully processed note batch"))
+                .doOnError(error -> log.error("Error creating notes in batch: {}", error.getMessage()));
+    }
+
+    @Operation(summary = "Get all notes", description = "Retrieves a page of notes ordered by ID. "
+            + "Supports If-None-Match with the ETag of a previous response")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved notes"),
+            @ApiResponse(responseCode = "304", description = "Page not modified since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
+    })
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<NoteResponse> getAllNotes() {
+    public Mono<ResponseEntity<NotePageResponse>> getAllNotes(
+            @ParameterObject @Valid NotePageRequest pageRequest,
+            ServerWebExchange exchange) {
         log.info("Received request to get all notes");
 
-        return noteService.getAllNotes()
-                .doOnComplete(() -> log.info("Successfully retrieved all notes"))
+        return notModifiedOr(exchange, () -> noteService.getAllNotesETag(pageRequest),
+                () -> noteService.getAllNotes(pageRequest)
+                        .map(page -> ResponseEntity.ok()
+                                .eTag(ETagMapper.toPageETag(page.getItems(), page.getNextCursor(),
+                                        PageMapper.toFields(pageRequest.getFields())))
+                                .body(page)))
+                .doOnSuccess(response -> log.info("Successfully retrieved all notes"))
                 .doOnError(error -> log.error("Error retrieving notes: {}", error.getMessage()));
     }
 
-    @Operation(summary = "Get all notes with updates", description = "Retrieves all notes and streams updates in real-time")
+    @Operation(summary = "Export all notes",
+            description = "Streams every note as NDJSON or as an incrementally written JSON array, "
+                    + "reading the database cursor only as fast as the client consumes")
+    @ApiResponse(responseCode = "200", description = "Successfully streamed notes")
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<NoteResponse> exportNotes() {
+        log.info("Received request to export all notes");
+
+        return noteService.exportNotes()
+                .doOnComplete(() -> log.info("Successfully exported all notes"))
+                .doOnError(error -> log.error("Error exporting notes: {}", error.getMessage()));
+    }
+
+    @Operation(summary = "Get all notes with updates", description = "Retrieves all notes and streams updates in real-time. "
+            + "Every update is sent with an event ID; a client reconnecting with Last-Event-ID only receives "
+            + "the updates it missed, or all notes again when they can no longer be replayed. "
+            + "Filters limit the stream to the matching notes and their updates, "
+            + "and delta=true sends updates as PATCH events carrying only the changed fields. "
+            + "A client that falls behind has its oldest events dropped, is disconnected to resume later "
+            + "or gets only the latest event per note, as set by overflow. "
+            + "With batch=true, events are gathered over a short window and sent as one array per frame, "
+            + "the initial notes included, with the ID of the last event of the array")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved notes with updates")
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<NoteResponseEvent> getAllNotesStream() {
-        log.info("Received request to get all notes with updates");
-
-        return noteService.getAllNotesWithUpdates()
+    public Flux<ServerSentEvent<?>> getAllNotesStream(
+            @Parameter(description = "ID of the last event received, to resume after it")
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId,
+            @ParameterObject @Valid NoteStreamRequest streamRequest) {
+        log.info("Received request to get notes with updates after: {} matching: {}", lastEventId, streamRequest);
+
+        if (streamRequest.isBatch()) {
+            return noteService.getAllNotesWithUpdatesInBatches(lastEventId, streamRequest)
+                    .doOnSubscribe(subscription -> log.info("Subscribed to note updates in batches"))
+                    .doOnComplete(() -> log.info("Note updates stream completed"))
+                    .doOnError(error -> log.error("Error in note updates stream: {}", error.getMessage()))
+                    .map(batch -> ServerSentEvent.builder(batch).id(lastResumeTokenOf(batch)).build());
+        }
+
+        return noteService.getAllNotesWithUpdates(lastEventId, streamRequest)
                 .doOnSubscribe(subscription -> log.info("Subscribed to note updates"))
                 .doOnNext(event -> log.info("Received note update: {}", event.getEntityId()))
                 .doOnComplete(() -> log.info("Note updates stream completed"))
-                .doOnError(error -> log.error("Error in note updates stream: {}", error.getMessage()));
+                .doOnError(error -> log.error("Error in note updates stream: {}", error.getMessage()))
+                .map(event -> ServerSentEvent.builder(event).id(event.getResumeToken()).build());
     }
 
-    @Operation(summary = "Get note by ID", description = "Retrieves a specific note by its ID")
+    /**
+     * Helper method to get the resume token of the last event of a batch that has one, the ID to resume after
+     */
+    private static String lastResumeTokenOf(List<NoteResponseEvent> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (batch.get(i).getResumeToken() != null) {
+                return batch.get(i).getResumeToken();
+            }
+        }
+        return null;
+    }
+
+    @Operation(summary = "Get note by ID", description = "Retrieves a specific note by its ID. "
+            + "Supports If-None-Match with the ETag of a previous response")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Note found"),
+            @ApiResponse(responseCode = "304", description = "Note not modified since the given ETag"),
             @ApiResponse(responseCode = "404", description = "Note not found")
     })
     @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<NoteResponse>> getNoteById(
-            @Parameter(description = "Note ID", required = true) @PathVariable String id) {
+            @Parameter(description = "Note ID", required = true) @PathVariable String id,
+            ServerWebExchange exchange) {
 
         log.info("Received request to get note with ID: {}", id);
 
-        return noteService.getNoteById(id)
-                .map(ResponseEntity::ok)
+        return notModifiedOr(exchange, () -> noteService.getNoteETag(id),
+                () -> noteService.getNoteById(id)
+                        .map(note -> ResponseEntity.ok()
+                                .eTag(ETagMapper.toETag(note.getVersion()))
+                                .body(note)))
                 .doOnSuccess(response -> log.info("Successfully retrieved note with ID: {}", id))
                 .doOnError(error -> log.error("Error retrieving note with ID {}: {}", id,
                         error.getMessage()));
     }
 
+    @Operation(summary = "Get notes by IDs",
+            description = "Retrieves several notes in one request, in request order, and lists the IDs that do not exist")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Notes retrieved"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @PostMapping(value = "/_mget", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<MultiGetResponse>> getNotesByIds(
+            @Valid @RequestBody MultiGetRequest multiGetRequest) {
+
+        log.info("Received request to get {} notes by ID", multiGetRequest.getIds().size());
+
+        return noteService.getNotesByIds(multiGetRequest.getIds())
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully retrieved notes by ID"))
+                .doOnError(error -> log.error("Error retrieving notes by ID: {}", error.getMessage()));
+    }
+
     @Operation(summary = "Update note", description = "Updates an existing note with new information")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Note updated successfully"),
             @ApiResponse(responseCode = "404", description = "Note not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "412", description = "Note modified since the If-Match ETag")
     })
     @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<NoteResponse>> updateNote(
             @Parameter(description = "Note ID", required = true) @PathVariable String id,
+            @Parameter(description = "ETag the note must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch,
             @Valid @RequestBody NoteRequest noteRequest) {
 
         log.info("Received request to update note with ID: {}", id);
 
-        return noteService.updateNote(id, noteRequest)
-                .map(ResponseEntity::ok)
+        return noteService.updateNote(id, noteRequest, ETagMapper.toVersions(ifMatch))
+                .map(note -> ResponseEntity.ok().eTag(ETagMapper.toETag(note.getVersion())).body(note))
                 .doOnSuccess(response -> log.info("Successfully updated note with ID: {}", id))
                 .doOnError(error -> log.error("Error updating note with ID {}: {}", id,
                         error.getMessage()));
     }
 
+    @Operation(summary = "Partially update note",
+            description = "Changes only the fields present in the request in a single atomic update")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Note updated successfully"),
+            @ApiResponse(responseCode = "404", description = "Note not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "412", description = "Note modified since the If-Match ETag")
+    })
+    @PatchMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<NoteResponse>> patchNote(
+            @Parameter(description = "Note ID", required = true) @PathVariable String id,
+            @Parameter(description = "ETag the note must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch,
+            @Valid @RequestBody NotePatchRequest patchRequest) {
+
+        log.info("Received request to patch note with ID: {}", id);
+
+        return noteService.patchNote(id, patchRequest, ETagMapper.toVersions(ifMatch))
+                .map(note -> ResponseEntity.ok().eTag(ETagMapper.toETag(note.getVersion())).body(note))
+                .doOnSuccess(response -> log.info("Successfully patched note with ID: {}", id))
+                .doOnError(error -> log.error("Error patching note with ID {}: {}", id,
+                        error.getMessage()));
+    }
+
     @Operation(summary = "Delete note", description = "Deletes a note by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Note deleted successfully"),
-            @ApiResponse(responseCode = "404", description = "Note not found")
+            @ApiResponse(responseCode = "404", description = "Note not found"),
+            @ApiResponse(responseCode = "412", description = "Note modified since the If-Match ETag")
     })
     @DeleteMapping("/{id}")
     public Mono<ResponseEntity<Void>> deleteNote(
-            @Parameter(description = "Note ID", required = true) @PathVariable String id) {
+            @Parameter(description = "Note ID", required = true) @PathVariable String id,
+            @Parameter(description = "ETag the note must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) List<String> ifMatch) {
 
         log.info("Received request to delete note with ID: {}", id);
 
-        return noteService.deleteNote(id)
+        return noteService.deleteNote(id, ETagMapper.toVersions(ifMatch))
                 .then(Mono.fromCallable(() -> ResponseEntity.noContent().<Void>build()))
                 .doOnSuccess(response -> log.info("Successfully deleted note with ID: {}", id))
                 .doOnError(error -> log.error("Error deleting note with ID {}: {}", id,
                         error.getMessage()));
     }
 
-    @Operation(summary = "Get notes by category", description = "Retrieves all notes in a specific category")
+    @Operation(summary = "Delete notes by IDs", description = "Deletes several notes by their IDs in a single command")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Notes deleted, with the number of deleted notes"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    @DeleteMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BulkDeleteResponse>> deleteNotes(
+            @ParameterObject @Valid BulkDeleteRequest bulkDeleteRequest) {
+
+        log.info("Received request to delete {} notes by ID", bulkDeleteRequest.getIds().size());
+
+        return noteService.deleteNotes(bulkDeleteRequest.getIds())
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully deleted notes by ID"))
+                .doOnError(error -> log.error("Error deleting notes by ID: {}", error.getMessage()));
+    }
+
+    @Operation(summary = "Get notes by category", description = "Retrieves a page of notes in a specific category")
     @GetMapping(value = "/category/{category}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<NoteResponse> getNotesByCategory(
-            @Parameter(description = "Category name", required = true) @PathVariable String category) {
+    public Mono<ResponseEntity<NotePageResponse>> getNotesByCategory(
+            @Parameter(description = "Category name", required = true) @PathVariable String category,
+            @ParameterObject @Valid NotePageRequest pageRequest) {
 
         log.info("Received request to get notes by category: {}", category);
 
-        return noteService.getNotesByCategory(category)
-                .doOnComplete(() -> log.info("Successfully retrieved notes for category: {}", category))
+        return noteService.getNotesByCategory(category, pageRequest)
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully retrieved notes for category: {}", category))
                 .doOnError(error -> log.error("Error retrieving notes by category {}: {}", category,
                         error.getMessage()));
     }
 
-    @Operation(summary = "Get important notes", description = "Retrieves all notes marked as important")
+    @Operation(summary = "Get important notes", description = "Retrieves a page of notes marked as important")
     @GetMapping(value = "/important", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<NoteResponse> getImportantNotes(
-            @Parameter(description = "Important flag (default: true)") @RequestParam(defaultValue = "true") Boolean important) {
+    public Mono<ResponseEntity<NotePageResponse>> getImportantNotes(
+            @Parameter(description = "Important flag (default: true)") @RequestParam(defaultValue = "true") Boolean important,
+            @ParameterObject @Valid NotePageRequest pageRequest) {
 
         log.info("Received request to get important notes: {}", important);
 
-        return noteService.getImportantNotes(important)
-                .doOnComplete(() -> log.info("Successfully retrieved important notes"))
+        return noteService.getImportantNotes(important, pageRequest)
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully retrieved important notes"))
                 .doOnError(error -> log.error("Error retrieving important notes: {}",
                         error.getMessage()));
     }
 
-    @Operation(summary = "Search notes by title", description = "Searches notes by title containing the specified text")
+    @Operation(summary = "Search notes by title", description = "Searches a page of notes by title containing the specified text")
     @GetMapping(value = "/search/title", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<NoteResponse> searchNotesByTitle(
-            @Parameter(description = "Title search text", required = true) @RequestParam String title) {
+    public Mono<ResponseEntity<NotePageResponse>> searchNotesByTitle(
+            @Parameter(description = "Title search text", required = true) @RequestParam String title,
+            @ParameterObject @Valid NotePageRequest pageRequest) {
 
         log.info("Received request to search notes by title: {}", title);
 
-        return noteService.searchNotesByTitle(title)
-                .doOnComplete(() -> log.info("Successfully searched notes by title: {}", title))
+        return noteService.searchNotesByTitle(title, pageRequest)
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully searched notes by title: {}", title))
                 .doOnError(error -> log.error("Error searching notes by title {}: {}", title,
                         error.getMessage()));
     }
 
-    @Operation(summary = "Search notes by content", description = "Searches notes by content containing the specified text")
+    @Operation(summary = "Search notes by content", description = "Searches a page of notes by content containing the specified text")
     @GetMapping(value = "/search/content", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<NoteResponse> searchNotesByContent(
-            @Parameter(description = "Content search text", required = true) @RequestParam String content) {
+    public Mono<ResponseEntity<NotePageResponse>> searchNotesByContent(
+            @Parameter(description = "Content search text", required = true) @RequestParam String content,
+            @ParameterObject @Valid NotePageRequest pageRequest) {
 
         log.info("Received request to search notes by content");
 
-        return noteService.searchNotesByContent(content)
-                .doOnComplete(() -> log.info("Successfully searched notes by content"))
+        return noteService.searchNotesByContent(content, pageRequest)
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully searched notes by content"))
                 .doOnError(error -> log.error("Error searching notes by content: {}",
                         error.getMessage()));
     }
 
-    @Operation(summary = "Get notes by tag", description = "Retrieves all notes containing the specified tag")
+    @Operation(summary = "Get notes by tag", description = "Retrieves a page of notes containing the specified tag")
     @GetMapping(value = "/tag/{tag}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Flux<NoteResponse> getNotesByTag(
-            @Parameter(description = "Tag name", required = true) @PathVariable String tag) {
+    public Mono<ResponseEntity<NotePageResponse>> getNotesByTag(
+            @Parameter(description = "Tag name", required = true) @PathVariable String tag,
+            @ParameterObject @Valid NotePageRequest pageRequest) {
 
         log.info("Received request to get notes by tag: {}", tag);
 
-        return noteService.getNotesByTag(tag)
-                .doOnComplete(() -> log.info("Successfully retrieved notes by tag: {}", tag))
+        return noteService.getNotesByTag(tag, pageRequest)
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully retrieved notes by tag: {}", tag))
                 .doOnError(error -> log.error("Error retrieving notes by tag {}: {}", tag,
                         error.getMessage()));
     }
 
+    @Operation(summary = "Query notes",
+            description = "Retrieves the notes matching all given filters in one query, sorted and limited")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully queried notes"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter, sort, limit or fields")
+    })
+    @GetMapping(value = "/query", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<NoteResponse> queryNotes(@ParameterObject @Valid NoteQueryRequest queryRequest) {
+        log.info("Received request to query notes: {}", queryRequest);
+
+        return noteService.queryNotes(queryRequest)
+                .doOnComplete(() -> log.info("Successfully queried notes"))
+                .doOnError(error -> log.error("Error querying notes: {}", error.getMessage()));
+    }
+
+    @Operation(summary = "Search notes with facets",
+            description = "Retrieves the first notes matching all given filters together with the category, "
+                    + "tag and importance counts of every match, computed in a single aggregation")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully searched notes"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter, sort, limit or fields")
+    })
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<NoteSearchResponse>> searchNotes(@ParameterObject @Valid NoteQueryRequest queryRequest) {
+        log.info("Received request to search notes: {}", queryRequest);
+
+        return noteService.searchNotes(queryRequest)
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully searched notes"))
+                .doOnError(error -> log.error("Error searching notes: {}", error.getMessage()));
+    }
+
     @Operation(summary = "Count notes by category", description = "Returns the count of notes in a specific category")
     @GetMapping(value = "/count/category/{category}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<Long>> countNotesByCategory(
@@ -219,4 +426,34 @@ public class NotesController {
                 .doOnError(error -> log.error("Error counting notes by category {}: {}", category,
                         error.getMessage()));
     }
+
+    @Operation(summary = "Get category statistics",
+            description = "Returns the number of notes in every category, served from an in-memory histogram")
+    @GetMapping(value = "/stats/categories", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<CategoryCountResponse>>> getCategoryStats() {
+        log.info("Received request to get category statistics");
+
+        return noteService.getCategoryStats()
+                .map(ResponseEntity::ok)
+                .doOnSuccess(response -> log.info("Successfully retrieved category statistics"))
+                .doOnError(error -> log.error("Error retrieving category statistics: {}", error.getMessage()));
+    }
+
+    /**
+     * Helper method to answer a conditional GET from the current ETag alone.
+     * When the request carries If-None-Match and the ETag still matches, a 304 without body is returned
+     * and the full response is never read; otherwise the full response is served.
+     */
+    private static <T> Mono<ResponseEntity<T>> notModifiedOr(ServerWebExchange exchange,
+                                                             Supplier<Mono<String>> currentETag,
+                                                             Supplier<Mono<ResponseEntity<T>>> fullResponse) {
+        if (exchange.getRequest().getHeaders().getIfNoneMatch().isEmpty()) {
+            return fullResponse.get();
+        }
+
+        return currentETag.get()
+                .filter(exchange::checkNotModified)
+                .map(eTag -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<T>build())
+                .switchIfEmpty(Mono.defer(fullResponse));
+    }
 }
@@ -1,6 +1,7 @@
 package dev.amir.notes.notes.presentation.exceptions;
 
 import dev.amir.notes.notes.domain.exceptions.NoteNotFoundException;
+import dev.amir.notes.notes.domain.exceptions.NoteVersionMismatchException;
 import dev.amir.notes.notes.domain.exceptions.ValidationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.Ordered;
@@ -32,7 +33,8 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(NoteNotFoundException.class)
     public Mono<ResponseEntity<ErrorResponse>> handleNoteNotFoundException(NoteNotFoundException ex) {
-        log.error("Note not found: {}", ex.getMessage());
+        // Missing notes are client errors, often from bots probing IDs, so they stay out of the error log
+        log.debug("Note not found: {}", ex.getMessage());
 
         ErrorResponse errorResponse = ErrorResponse.builder()
                 .timestamp(Instant.now())
@@ -45,6 +47,25 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse));
     }
 
+    /**
+     * Handle NoteVersionMismatchException
+     */
+    @ExceptionHandler(NoteVersionMismatchException.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleNoteVersionMismatchException(NoteVersionMismatchException ex) {
+        // A stale If-Match is the expected outcome of optimistic concurrency, not a server fault
+        log.debug("Note version mismatch: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(Instant.now())
+                .status(HttpStatus.PRECONDITION_FAILED.value())
+                .error("Precondition Failed")
+                .message(ex.getMessage())
+                .path("/notes")
+                .build();
+
+        return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse));
+    }
+
     /**
      * Handle ValidationException
      */
@@ -0,0 +1,87 @@
+package dev.amir.notes.notes.application.mappers;
+
+import dev.amir.notes.notes.application.responses.NoteResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for ETagMapper.
+ * This class tests that entity tags are strong, change exactly when notes change,
+ * and map back to the versions they stand for.
+ */
+@DisplayName("ETagMapper Tests")
+class ETagMapperTest {
+
+    @Nested
+    @DisplayName("ETag Tests")
+    class ETagTests {
+
+        @Test
+        @DisplayName("Should derive a quoted strong ETag from the version")
+        void shouldDeriveStrongETagFromVersion() {
+            assertThat(ETagMapper.toETag(3L)).isEqualTo("\"3\"");
+            assertThat(ETagMapper.toETag(null)).isEqualTo(ETagMapper.toETag(0L));
+        }
+
+        @Test
+        @DisplayName("Should change the page ETag when a note is updated, removed or the next cursor changes")
+        void shouldChangePageETagWhenPageChanges() {
+            // Given
+            NoteResponse first = NoteResponse.builder().id("a").version(1L).build();
+            NoteResponse second = NoteResponse.builder().id("b").version(1L).build();
+            NoteResponse updatedSecond = NoteResponse.builder().id("b").version(2L).build();
+
+            // When
+            String eTag = ETagMapper.toPageETag(List.of(first, second), null, null);
+
+            // Then
+            assertThat(eTag).isEqualTo(ETagMapper.toPageETag(List.of(first, second), null, null));
+            assertThat(eTag).isNotEqualTo(ETagMapper.toPageETag(List.of(first, updatedSecond), null, null));
+            assertThat(eTag).isNotEqualTo(ETagMapper.toPageETag(List.of(first), null, null));
+            assertThat(eTag).isNotEqualTo(ETagMapper.toPageETag(List.of(first, second), "cursor", null));
+            assertThat(eTag).isNotEqualTo(ETagMapper.toPageETag(List.of(first, second), null, Set.of("title")));
+        }
+
+        @Test
+        @DisplayName("Should tag a page the same whatever order its fields are requested in")
+        void shouldIgnoreFieldOrderInPageETag() {
+            // Given
+            List<NoteResponse> notes = List.of(NoteResponse.builder().id("a").version(1L).build());
+
+            // When
+            String eTag = ETagMapper.toPageETag(notes, null, new LinkedHashSet<>(List.of("title", "category")));
+
+            // Then
+            assertThat(eTag).isEqualTo(ETagMapper.toPageETag(notes, null, new LinkedHashSet<>(List.of("category", "title"))));
+            assertThat(eTag).isNotEqualTo(ETagMapper.toPageETag(notes, null, Set.of("title")));
+        }
+    }
+
+    @Nested
+    @DisplayName("If-Match Tests")
+    class IfMatchTests {
+
+        @Test
+        @DisplayName("Should accept any version without If-Match or with a wildcard")
+        void shouldAcceptAnyVersionWithoutIfMatch() {
+            assertThat(ETagMapper.toVersions(null)).isNull();
+            assertThat(ETagMapper.toVersions(List.of())).isNull();
+            assertThat(ETagMapper.toVersions(List.of("*"))).isNull();
+        }
+
+        @Test
+        @DisplayName("Should map strong ETags to versions and drop weak or unknown ones")
+        void shouldMapStrongETagsToVersions() {
+            assertThat(ETagMapper.toVersions(List.of("\"3\"", " \"4\"", "W/\"5\"", "\"abc\"")))
+                    .containsExactly(3L, 4L);
+            assertThat(ETagMapper.toVersions(List.of("W/\"5\""))).isEmpty();
+        }
+    }
+}
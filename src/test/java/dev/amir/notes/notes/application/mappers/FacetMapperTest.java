@@ -0,0 +1,50 @@
+package dev.amir.notes.notes.application.mappers;
+
+import dev.amir.notes.notes.application.responses.FacetBucketResponse;
+import dev.amir.notes.notes.application.responses.NoteSearchResponse;
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.domain.results.FacetBucket;
+import dev.amir.notes.notes.domain.results.NoteFacets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for FacetMapper.
+ * This class tests the mapping of faceted search results to search responses.
+ */
+@DisplayName("FacetMapper Tests")
+class FacetMapperTest {
+
+    @Test
+    @DisplayName("Should map the notes with the requested fields and every facet")
+    void shouldMapNotesAndFacets() {
+        // Given
+        NoteFacets facets = NoteFacets.builder()
+                .notes(List.of(Note.builder().id("note-id").title("Title").content("Content").version(1L).build()))
+                .total(3)
+                .important(1)
+                .categories(List.of(new FacetBucket("work", 2), new FacetBucket(null, 1)))
+                .tags(List.of(new FacetBucket("urgent", 1)))
+                .build();
+
+        // When
+        NoteSearchResponse response = FacetMapper.toNoteSearchResponse(facets, Set.of("title"));
+
+        // Then
+        assertThat(response.getItems()).singleElement().satisfies(item -> {
+            assertThat(item.getId()).isEqualTo("note-id");
+            assertThat(item.getTitle()).isEqualTo("Title");
+            assertThat(item.getContent()).isNull();
+        });
+        assertThat(response.getTotal()).isEqualTo(3);
+        assertThat(response.getImportantCount()).isEqualTo(1);
+        assertThat(response.getCategories())
+                .containsExactly(new FacetBucketResponse("work", 2), new FacetBucketResponse(null, 1));
+        assertThat(response.getTags()).containsExactly(new FacetBucketResponse("urgent", 1));
+    }
+}
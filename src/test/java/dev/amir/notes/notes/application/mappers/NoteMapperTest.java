@@ -2,6 +2,7 @@ package dev.amir.notes.notes.application.mappers;
 
 import dev.amir.notes.notes.application.events.NoteResponseEvent;
 import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.application.responses.SparseNoteResponse;
 import dev.amir.notes.notes.domain.entities.Note;
 import dev.amir.notes.notes.domain.events.EventType;
 import dev.amir.notes.notes.infrastructure.data.events.NoteEvent;
@@ -14,6 +15,9 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
@@ -160,6 +164,32 @@ class NoteMapperTest {
             );
         }
 
+        @Test
+        @DisplayName("Should map only the requested fields plus ID and version")
+        void shouldMapOnlyRequestedFields() {
+            // Given
+            Note versionedNote = Note.builder()
+                    .id("test-id")
+                    .title("Test Title")
+                    .content("Test Content")
+                    .category("Work")
+                    .important(false)
+                    .version(2L)
+                    .build();
+
+            // When
+            NoteResponse result = NoteMapper.mapToNoteResponse(versionedNote, Set.of("title", "category"));
+
+            // Then
+            assertThat(result).isInstanceOf(SparseNoteResponse.class);
+            assertThat(result.getId()).isEqualTo("test-id");
+            assertThat(result.getVersion()).isEqualTo(2L);
+            assertThat(result.getTitle()).isEqualTo("Test Title");
+            assertThat(result.getCategory()).isEqualTo("Work");
+            assertThat(result.getContent()).isNull();
+            assertThat(result.getImportant()).isNull();
+        }
+
         @Test
         @DisplayName("Should not map Note to NoteResponse with null value")
         void shouldNotMapNoteToNoteResponseWithNullValue() {
@@ -197,6 +227,25 @@ class NoteMapperTest {
             );
         }
 
+        @Test
+        @DisplayName("Should map a patch to a NoteResponseEvent carrying only the changed fields")
+        void shouldMapPatchToNoteResponseEvent() {
+            // Given
+            noteEvent = new NoteEvent("test-id", "8263A1", Map.of("important", false), List.of("tags"));
+
+            // When
+            NoteResponseEvent result = NoteMapper.mapToNoteResponseEvent(noteEvent);
+
+            // Then
+            assertAll("NoteResponseEvent mapping of a patch",
+                    () -> assertThat(result.getEventType()).isEqualTo(EventType.PATCH),
+                    () -> assertThat(result.getBody()).isNull(),
+                    () -> assertThat(result.getEntityId()).isEqualTo("test-id"),
+                    () -> assertThat(result.getUpdatedFields()).containsExactlyEntriesOf(Map.of("important", false)),
+                    () -> assertThat(result.getRemovedFields()).containsExactly("tags")
+            );
+        }
+
         @Test
         @DisplayName("Should map NoteEvent to NoteResponseEvent with null body")
         void shouldMapNoteEventToNoteResponseEventWithNullBody() {
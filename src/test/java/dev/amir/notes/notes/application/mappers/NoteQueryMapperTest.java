@@ -0,0 +1,74 @@
+package dev.amir.notes.notes.application.mappers;
+
+import dev.amir.notes.notes.application.requests.NoteQueryRequest;
+import dev.amir.notes.notes.application.requests.NoteStreamRequest;
+import dev.amir.notes.notes.domain.queries.NoteQuery;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for NoteQueryMapper.
+ * This class tests the mapping of query and stream requests to repository queries and filters.
+ */
+@DisplayName("NoteQueryMapper Tests")
+class NoteQueryMapperTest {
+
+    @Test
+    @DisplayName("Should map filters, descending sort, limit and fields")
+    void shouldMapQueryRequest() {
+        // Given
+        NoteQueryRequest queryRequest = NoteQueryRequest.builder()
+                .category("Work")
+                .important(true)
+                .tag("urgent")
+                .sort("-updatedAt")
+                .limit(20)
+                .fields(List.of("title"))
+                .build();
+
+        // When
+        NoteQuery query = NoteQueryMapper.toNoteQuery(queryRequest);
+
+        // Then
+        assertThat(query.getCategory()).isEqualTo("Work");
+        assertThat(query.getImportant()).isTrue();
+        assertThat(query.getTag()).isEqualTo("urgent");
+        assertThat(query.getSortField()).isEqualTo("updatedAt");
+        assertThat(query.isDescending()).isTrue();
+        assertThat(query.getLimit()).isEqualTo(20);
+        assertThat(query.getFields()).containsExactly("title");
+    }
+
+    @Test
+    @DisplayName("Should default to ascending ID order and ignore blank text filters")
+    void shouldDefaultSortAndIgnoreBlankFilters() {
+        // When
+        NoteQuery query = NoteQueryMapper.toNoteQuery(NoteQueryRequest.builder().title(" ").build());
+
+        // Then
+        assertThat(query.getTitle()).isNull();
+        assertThat(query.getSortField()).isEqualTo("id");
+        assertThat(query.isDescending()).isFalse();
+        assertThat(query.getLimit()).isEqualTo(NoteQueryRequest.DEFAULT_LIMIT);
+        assertThat(query.getFields()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should map stream filters, ignoring a blank tag, and stream everything without a request")
+    void shouldMapStreamRequest() {
+        // When
+        NoteStreamFilter filter = NoteQueryMapper.toNoteStreamFilter(
+                NoteStreamRequest.builder().category("Work").important(false).tag(" ").build());
+
+        // Then
+        assertThat(filter.getCategory()).isEqualTo("Work");
+        assertThat(filter.getImportant()).isFalse();
+        assertThat(filter.getTag()).isNull();
+        assertThat(NoteQueryMapper.toNoteStreamFilter(null).isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,157 @@
+package dev.amir.notes.notes.application.mappers;
+
+import dev.amir.notes.notes.application.requests.NotePageRequest;
+import dev.amir.notes.notes.application.responses.NotePageResponse;
+import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.domain.exceptions.ValidationException;
+import dev.amir.notes.notes.domain.pagination.PageQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for PageMapper.
+ * This class tests the encoding and decoding of page cursors and the mapping
+ * of page requests and results.
+ */
+@DisplayName("PageMapper Tests")
+class PageMapperTest {
+
+    private static final String FIRST_ID = "507f1f77bcf86cd799439011";
+    private static final String SECOND_ID = "507f1f77bcf86cd799439012";
+
+    @Nested
+    @DisplayName("Cursor Tests")
+    class CursorTests {
+
+        @Test
+        @DisplayName("Should round trip a note ID through an opaque cursor")
+        void shouldRoundTripNoteIdThroughCursor() {
+            // When
+            String cursor = PageMapper.encodeCursor(FIRST_ID);
+
+            // Then
+            assertThat(cursor).doesNotContain(FIRST_ID);
+            assertThat(PageMapper.decodeCursor(cursor)).isEqualTo(FIRST_ID);
+        }
+
+        @Test
+        @DisplayName("Should decode a missing cursor as the first page")
+        void shouldDecodeMissingCursorAsFirstPage() {
+            assertThat(PageMapper.decodeCursor(null)).isNull();
+            assertThat(PageMapper.decodeCursor(" ")).isNull();
+        }
+
+        @Test
+        @DisplayName("Should reject malformed cursors")
+        void shouldRejectMalformedCursors() {
+            assertThatThrownBy(() -> PageMapper.decodeCursor("%%%"))
+                    .isInstanceOf(ValidationException.class);
+            assertThatThrownBy(() -> PageMapper.decodeCursor("YWJj"))
+                    .isInstanceOf(ValidationException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Page Mapping Tests")
+    class PageMappingTests {
+
+        @Test
+        @DisplayName("Should fall back to the default limit when the limit is empty")
+        void shouldFallBackToDefaultLimitWhenEmpty() {
+            // Given
+            NotePageRequest pageRequest = NotePageRequest.builder().limit(null).build();
+
+            // When
+            PageQuery pageQuery = PageMapper.toPageQuery(pageRequest);
+
+            // Then
+            assertThat(pageQuery.getLimit()).isEqualTo(NotePageRequest.DEFAULT_LIMIT + 1);
+            assertThat(PageMapper.toNotePageResponse(List.of(), pageRequest).getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Should request one note more than the page limit")
+        void shouldRequestOneNoteMoreThanLimit() {
+            // Given
+            NotePageRequest pageRequest = NotePageRequest.builder()
+                    .after(PageMapper.encodeCursor(FIRST_ID))
+                    .limit(20)
+                    .build();
+
+            // When
+            PageQuery pageQuery = PageMapper.toPageQuery(pageRequest);
+
+            // Then
+            assertThat(pageQuery.getAfterId()).isEqualTo(FIRST_ID);
+            assertThat(pageQuery.getLimit()).isEqualTo(21);
+        }
+
+        @Test
+        @DisplayName("Should trim the extra note and point the next cursor at the last item")
+        void shouldTrimExtraNoteAndReturnNextCursor() {
+            // Given
+            List<NoteResponse> notes = List.of(
+                    NoteResponse.builder().id(FIRST_ID).build(),
+                    NoteResponse.builder().id(SECOND_ID).build());
+
+            // When
+            NotePageResponse page = PageMapper.toNotePageResponse(notes, NotePageRequest.builder().limit(1).build());
+
+            // Then
+            assertThat(page.getItems()).extracting(NoteResponse::getId).containsExactly(FIRST_ID);
+            assertThat(PageMapper.decodeCursor(page.getNextCursor())).isEqualTo(FIRST_ID);
+        }
+
+        @Test
+        @DisplayName("Should not return a next cursor on the last page")
+        void shouldNotReturnNextCursorOnLastPage() {
+            // Given
+            List<NoteResponse> notes = List.of(NoteResponse.builder().id(FIRST_ID).build());
+
+            // When
+            NotePageResponse page = PageMapper.toNotePageResponse(notes, NotePageRequest.builder().limit(1).build());
+
+            // Then
+            assertThat(page.getItems()).hasSize(1);
+            assertThat(page.getNextCursor()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Sparse Fieldset Tests")
+    class SparseFieldsetTests {
+
+        @Test
+        @DisplayName("Should map requested fields to note fields in request order")
+        void shouldMapRequestedFields() {
+            // When
+            PageQuery query = PageMapper.toPageQuery(NotePageRequest.builder()
+                    .fields(List.of("title", " category", "title"))
+                    .build());
+
+            // Then
+            assertThat(query.getFields()).containsExactly("title", "category");
+        }
+
+        @Test
+        @DisplayName("Should read every field when no fields are requested")
+        void shouldReadEveryFieldWithoutFields() {
+            assertThat(PageMapper.toFields(null)).isNull();
+            assertThat(PageMapper.toFields(List.of())).isNull();
+        }
+
+        @Test
+        @DisplayName("Should reject unknown fields")
+        void shouldRejectUnknownFields() {
+            assertThatThrownBy(() -> PageMapper.toFields(List.of("title", "password")))
+                    .isInstanceOf(ValidationException.class)
+                    .hasMessageContaining("password");
+        }
+    }
+}
@@ -1,13 +1,36 @@
 package dev.amir.notes.notes.application.services;
 
 import dev.amir.notes.notes.application.events.NoteResponseEvent;
+import dev.amir.notes.notes.application.mappers.ETagMapper;
 import dev.amir.notes.notes.application.mappers.NoteMapper;
+import dev.amir.notes.notes.application.mappers.PageMapper;
+import dev.amir.notes.notes.application.requests.NotePageRequest;
+import dev.amir.notes.notes.application.requests.NotePatchRequest;
+import dev.amir.notes.notes.application.requests.NoteQueryRequest;
 import dev.amir.notes.notes.application.requests.NoteRequest;
+import dev.amir.notes.notes.application.responses.BatchItemResponse;
+import dev.amir.notes.notes.application.responses.BatchItemStatus;
+import dev.amir.notes.notes.application.responses.CategoryCountResponse;
+import dev.amir.notes.notes.application.responses.MultiGetResponse;
+import dev.amir.notes.notes.application.responses.NotePageResponse;
 import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.application.stats.CategoryHistogram;
 import dev.amir.notes.notes.domain.entities.Note;
 import dev.amir.notes.notes.domain.events.EventType;
 import dev.amir.notes.notes.domain.exceptions.NoteNotFoundException;
+import dev.amir.notes.notes.domain.exceptions.NoteVersionMismatchException;
+import dev.amir.notes.notes.domain.exceptions.ValidationException;
+import dev.amir.notes.notes.domain.pagination.PageQuery;
+import dev.amir.notes.notes.domain.queries.NoteQuery;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
 import dev.amir.notes.notes.domain.repositories.NoteRepository;
+import dev.amir.notes.notes.domain.results.BulkSaveResult;
+import dev.amir.notes.notes.domain.results.CategoryCount;
+import dev.amir.notes.notes.domain.results.FacetBucket;
+import dev.amir.notes.notes.domain.results.NoteFacets;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import dev.amir.notes.notes.infrastructure.data.events.NoteEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,15 +39,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -40,6 +76,15 @@ class NoteServiceImplTest {
     @Mock
     private NoteRepository noteRepository;
 
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private NotesProperties properties = new NotesProperties();
+
+    @Mock
+    private CategoryHistogram categoryHistogram;
+
     @InjectMocks
     private NoteServiceImpl noteService;
 
@@ -48,6 +93,7 @@ class NoteServiceImplTest {
     private NoteResponse noteResponse;
     private NoteResponseEvent noteResponseEvent;
     private NoteEvent noteEvent;
+    private NotePageRequest pageRequest;
 
     @BeforeEach
     void setUp() {
@@ -77,8 +123,9 @@ class NoteServiceImplTest {
                 .tags("tag1, tag2")
                 .build();
 
-        noteResponseEvent = new NoteResponseEvent(EventType.INSERT, null, "test-id");
+        noteResponseEvent = new NoteResponseEvent(EventType.INSERT, null, "test-id", null);
         noteEvent = new NoteEvent(EventType.INITIAL, "test-id");
+        pageRequest = NotePageRequest.builder().build();
     }
 
     @Nested
@@ -121,6 +168,69 @@ class NoteServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("Create Notes In Batch Tests")
+    class CreateNotesInBatchTests {
+
+        @Test
+        @DisplayName("Should validate each note and report the outcome of every item in order")
+        void shouldValidateEachNoteAndReportEveryItem() {
+            // Given
+            NoteRequest invalidRequest = NoteRequest.builder().title("").content("Test Content").build();
+            when(noteRepository.saveAll(anyList())).thenAnswer(invocation -> {
+                List<Note> notes = invocation.getArgument(0);
+                notes.get(0).setId("first-id");
+                notes.get(1).setId("second-id");
+                return Mono.just(BulkSaveResult.builder()
+                        .insertedCount(1)
+                        .failures(Map.of(1, "duplicate key"))
+                        .build());
+            });
+
+            // When & Then
+            StepVerifier.create(noteService.createNotes(Flux.just(noteRequest, invalidRequest, noteRequest)))
+                    .expectNext(BatchItemResponse.builder().index(0).status(BatchItemStatus.CREATED).id("first-id").build())
+                    .assertNext(item -> {
+                        assertThat(item.getIndex()).isEqualTo(1);
+                        assertThat(item.getStatus()).isEqualTo(BatchItemStatus.INVALID);
+                        assertThat(item.getValidationErrors()).containsKey("title");
+                    })
+                    .expectNext(BatchItemResponse.builder().index(2).status(BatchItemStatus.FAILED).error("duplicate key").build())
+                    .verifyComplete();
+
+            verify(noteRepository).saveAll(argThat(notes -> notes.size() == 2));
+        }
+
+        @Test
+        @DisplayName("Should write notes in chunks of the configured size")
+        void shouldWriteNotesInConfiguredChunks() {
+            // Given
+            properties.getBatch().setChunkSize(2);
+            when(noteRepository.saveAll(anyList())).thenAnswer(invocation -> {
+                List<Note> notes = invocation.getArgument(0);
+                return Mono.just(BulkSaveResult.builder().insertedCount(notes.size()).failures(Map.of()).build());
+            });
+
+            // When & Then
+            StepVerifier.create(noteService.createNotes(Flux.range(0, 5).map(i -> noteRequest)))
+                    .expectNextCount(5)
+                    .verifyComplete();
+
+            verify(noteRepository, times(3)).saveAll(anyList());
+        }
+
+        @Test
+        @DisplayName("Should not write anything when every note of a chunk is invalid")
+        void shouldNotWriteWhenChunkIsInvalid() {
+            // When & Then
+            StepVerifier.create(noteService.createNotes(Flux.just(NoteRequest.builder().build())))
+                    .expectNextMatches(item -> item.getStatus() == BatchItemStatus.INVALID)
+                    .verifyComplete();
+
+            verify(noteRepository, never()).saveAll(anyList());
+        }
+    }
+
     @Nested
     @DisplayName("Get All Notes With Updates Tests")
     class GetAllNotesWithUpdatesTests {
@@ -129,18 +239,19 @@ class NoteServiceImplTest {
         @DisplayName("Should get all notes with updates successfully")
         void shouldGetAllNotesWithUpdatesSuccessfully() {
             // Given
-            when(noteRepository.getAllNotesWithUpdates()).thenReturn(Flux.just(noteEvent));
+            when(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
+                    .thenReturn(Flux.just(noteEvent));
 
             try (MockedStatic<NoteMapper> noteMapperMock = mockStatic(NoteMapper.class)) {
                 noteMapperMock.when(() -> NoteMapper.mapToNoteResponseEvent(noteEvent))
                         .thenReturn(noteResponseEvent);
 
                 // When & Then
-                StepVerifier.create(noteService.getAllNotesWithUpdates())
+                StepVerifier.create(noteService.getAllNotesWithUpdates(null, null))
                         .expectNext(noteResponseEvent)
                         .verifyComplete();
 
-                verify(noteRepository).getAllNotesWithUpdates();
+                verify(noteRepository).getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null);
                 noteMapperMock.verify(() -> NoteMapper.mapToNoteResponseEvent(noteEvent));
             }
         }
@@ -150,14 +261,34 @@ class NoteServiceImplTest {
         void shouldHandleErrorInNotesUpdatesStream() {
             // Given
             RuntimeException exception = new RuntimeException("Stream error");
-            when(noteRepository.getAllNotesWithUpdates()).thenReturn(Flux.error(exception));
+            when(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
+                    .thenReturn(Flux.error(exception));
 
             // When & Then
-            StepVerifier.create(noteService.getAllNotesWithUpdates())
+            StepVerifier.create(noteService.getAllNotesWithUpdates(null, null))
                     .expectError(RuntimeException.class)
                     .verify();
 
-            verify(noteRepository).getAllNotesWithUpdates();
+            verify(noteRepository).getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null);
+        }
+
+        @Test
+        @DisplayName("Should send notes and updates in batches of at most the configured size")
+        void shouldSendNotesAndUpdatesInBatches() {
+            // Given
+            properties.getStream().setBatchSize(2);
+            NoteEvent initial = new NoteEvent(EventType.INITIAL, note);
+            NoteEvent update = new NoteEvent(EventType.UPDATE, note, note.getId(), "8263A1");
+            when(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
+                    .thenReturn(Flux.just(initial, initial, update));
+
+            // When & Then
+            StepVerifier.create(noteService.getAllNotesWithUpdatesInBatches(null, null))
+                    .assertNext(batch -> assertThat(batch).extracting(NoteResponseEvent::getEventType)
+                            .containsExactly(EventType.INITIAL, EventType.INITIAL))
+                    .assertNext(batch -> assertThat(batch).extracting(NoteResponseEvent::getResumeToken)
+                            .containsExactly("8263A1"))
+                    .verifyComplete();
         }
     }
 
@@ -169,35 +300,173 @@ class NoteServiceImplTest {
         @DisplayName("Should get all notes successfully")
         void shouldGetAllNotesSuccessfully() {
             // Given
-            when(noteRepository.getAllNotes()).thenReturn(Flux.just(note));
+            when(noteRepository.getAllNotes(any(PageQuery.class))).thenReturn(Flux.just(note));
 
             try (MockedStatic<NoteMapper> noteMapperMock = mockStatic(NoteMapper.class)) {
-                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note))
+                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note, null))
                         .thenReturn(noteResponse);
 
                 // When & Then
-                StepVerifier.create(noteService.getAllNotes())
-                        .expectNext(noteResponse)
+                StepVerifier.create(noteService.getAllNotes(pageRequest))
+                        .expectNext(new NotePageResponse(List.of(noteResponse), null))
                         .verifyComplete();
 
-                verify(noteRepository).getAllNotes();
-                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note));
+                verify(noteRepository).getAllNotes(argThat(page ->
+                        page.getAfterId() == null && page.getLimit() == NotePageRequest.DEFAULT_LIMIT + 1));
+                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note, null));
             }
         }
 
+        @Test
+        @DisplayName("Should read and return only the requested fields")
+        void shouldReadAndReturnOnlyRequestedFields() {
+            // Given
+            NotePageRequest sparsePage = NotePageRequest.builder().fields(List.of("title")).build();
+            when(noteRepository.getAllNotes(any(PageQuery.class))).thenReturn(Flux.just(note));
+
+            // When & Then
+            StepVerifier.create(noteService.getAllNotes(sparsePage))
+                    .assertNext(page -> {
+                        NoteResponse item = page.getItems().get(0);
+                        assertThat(item.getTitle()).isEqualTo("Test Title");
+                        assertThat(item.getContent()).isNull();
+                        assertThat(item.getImportant()).isNull();
+                    })
+                    .verifyComplete();
+
+            verify(noteRepository).getAllNotes(argThat(page -> page.getFields().equals(Set.of("title"))));
+        }
+
+        @Test
+        @DisplayName("Should fail with ValidationException for an unknown field")
+        void shouldFailForUnknownField() {
+            // When & Then
+            StepVerifier.create(noteService.getAllNotes(NotePageRequest.builder().fields(List.of("secret")).build()))
+                    .expectError(ValidationException.class)
+                    .verify();
+
+            verify(noteRepository, never()).getAllNotes(any());
+        }
+
+        @Test
+        @DisplayName("Should return next cursor when more notes than the limit exist")
+        void shouldReturnNextCursorWhenMoreNotesExist() {
+            // Given
+            String firstId = "507f1f77bcf86cd799439011";
+            String secondId = "507f1f77bcf86cd799439012";
+            NotePageRequest smallPage = NotePageRequest.builder().limit(1).build();
+            when(noteRepository.getAllNotes(any(PageQuery.class))).thenReturn(Flux.just(
+                    Note.builder().id(firstId).build(),
+                    Note.builder().id(secondId).build()));
+
+            // When & Then
+            StepVerifier.create(noteService.getAllNotes(smallPage))
+                    .assertNext(page -> {
+                        assertThat(page.getItems()).extracting(NoteResponse::getId).containsExactly(firstId);
+                        assertThat(page.getNextCursor()).isEqualTo(PageMapper.encodeCursor(firstId));
+                    })
+                    .verifyComplete();
+
+            verify(noteRepository).getAllNotes(argThat(page -> page.getLimit() == 2));
+        }
+
+        @Test
+        @DisplayName("Should read the page after the decoded cursor")
+        void shouldReadPageAfterDecodedCursor() {
+            // Given
+            String lastId = "507f1f77bcf86cd799439011";
+            NotePageRequest nextPage = NotePageRequest.builder().after(PageMapper.encodeCursor(lastId)).build();
+            when(noteRepository.getAllNotes(any(PageQuery.class))).thenReturn(Flux.empty());
+
+            // When & Then
+            StepVerifier.create(noteService.getAllNotes(nextPage))
+                    .expectNext(new NotePageResponse(List.of(), null))
+                    .verifyComplete();
+
+            verify(noteRepository).getAllNotes(argThat(page -> lastId.equals(page.getAfterId())));
+        }
+
+        @Test
+        @DisplayName("Should fail with ValidationException for a malformed cursor")
+        void shouldFailForMalformedCursor() {
+            // Given
+            NotePageRequest invalidPage = NotePageRequest.builder().after("not-a-cursor").build();
+
+            // When & Then
+            StepVerifier.create(noteService.getAllNotes(invalidPage))
+                    .expectError(ValidationException.class)
+                    .verify();
+
+            verify(noteRepository, never()).getAllNotes(any(PageQuery.class));
+        }
+
         @Test
         @DisplayName("Should handle error when fetching all notes fails")
         void shouldHandleErrorWhenFetchingAllNotesFails() {
             // Given
             RuntimeException exception = new RuntimeException("Database error");
-            when(noteRepository.getAllNotes()).thenReturn(Flux.error(exception));
+            when(noteRepository.getAllNotes(any(PageQuery.class))).thenReturn(Flux.error(exception));
 
             // When & Then
-            StepVerifier.create(noteService.getAllNotes())
+            StepVerifier.create(noteService.getAllNotes(pageRequest))
                     .expectError(RuntimeException.class)
                     .verify();
 
-            verify(noteRepository).getAllNotes();
+            verify(noteRepository).getAllNotes(any(PageQuery.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("Export Notes Tests")
+    class ExportNotesTests {
+
+        @Test
+        @DisplayName("Should export notes as a stream")
+        void shouldExportNotesAsStream() {
+            // Given
+            when(noteRepository.streamAllNotes()).thenReturn(Flux.just(note));
+
+            // When & Then
+            StepVerifier.create(noteService.exportNotes())
+                    .expectNextMatches(response -> "test-id".equals(response.getId()))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should keep notes in flight bounded by subscriber demand on a 1M note export")
+        void shouldKeepNotesInFlightBoundedOnLargeExport() {
+            // Given a lazily generated collection of one million notes
+            int total = 1_000_000;
+            int demand = 256;
+            AtomicLong requested = new AtomicLong();
+            AtomicLong produced = new AtomicLong();
+            when(noteRepository.streamAllNotes()).thenReturn(Flux.range(0, total)
+                    .doOnRequest(requested::addAndGet)
+                    .map(i -> Note.builder().id(String.valueOf(i)).title("Note " + i).build())
+                    .doOnNext(n -> produced.incrementAndGet()));
+
+            // When consumed like a socket that writes a chunk before asking for more
+            AtomicLong consumed = new AtomicLong();
+            AtomicLong maxInFlight = new AtomicLong();
+            noteService.exportNotes().subscribe(new BaseSubscriber<>() {
+                @Override
+                protected void hookOnSubscribe(Subscription subscription) {
+                    request(demand);
+                }
+
+                @Override
+                protected void hookOnNext(NoteResponse value) {
+                    maxInFlight.accumulateAndGet(produced.get() - consumed.incrementAndGet(), Math::max);
+                    if (consumed.get() % demand == 0) {
+                        request(demand);
+                    }
+                }
+            });
+
+            // Then nothing is buffered between the cursor and the writer
+            assertThat(consumed.get()).isEqualTo(total);
+            assertThat(requested.get()).isLessThanOrEqualTo(total + demand);
+            assertThat(maxInFlight.get()).isLessThanOrEqualTo(demand);
         }
     }
 
@@ -242,29 +511,66 @@ class NoteServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("Get Notes By IDs Tests")
+    class GetNotesByIdsTests {
+
+        @Test
+        @DisplayName("Should return found notes in request order and list missing IDs")
+        void shouldReturnNotesInRequestOrderAndMissingIds() {
+            // Given
+            Note other = Note.builder().id("other-id").title("Other").build();
+            when(noteRepository.findAllById(any())).thenReturn(Flux.just(note, other));
+
+            // When & Then
+            StepVerifier.create(noteService.getNotesByIds(List.of("other-id", "missing-id", "test-id", "other-id")))
+                    .assertNext(response -> {
+                        assertThat(response.getNotes()).extracting(NoteResponse::getId)
+                                .containsExactly("other-id", "test-id");
+                        assertThat(response.getMissing()).containsExactly("missing-id");
+                    })
+                    .verifyComplete();
+
+            verify(noteRepository).findAllById(argThat(ids -> ids.size() == 3));
+        }
+
+        @Test
+        @DisplayName("Should report every ID as missing without throwing NoteNotFoundException")
+        void shouldReportMissingIdsWithoutError() {
+            // Given
+            when(noteRepository.findAllById(any())).thenReturn(Flux.empty());
+
+            // When & Then
+            StepVerifier.create(noteService.getNotesByIds(List.of("a", "b")))
+                    .expectNext(new MultiGetResponse(List.of(), List.of("a", "b")))
+                    .verifyComplete();
+        }
+    }
+
     @Nested
     @DisplayName("Update Note Tests")
     class UpdateNoteTests {
 
         @Test
-        @DisplayName("Should update note successfully")
+        @DisplayName("Should update note successfully in a single update")
         void shouldUpdateNoteSuccessfully() {
             // Given
             String noteId = "test-id";
-            when(noteRepository.findById(noteId)).thenReturn(Mono.just(note));
-            when(noteRepository.save(any(Note.class))).thenReturn(Mono.just(note));
+            when(noteRepository.updateFields(eq(noteId), any(), any())).thenReturn(Mono.just(note));
 
             try (MockedStatic<NoteMapper> noteMapperMock = mockStatic(NoteMapper.class)) {
                 noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note))
                         .thenReturn(noteResponse);
 
                 // When & Then
-                StepVerifier.create(noteService.updateNote(noteId, noteRequest))
+                StepVerifier.create(noteService.updateNote(noteId, noteRequest, null))
                         .expectNext(noteResponse)
                         .verifyComplete();
 
-                verify(noteRepository).findById(noteId);
-                verify(noteRepository).save(any(Note.class));
+                verify(noteRepository).updateFields(eq(noteId), eq(null), argThat(fields ->
+                        fields.size() == 5 && "Test Title".equals(fields.get(Note.Fields.title))));
+                verify(noteRepository, never()).findById(any());
+                verify(noteRepository, never()).save(any(Note.class));
                 noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note));
             }
         }
@@ -274,15 +580,234 @@ class NoteServiceImplTest {
         void shouldThrowNoteNotFoundExceptionWhenUpdatingNonExistentNote() {
             // Given
             String noteId = "non-existent-id";
-            when(noteRepository.findById(noteId)).thenReturn(Mono.empty());
+            when(noteRepository.updateFields(eq(noteId), any(), any())).thenReturn(Mono.empty());
 
             // When & Then
-            StepVerifier.create(noteService.updateNote(noteId, noteRequest))
+            StepVerifier.create(noteService.updateNote(noteId, noteRequest, null))
                     .expectError(NoteNotFoundException.class)
                     .verify();
 
-            verify(noteRepository).findById(noteId);
-            verify(noteRepository, never()).save(any(Note.class));
+            verify(noteRepository).updateFields(eq(noteId), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Conditional Write Tests")
+    class ConditionalWriteTests {
+
+        @Test
+        @DisplayName("Should pass the expected versions into the update")
+        void shouldPassExpectedVersionsIntoUpdate() {
+            // Given
+            String noteId = "test-id";
+            when(noteRepository.updateFields(eq(noteId), eq(List.of(3L)), any())).thenReturn(Mono.just(note));
+
+            // When & Then
+            StepVerifier.create(noteService.updateNote(noteId, noteRequest, List.of(3L)))
+                    .expectNextCount(1)
+                    .verifyComplete();
+
+            verify(noteRepository, never()).existsById(any());
+        }
+
+        @Test
+        @DisplayName("Should throw NoteVersionMismatchException when the note is at another version")
+        void shouldThrowVersionMismatchWhenNoteIsAtAnotherVersion() {
+            // Given
+            String noteId = "test-id";
+            when(noteRepository.updateFields(eq(noteId), eq(List.of(3L)), any())).thenReturn(Mono.empty());
+            when(noteRepository.existsById(noteId)).thenReturn(Mono.just(true));
+
+            // When & Then
+            StepVerifier.create(noteService.patchNote(noteId, NotePatchRequest.builder().title("New").build(), List.of(3L)))
+                    .expectError(NoteVersionMismatchException.class)
+                    .verify();
+        }
+
+        @Test
+        @DisplayName("Should throw NoteNotFoundException when a conditional write finds no note")
+        void shouldThrowNotFoundWhenConditionalWriteFindsNoNote() {
+            // Given
+            String noteId = "missing-id";
+            when(noteRepository.updateFields(eq(noteId), eq(List.of(3L)), any())).thenReturn(Mono.empty());
+            when(noteRepository.existsById(noteId)).thenReturn(Mono.just(false));
+
+            // When & Then
+            StepVerifier.create(noteService.updateNote(noteId, noteRequest, List.of(3L)))
+                    .expectError(NoteNotFoundException.class)
+                    .verify();
+        }
+
+        @Test
+        @DisplayName("Should throw NoteVersionMismatchException when a conditional delete deletes nothing")
+        void shouldThrowVersionMismatchWhenConditionalDeleteDeletesNothing() {
+            // Given
+            String noteId = "test-id";
+            when(noteRepository.deleteById(noteId, List.of(3L))).thenReturn(Mono.just(0L));
+            when(noteRepository.existsById(noteId)).thenReturn(Mono.just(true));
+
+            // When & Then
+            StepVerifier.create(noteService.deleteNote(noteId, List.of(3L)))
+                    .expectError(NoteVersionMismatchException.class)
+                    .verify();
+        }
+    }
+
+    @Nested
+    @DisplayName("Patch Note Tests")
+    class PatchNoteTests {
+
+        @Test
+        @DisplayName("Should set only the fields present in the request")
+        void shouldSetOnlyPresentFields() {
+            // Given
+            String noteId = "test-id";
+            NotePatchRequest patchRequest = NotePatchRequest.builder().important(false).build();
+            when(noteRepository.updateFields(eq(noteId), any(), any())).thenReturn(Mono.just(note));
+
+            // When & Then
+            StepVerifier.create(noteService.patchNote(noteId, patchRequest, null))
+                    .expectNextMatches(response -> noteId.equals(response.getId()))
+                    .verifyComplete();
+
+            verify(noteRepository).updateFields(noteId, null, Map.of(Note.Fields.important, false));
+        }
+
+        @Test
+        @DisplayName("Should fail with ValidationException when no field is present")
+        void shouldFailWhenNoFieldIsPresent() {
+            // When & Then
+            StepVerifier.create(noteService.patchNote("test-id", new NotePatchRequest(), null))
+                    .expectError(ValidationException.class)
+                    .verify();
+
+            verify(noteRepository, never()).updateFields(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should throw NoteNotFoundException when patching non-existent note")
+        void shouldThrowNoteNotFoundExceptionWhenPatchingNonExistentNote() {
+            // Given
+            String noteId = "non-existent-id";
+            when(noteRepository.updateFields(eq(noteId), any(), any())).thenReturn(Mono.empty());
+
+            // When & Then
+            StepVerifier.create(noteService.patchNote(noteId, NotePatchRequest.builder().title("New").build(), null))
+                    .expectError(NoteNotFoundException.class)
+                    .verify();
+        }
+    }
+
+    @Nested
+    @DisplayName("ETag Tests")
+    class ETagTests {
+
+        @Test
+        @DisplayName("Should derive the note ETag from its version only")
+        void shouldDeriveNoteETagFromVersion() {
+            // Given
+            String noteId = "test-id";
+            when(noteRepository.findVersionById(noteId))
+                    .thenReturn(Mono.just(Note.builder().id(noteId).version(3L).build()));
+
+            // When & Then
+            StepVerifier.create(noteService.getNoteETag(noteId))
+                    .expectNext(ETagMapper.toETag(3L))
+                    .verifyComplete();
+
+            verify(noteRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("Should complete empty when the note does not exist")
+        void shouldCompleteEmptyWhenNoteDoesNotExist() {
+            // Given
+            when(noteRepository.findVersionById("missing-id")).thenReturn(Mono.empty());
+
+            // When & Then
+            StepVerifier.create(noteService.getNoteETag("missing-id"))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should derive the page ETag from note versions of the trimmed page")
+        void shouldDerivePageETagFromVersions() {
+            // Given
+            String firstId = "507f1f77bcf86cd799439011";
+            String secondId = "507f1f77bcf86cd799439012";
+            NotePageRequest smallPage = NotePageRequest.builder().limit(1).build();
+            when(noteRepository.getAllNoteVersions(any(PageQuery.class))).thenReturn(Flux.just(
+                    Note.builder().id(firstId).version(2L).build(),
+                    Note.builder().id(secondId).version(5L).build()));
+
+            // When & Then
+            StepVerifier.create(noteService.getAllNotesETag(smallPage))
+                    .expectNext(ETagMapper.toPageETag(
+                            List.of(NoteResponse.builder().id(firstId).version(2L).build()),
+                            PageMapper.encodeCursor(firstId), null))
+                    .verifyComplete();
+
+            verify(noteRepository, never()).getAllNotes(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Query Notes Tests")
+    class QueryNotesTests {
+
+        @Test
+        @DisplayName("Should run the combined query and return the notes in order")
+        void shouldRunCombinedQuery() {
+            // Given
+            NoteQueryRequest queryRequest = NoteQueryRequest.builder().category("Work").important(true).build();
+            Note other = Note.builder().id("other-id").title("Other").build();
+            when(noteRepository.findByQuery(any(NoteQuery.class))).thenReturn(Flux.just(note, other));
+
+            // When & Then
+            StepVerifier.create(noteService.queryNotes(queryRequest))
+                    .expectNextMatches(response -> "test-id".equals(response.getId()))
+                    .expectNextMatches(response -> "other-id".equals(response.getId()))
+                    .verifyComplete();
+
+            verify(noteRepository).findByQuery(argThat(query ->
+                    "Work".equals(query.getCategory()) && Boolean.TRUE.equals(query.getImportant())));
+        }
+
+        @Test
+        @DisplayName("Should fail with ValidationException for an unknown field")
+        void shouldFailForUnknownField() {
+            // When & Then
+            StepVerifier.create(noteService.queryNotes(NoteQueryRequest.builder().fields(List.of("secret")).build()))
+                    .expectError(ValidationException.class)
+                    .verify();
+
+            verify(noteRepository, never()).findByQuery(any());
+        }
+
+        @Test
+        @DisplayName("Should search with facets in one repository call")
+        void shouldSearchWithFacets() {
+            // Given
+            NoteFacets facets = NoteFacets.builder()
+                    .notes(List.of(note))
+                    .total(1)
+                    .important(1)
+                    .categories(List.of(new FacetBucket("Test Category", 1)))
+                    .tags(List.of())
+                    .build();
+            when(noteRepository.findFacetsByQuery(any(NoteQuery.class))).thenReturn(Mono.just(facets));
+
+            // When & Then
+            StepVerifier.create(noteService.searchNotes(NoteQueryRequest.builder().important(true).build()))
+                    .assertNext(response -> {
+                        assertThat(response.getItems()).extracting(NoteResponse::getId).containsExactly("test-id");
+                        assertThat(response.getTotal()).isEqualTo(1);
+                        assertThat(response.getImportantCount()).isEqualTo(1);
+                        assertThat(response.getCategories()).hasSize(1);
+                    })
+                    .verifyComplete();
+
+            verify(noteRepository).findFacetsByQuery(argThat(query -> Boolean.TRUE.equals(query.getImportant())));
         }
     }
 
@@ -291,35 +816,47 @@ class NoteServiceImplTest {
     class DeleteNoteTests {
 
         @Test
-        @DisplayName("Should delete note successfully")
+        @DisplayName("Should delete note successfully in a single command")
         void shouldDeleteNoteSuccessfully() {
             // Given
             String noteId = "test-id";
-            when(noteRepository.findById(noteId)).thenReturn(Mono.just(note));
-            when(noteRepository.delete(note)).thenReturn(Mono.empty());
+            when(noteRepository.deleteById(noteId, null)).thenReturn(Mono.just(1L));
 
             // When & Then
-            StepVerifier.create(noteService.deleteNote(noteId))
+            StepVerifier.create(noteService.deleteNote(noteId, null))
                     .verifyComplete();
 
-            verify(noteRepository).findById(noteId);
-            verify(noteRepository).delete(note);
+            verify(noteRepository).deleteById(noteId, null);
+            verify(noteRepository, never()).findById(any());
         }
 
         @Test
-        @DisplayName("Should throw NoteNotFoundException when deleting non-existent note")
+        @DisplayName("Should throw NoteNotFoundException when nothing was deleted")
         void shouldThrowNoteNotFoundExceptionWhenDeletingNonExistentNote() {
             // Given
             String noteId = "non-existent-id";
-            when(noteRepository.findById(noteId)).thenReturn(Mono.empty());
+            when(noteRepository.deleteById(noteId, null)).thenReturn(Mono.just(0L));
 
             // When & Then
-            StepVerifier.create(noteService.deleteNote(noteId))
+            StepVerifier.create(noteService.deleteNote(noteId, null))
                     .expectError(NoteNotFoundException.class)
                     .verify();
 
-            verify(noteRepository).findById(noteId);
-            verify(noteRepository, never()).delete(any(Note.class));
+            verify(noteRepository).deleteById(noteId, null);
+        }
+
+        @Test
+        @DisplayName("Should delete several notes with unique IDs and return the deleted count")
+        void shouldDeleteSeveralNotes() {
+            // Given
+            when(noteRepository.deleteAllById(any())).thenReturn(Mono.just(2L));
+
+            // When & Then
+            StepVerifier.create(noteService.deleteNotes(List.of("a", "b", "a", "c")))
+                    .expectNextMatches(response -> response.getDeletedCount() == 2L)
+                    .verifyComplete();
+
+            verify(noteRepository).deleteAllById(argThat(ids -> List.copyOf(ids).equals(List.of("a", "b", "c"))));
         }
     }
 
@@ -332,19 +869,19 @@ class NoteServiceImplTest {
         void shouldGetNotesByCategorySuccessfully() {
             // Given
             String category = "Test Category";
-            when(noteRepository.findByCategory(category)).thenReturn(Flux.just(note));
+            when(noteRepository.findByCategory(eq(category), any(PageQuery.class))).thenReturn(Flux.just(note));
 
             try (MockedStatic<NoteMapper> noteMapperMock = mockStatic(NoteMapper.class)) {
-                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note))
+                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note, null))
                         .thenReturn(noteResponse);
 
                 // When & Then
-                StepVerifier.create(noteService.getNotesByCategory(category))
-                        .expectNext(noteResponse)
+                StepVerifier.create(noteService.getNotesByCategory(category, pageRequest))
+                        .expectNext(new NotePageResponse(List.of(noteResponse), null))
                         .verifyComplete();
 
-                verify(noteRepository).findByCategory(category);
-                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note));
+                verify(noteRepository).findByCategory(eq(category), any(PageQuery.class));
+                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note, null));
             }
         }
     }
@@ -358,19 +895,19 @@ class NoteServiceImplTest {
         void shouldGetImportantNotesSuccessfully() {
             // Given
             Boolean important = true;
-            when(noteRepository.findByImportant(important)).thenReturn(Flux.just(note));
+            when(noteRepository.findByImportant(eq(important), any(PageQuery.class))).thenReturn(Flux.just(note));
 
             try (MockedStatic<NoteMapper> noteMapperMock = mockStatic(NoteMapper.class)) {
-                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note))
+                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note, null))
                         .thenReturn(noteResponse);
 
                 // When & Then
-                StepVerifier.create(noteService.getImportantNotes(important))
-                        .expectNext(noteResponse)
+                StepVerifier.create(noteService.getImportantNotes(important, pageRequest))
+                        .expectNext(new NotePageResponse(List.of(noteResponse), null))
                         .verifyComplete();
 
-                verify(noteRepository).findByImportant(important);
-                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note));
+                verify(noteRepository).findByImportant(eq(important), any(PageQuery.class));
+                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note, null));
             }
         }
     }
@@ -384,19 +921,19 @@ class NoteServiceImplTest {
         void shouldSearchNotesByTitleSuccessfully() {
             // Given
             String title = "Test";
-            when(noteRepository.findByTitleContainingIgnoreCase(title)).thenReturn(Flux.just(note));
+            when(noteRepository.findByTitleContainingIgnoreCase(eq(title), any(PageQuery.class))).thenReturn(Flux.just(note));
 
             try (MockedStatic<NoteMapper> noteMapperMock = mockStatic(NoteMapper.class)) {
-                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note))
+                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note, null))
                         .thenReturn(noteResponse);
 
                 // When & Then
-                StepVerifier.create(noteService.searchNotesByTitle(title))
-                        .expectNext(noteResponse)
+                StepVerifier.create(noteService.searchNotesByTitle(title, pageRequest))
+                        .expectNext(new NotePageResponse(List.of(noteResponse), null))
                         .verifyComplete();
 
-                verify(noteRepository).findByTitleContainingIgnoreCase(title);
-                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note));
+                verify(noteRepository).findByTitleContainingIgnoreCase(eq(title), any(PageQuery.class));
+                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note, null));
             }
         }
     }
@@ -410,19 +947,19 @@ class NoteServiceImplTest {
         void shouldSearchNotesByContentSuccessfully() {
             // Given
             String content = "Test";
-            when(noteRepository.findByContentContainingIgnoreCase(content)).thenReturn(Flux.just(note));
+            when(noteRepository.findByContentContainingIgnoreCase(eq(content), any(PageQuery.class))).thenReturn(Flux.just(note));
 
             try (MockedStatic<NoteMapper> noteMapperMock = mockStatic(NoteMapper.class)) {
-                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note))
+                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note, null))
                         .thenReturn(noteResponse);
 
                 // When & Then
-                StepVerifier.create(noteService.searchNotesByContent(content))
-                        .expectNext(noteResponse)
+                StepVerifier.create(noteService.searchNotesByContent(content, pageRequest))
+                        .expectNext(new NotePageResponse(List.of(noteResponse), null))
                         .verifyComplete();
 
-                verify(noteRepository).findByContentContainingIgnoreCase(content);
-                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note));
+                verify(noteRepository).findByContentContainingIgnoreCase(eq(content), any(PageQuery.class));
+                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note, null));
             }
         }
     }
@@ -436,19 +973,19 @@ class NoteServiceImplTest {
         void shouldGetNotesByTagSuccessfully() {
             // Given
             String tag = "tag1";
-            when(noteRepository.findByTagsContaining(tag)).thenReturn(Flux.just(note));
+            when(noteRepository.findByTagsContaining(eq(tag), any(PageQuery.class))).thenReturn(Flux.just(note));
 
             try (MockedStatic<NoteMapper> noteMapperMock = mockStatic(NoteMapper.class)) {
-                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note))
+                noteMapperMock.when(() -> NoteMapper.mapToNoteResponse(note, null))
                         .thenReturn(noteResponse);
 
                 // When & Then
-                StepVerifier.create(noteService.getNotesByTag(tag))
-                        .expectNext(noteResponse)
+                StepVerifier.create(noteService.getNotesByTag(tag, pageRequest))
+                        .expectNext(new NotePageResponse(List.of(noteResponse), null))
                         .verifyComplete();
 
-                verify(noteRepository).findByTagsContaining(tag);
-                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note));
+                verify(noteRepository).findByTagsContaining(eq(tag), any(PageQuery.class));
+                noteMapperMock.verify(() -> NoteMapper.mapToNoteResponse(note, null));
             }
         }
     }
@@ -489,4 +1026,24 @@ class NoteServiceImplTest {
             verify(noteRepository).countByCategory(category);
         }
     }
+
+    @Nested
+    @DisplayName("getCategoryStats() Method")
+    class GetCategoryStatsMethod {
+
+        @Test
+        @DisplayName("Should map the histogram counts to responses")
+        void shouldMapHistogramCountsToResponses() {
+            // Given
+            when(categoryHistogram.getCounts()).thenReturn(Mono.just(List.of(
+                    new CategoryCount(null, 1L), new CategoryCount("work", 2L))));
+
+            // When & Then
+            StepVerifier.create(noteService.getCategoryStats())
+                    .expectNext(List.of(new CategoryCountResponse(null, 1L), new CategoryCountResponse("work", 2L)))
+                    .verifyComplete();
+
+            verify(categoryHistogram).getCounts();
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package dev.amir.notes.notes.application.stats;
+
+import dev.amir.notes.notes.domain.events.EventType;
+import dev.amir.notes.notes.domain.repositories.NoteRepository;
+import dev.amir.notes.notes.domain.results.CategoryCount;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import dev.amir.notes.notes.infrastructure.data.events.CategoryChangeEvent;
+import org.bson.BsonTimestamp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for CategoryHistogram class.
+ * This class tests that the histogram is loaded from the aggregation
+ * and kept current from the category changes.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CategoryHistogram Tests")
+class CategoryHistogramTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Spy
+    private NotesProperties properties = new NotesProperties();
+
+    @InjectMocks
+    private CategoryHistogram categoryHistogram;
+
+    private final BsonTimestamp operationTime = new BsonTimestamp(1_700_000_000, 5);
+
+    @BeforeEach
+    void setUp() {
+        when(noteRepository.getOperationTime()).thenReturn(Mono.just(operationTime));
+    }
+
+    @Nested
+    @DisplayName("getCounts() Method")
+    class GetCountsMethod {
+
+        @Test
+        @DisplayName("Should aggregate the counts when the histogram is not loaded yet")
+        void shouldAggregateWhenNotLoaded() {
+            // Given
+            when(noteRepository.countAllByCategory()).thenReturn(Flux.just(
+                    new CategoryCount("work", 2L), new CategoryCount(null, 1L)));
+
+            // When & Then
+            StepVerifier.create(categoryHistogram.getCounts())
+                    .expectNext(List.of(new CategoryCount(null, 1L), new CategoryCount("work", 2L)))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should serve the counts from memory once loaded")
+        void shouldServeFromMemoryOnceLoaded() {
+            // Given
+            when(noteRepository.countAllByCategory()).thenReturn(Flux.just(new CategoryCount("work", 2L)));
+            categoryHistogram.recompute().block();
+
+            // When & Then
+            StepVerifier.create(categoryHistogram.getCounts())
+                    .expectNext(List.of(new CategoryCount("work", 2L)))
+                    .verifyComplete();
+            verify(noteRepository, times(1)).countAllByCategory();
+        }
+    }
+
+    @Nested
+    @DisplayName("apply() Method")
+    class ApplyMethod {
+
+        @Test
+        @DisplayName("Should apply inserts, recategorizations and deletes incrementally")
+        void shouldApplyChangesIncrementally() {
+            // Given
+            when(noteRepository.countAllByCategory()).thenReturn(Flux.just(
+                    new CategoryCount("personal", 1L), new CategoryCount("work", 2L)));
+            categoryHistogram.recompute().block();
+
+            // When
+            categoryHistogram.apply(new CategoryChangeEvent(EventType.INSERT, "ideas", null, true, null));
+            categoryHistogram.apply(new CategoryChangeEvent(EventType.UPDATE, "work", "personal", true, null));
+            categoryHistogram.apply(new CategoryChangeEvent(EventType.DELETE, null, "work", true, null));
+
+            // Then
+            StepVerifier.create(categoryHistogram.getCounts())
+                    .expectNext(List.of(new CategoryCount("ideas", 1L), new CategoryCount("work", 2L)))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should leave the counts untouched when the previous category is unknown")
+        void shouldLeaveCountsWhenPreviousCategoryUnknown() {
+            // Given
+            when(noteRepository.countAllByCategory()).thenReturn(Flux.just(new CategoryCount("work", 2L)));
+            categoryHistogram.recompute().block();
+
+            // When
+            categoryHistogram.apply(new CategoryChangeEvent(EventType.DELETE, null, null, false, null));
+
+            // Then
+            StepVerifier.create(categoryHistogram.getCounts())
+                    .expectNext(List.of(new CategoryCount("work", 2L)))
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    @DisplayName("recompute() Method")
+    class RecomputeMethod {
+
+        @Test
+        @DisplayName("Should replay the changes made after the aggregation started on top of its result")
+        void shouldReplayChangesMadeDuringRecompute() {
+            // Given
+            Sinks.Many<CategoryCount> aggregation = Sinks.many().unicast().onBackpressureBuffer();
+            when(noteRepository.countAllByCategory()).thenReturn(aggregation.asFlux());
+            CategoryChangeEvent counted = new CategoryChangeEvent(EventType.INSERT, "work", null, true,
+                    new BsonTimestamp(1_700_000_000, 4));
+            CategoryChangeEvent missed = new CategoryChangeEvent(EventType.UPDATE, "personal", "work", true,
+                    new BsonTimestamp(1_700_000_000, 6));
+
+            // When
+            StepVerifier.create(categoryHistogram.recompute())
+                    .then(() -> {
+                        categoryHistogram.apply(counted);
+                        categoryHistogram.apply(missed);
+                        aggregation.tryEmitNext(new CategoryCount("work", 3L));
+                        aggregation.tryEmitComplete();
+                    })
+                    .verifyComplete();
+
+            // Then
+            StepVerifier.create(categoryHistogram.getCounts())
+                    .expectNext(List.of(new CategoryCount("personal", 1L), new CategoryCount("work", 2L)))
+                    .verifyComplete();
+        }
+    }
+}
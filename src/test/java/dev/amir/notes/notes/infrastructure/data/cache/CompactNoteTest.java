@@ -0,0 +1,111 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for CompactNote class.
+ * This class tests the lossless round trip of notes through the compact form, the notes that cannot be
+ * compacted and the memory saved per note.
+ */
+@DisplayName("CompactNote Tests")
+class CompactNoteTest {
+
+    private final TermDictionary dictionary = new TermDictionary(100);
+
+    @Test
+    @DisplayName("Should expand a compact note back to an equal note")
+    void shouldRoundTripNote() {
+        // Given
+        Note note = noteOf(new ObjectId().toHexString());
+
+        // When
+        CompactNote compact = CompactNote.of(note, dictionary);
+
+        // Then
+        assertThat(compact).isNotNull();
+        assertThat(compact.toNote(dictionary)).isEqualTo(note).isNotSameAs(note);
+    }
+
+    @Test
+    @DisplayName("Should expand null fields back to null")
+    void shouldRoundTripNullFields() {
+        // Given
+        Note note = Note.builder().id(new ObjectId().toHexString()).build();
+
+        // When
+        CompactNote compact = CompactNote.of(note, dictionary);
+
+        // Then
+        assertThat(compact.toNote(dictionary)).isEqualTo(note);
+    }
+
+    @Test
+    @DisplayName("Should share one dictionary entry between notes of the same category and tags")
+    void shouldShareDictionaryEntries() {
+        // When
+        CompactNote first = CompactNote.of(noteOf(new ObjectId().toHexString()), dictionary);
+        CompactNote second = CompactNote.of(noteOf(new ObjectId().toHexString()), dictionary);
+
+        // Then
+        assertThat(second.category()).isEqualTo(first.category());
+        assertThat(second.tags()).isEqualTo(first.tags());
+        assertThat(dictionary.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should not compact a note it cannot expand without loss")
+    void shouldNotCompactLossyNotes() {
+        // Given
+        Note customId = noteOf("custom-id");
+        Note nanos = noteOf(new ObjectId().toHexString());
+        nanos.setUpdatedAt(Instant.parse("2024-01-01T10:15:30.123456789Z"));
+        TermDictionary full = new TermDictionary(0);
+
+        // When & Then
+        assertThat(CompactNote.of(customId, dictionary)).isNull();
+        assertThat(CompactNote.of(nanos, dictionary)).isNull();
+        assertThat(CompactNote.of(noteOf(new ObjectId().toHexString()), full)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should take fewer bytes per note than the note entity")
+    void shouldTakeFewerBytesThanNote() {
+        // Given
+        Note note = noteOf(new ObjectId().toHexString());
+        CompactNote.of(noteOf(new ObjectId().toHexString()), dictionary);
+
+        // When
+        long noteBytes = GraphLayout.parseInstance(note).totalSize();
+        long compactBytes = GraphLayout.parseInstance(CompactNote.of(note, dictionary)).totalSize();
+
+        // Then
+        assertThat(compactBytes)
+                .as("bytes per note: %d as an entity, %d compact", noteBytes, compactBytes)
+                .isLessThan(noteBytes - 150);
+    }
+
+    /**
+     * Helper method to create a note whose strings are own copies, as they are when read from MongoDB
+     */
+    private static Note noteOf(String id) {
+        return Note.builder()
+                .id(id)
+                .title(new String("Meeting notes"))
+                .content(new String("Discuss the roadmap"))
+                .category(new String("work"))
+                .tags(new String("planning,team"))
+                .important(true)
+                .createdAt(Instant.ofEpochMilli(1_700_000_000_000L))
+                .updatedAt(Instant.ofEpochMilli(1_700_000_100_000L))
+                .version(1L)
+                .build();
+    }
+}
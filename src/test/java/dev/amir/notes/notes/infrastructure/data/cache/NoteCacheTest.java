@@ -0,0 +1,238 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import dev.amir.notes.notes.infrastructure.data.events.ChangeSignal;
+import dev.amir.notes.notes.infrastructure.data.events.NoteChangeHub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for NoteCache class.
+ * This class tests the read-through behavior of the cache, the remembered missing notes
+ * and their invalidation from local writes and from the change stream.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NoteCache Tests")
+class NoteCacheTest {
+
+    @Mock
+    private NoteChangeHub changeHub;
+
+    private final String noteId = new ObjectId().toHexString();
+    private final Note note = Note.builder().id(noteId).title("Test Note").build();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<Mono<Note>> loader = () -> Mono.fromSupplier(() -> {
+        loads.incrementAndGet();
+        return note;
+    });
+
+    private NotesProperties properties;
+    private NoteCache noteCache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotesProperties();
+    }
+
+    @AfterEach
+    void tearDown() {
+        noteCache.stop();
+    }
+
+    @Test
+    @DisplayName("Should read through to the loader every time when disabled")
+    void shouldBypassWhenDisabled() {
+        // Given
+        noteCache = new NoteCache(changeHub, properties, new SimpleMeterRegistry());
+        noteCache.start();
+
+        // When & Then
+        StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+        StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Nested
+    @DisplayName("When enabled")
+    class WhenEnabled {
+
+        private Sinks.Many<ChangeSignal> changes;
+
+        @BeforeEach
+        void setUp() {
+            properties.getCache().setEnabled(true);
+            changes = Sinks.many().multicast().onBackpressureBuffer();
+            when(changeHub.signals()).thenReturn(changes.asFlux());
+            noteCache = new NoteCache(changeHub, properties, new SimpleMeterRegistry());
+            noteCache.start();
+            changes.tryEmitNext(ChangeSignal.connected());
+        }
+
+        @Test
+        @DisplayName("Should serve a cached note without loading it again")
+        void shouldServeCachedNote() {
+            // When & Then
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            assertThat(loads).hasValue(1);
+        }
+
+        @Test
+        @DisplayName("Should serve a copy of a note kept in the off-heap tier")
+        void shouldServeCopyFromOffHeapTier() {
+            // Given
+            noteCache.stop();
+            properties.getCache().getOffHeap().setEnabled(true);
+            changes = Sinks.many().multicast().onBackpressureBuffer();
+            when(changeHub.signals()).thenReturn(changes.asFlux());
+            noteCache = new NoteCache(changeHub, properties, new SimpleMeterRegistry());
+            noteCache.start();
+            changes.tryEmitNext(ChangeSignal.connected());
+            noteCache.get(noteId, loader).block();
+
+            // When & Then
+            StepVerifier.create(noteCache.get(noteId, loader))
+                    .assertNext(cached -> assertThat(cached).isEqualTo(note).isNotSameAs(note))
+                    .verifyComplete();
+            assertThat(loads).hasValue(1);
+        }
+
+        @Test
+        @DisplayName("Should load a note again after a write through this node")
+        void shouldLoadAgainAfterLocalWrite() {
+            // Given
+            noteCache.get(noteId, loader).block();
+
+            // When
+            noteCache.invalidate(noteId);
+
+            // Then
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            assertThat(loads).hasValue(2);
+        }
+
+        @Test
+        @DisplayName("Should load a note again after its change arrives from the change stream")
+        void shouldLoadAgainAfterChangeStreamEvent() {
+            // Given
+            noteCache.get(noteId, loader).block();
+
+            // When
+            changes.tryEmitNext(changeOf(noteId));
+
+            // Then
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            assertThat(loads).hasValue(2);
+        }
+
+        @Test
+        @DisplayName("Should answer a missing note without loading it again")
+        void shouldAnswerMissingNoteWithoutLoading() {
+            // Given
+            Supplier<Mono<Note>> missingLoader = () -> Mono.fromSupplier(() -> {
+                loads.incrementAndGet();
+                return null;
+            });
+            noteCache.get(noteId, missingLoader).block();
+
+            // When & Then
+            StepVerifier.create(noteCache.get(noteId, missingLoader)).verifyComplete();
+            assertThat(loads).hasValue(1);
+        }
+
+        @Test
+        @DisplayName("Should load a missing note again once its insert arrives from the change stream")
+        void shouldLoadMissingNoteAgainAfterInsert() {
+            // Given
+            noteCache.get(noteId, Mono::empty).block();
+
+            // When
+            changes.tryEmitNext(changeOf(noteId));
+
+            // Then
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            assertThat(loads).hasValue(1);
+        }
+
+        @Test
+        @DisplayName("Should not cache a note loaded while a note was invalidated")
+        void shouldNotCacheNoteLoadedDuringInvalidation() {
+            // Given
+            Supplier<Mono<Note>> racingLoader = () -> Mono.fromSupplier(() -> {
+                loads.incrementAndGet();
+                noteCache.invalidate(noteId);
+                return note;
+            });
+
+            // When
+            noteCache.get(noteId, racingLoader).block();
+
+            // Then
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            assertThat(loads).hasValue(2);
+        }
+
+        @Test
+        @DisplayName("Should bypass the cache once the change stream disconnects")
+        void shouldBypassAfterChangeStreamDisconnect() {
+            // Given
+            noteCache.get(noteId, loader).block();
+
+            // When
+            changes.tryEmitNext(ChangeSignal.disconnected());
+
+            // Then
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            assertThat(loads).hasValue(3);
+        }
+
+        @Test
+        @DisplayName("Should serve from the cache again once the change stream reconnects")
+        void shouldServeAgainAfterReconnect() {
+            // Given
+            changes.tryEmitNext(ChangeSignal.disconnected());
+
+            // When
+            changes.tryEmitNext(ChangeSignal.connected());
+
+            // Then
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            StepVerifier.create(noteCache.get(noteId, loader)).expectNext(note).verifyComplete();
+            assertThat(loads).hasValue(1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private ChangeSignal changeOf(String id) {
+            ChangeStreamEvent<Note> event = mock(ChangeStreamEvent.class);
+            ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+            when(raw.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonObjectId(new ObjectId(id))));
+            when(event.getRaw()).thenReturn(raw);
+            return ChangeSignal.change(event);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for OffHeapNoteStore class.
+ * This class tests the round trip of notes through the compressed slabs and the recycling of the oldest slab.
+ */
+@DisplayName("OffHeapNoteStore Tests")
+class OffHeapNoteStoreTest {
+
+    private static final int SLAB_SIZE = 1024;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should read back a stored note with all its fields")
+    void shouldRoundTripNote() {
+        // Given
+        OffHeapNoteStore store = new OffHeapNoteStore(4 * SLAB_SIZE, SLAB_SIZE, meterRegistry);
+        Note note = Note.builder()
+                .id("note-1")
+                .title("Résumé — 日本語のメモ")
+                .content("Content ".repeat(50))
+                .category("work")
+                .tags("a,b")
+                .important(true)
+                .createdAt(Instant.parse("2024-01-01T10:15:30.123456789Z"))
+                .updatedAt(Instant.parse("2024-01-02T10:15:30Z"))
+                .version(3L)
+                .build();
+
+        // When
+        long address = store.store(note);
+
+        // Then
+        assertThat(store.read(address)).isEqualTo(note).isNotSameAs(note);
+    }
+
+    @Test
+    @DisplayName("Should read back null fields as null")
+    void shouldRoundTripNullFields() {
+        // Given
+        OffHeapNoteStore store = new OffHeapNoteStore(4 * SLAB_SIZE, SLAB_SIZE, meterRegistry);
+        Note note = Note.builder().id("note-1").build();
+
+        // When
+        long address = store.store(note);
+
+        // Then
+        assertThat(store.read(address)).isEqualTo(note);
+    }
+
+    @Test
+    @DisplayName("Should drop the notes of the oldest slab once every slab is full")
+    void shouldRecycleOldestSlab() {
+        // Given
+        OffHeapNoteStore store = new OffHeapNoteStore(2 * SLAB_SIZE, SLAB_SIZE, meterRegistry);
+        long first = store.store(Note.builder().id("first").build());
+
+        // When
+        long last = OffHeapNoteStore.NOT_STORED;
+        for (int i = 0; i < 200; i++) {
+            last = store.store(Note.builder().id("note-" + i).build());
+        }
+
+        // Then
+        assertThat(store.read(first)).isNull();
+        assertThat(store.read(last).getId()).isEqualTo("note-199");
+        assertThat(meterRegistry.counter("notes.cache.off.heap.slab.recycles").count()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should not store a note larger than a slab")
+    void shouldNotStoreOversizedNote() {
+        // Given
+        OffHeapNoteStore store = new OffHeapNoteStore(4 * SLAB_SIZE, 64, meterRegistry);
+        Note note = Note.builder().id("note-1").content("Content that does not compress into a tiny slab").build();
+
+        // When & Then
+        assertThat(store.store(note)).isEqualTo(OffHeapNoteStore.NOT_STORED);
+    }
+}
@@ -0,0 +1,112 @@
+package dev.amir.notes.notes.infrastructure.data.cache;
+
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import dev.amir.notes.notes.infrastructure.data.events.ChangeSignal;
+import dev.amir.notes.notes.infrastructure.data.events.NoteChangeHub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for QueryCache class.
+ * This class tests that cached query results are re-hydrated from the note cache
+ * and retired by the next write.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("QueryCache Tests")
+class QueryCacheTest {
+
+    @Mock
+    private NoteChangeHub changeHub;
+
+    private final Note first = Note.builder().id("507f1f77bcf86cd799439011").title("First").build();
+    private final Note second = Note.builder().id("507f1f77bcf86cd799439012").title("Second").build();
+    private final Object key = QueryCache.key("title", "first", null, 10);
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicInteger multiGets = new AtomicInteger();
+    private final Supplier<Flux<Note>> query = () -> Flux.defer(() -> {
+        queries.incrementAndGet();
+        return Flux.just(first, second);
+    });
+    private final Function<Collection<String>, Flux<Note>> multiGet = ids -> Flux.defer(() -> {
+        multiGets.incrementAndGet();
+        return Flux.fromStream(List.of(second, first).stream().filter(note -> ids.contains(note.getId())));
+    });
+
+    private NotesProperties properties;
+    private NoteCache noteCache;
+    private QueryCache queryCache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new NotesProperties();
+        noteCache = new NoteCache(changeHub, properties, new SimpleMeterRegistry());
+        queryCache = new QueryCache(noteCache, properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        noteCache.stop();
+    }
+
+    @Test
+    @DisplayName("Should run the query every time when the note cache is disabled")
+    void shouldBypassWhenDisabled() {
+        // When & Then
+        StepVerifier.create(queryCache.find(key, query, multiGet)).expectNext(first, second).verifyComplete();
+        StepVerifier.create(queryCache.find(key, query, multiGet)).expectNext(first, second).verifyComplete();
+        assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should re-hydrate a repeated query in query order with one multi-get")
+    void shouldRehydrateRepeatedQuery() {
+        // Given
+        startNoteCache();
+        StepVerifier.create(queryCache.find(key, query, multiGet)).expectNext(first, second).verifyComplete();
+
+        // When & Then
+        StepVerifier.create(queryCache.find(key, query, multiGet)).expectNext(first, second).verifyComplete();
+        assertThat(queries).hasValue(1);
+        assertThat(multiGets).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should run the query again after a write")
+    void shouldRunQueryAgainAfterWrite() {
+        // Given
+        startNoteCache();
+        queryCache.find(key, query, multiGet).blockLast();
+
+        // When
+        noteCache.invalidate("507f1f77bcf86cd799439013");
+
+        // Then
+        StepVerifier.create(queryCache.find(key, query, multiGet)).expectNext(first, second).verifyComplete();
+        assertThat(queries).hasValue(2);
+        assertThat(multiGets).hasValue(0);
+    }
+
+    private void startNoteCache() {
+        properties.getCache().setEnabled(true);
+        when(changeHub.signals()).thenReturn(Flux.just(ChangeSignal.connected()).concatWith(Flux.never()));
+        noteCache.start();
+    }
+}
@@ -0,0 +1,342 @@
+package dev.amir.notes.notes.infrastructure.data.events;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import dev.amir.notes.notes.domain.entities.EntityName;
+import dev.amir.notes.notes.domain.entities.Note;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveChangeStreamOperation;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for NoteChangeHub class.
+ * This class tests that all subscribers share one change stream, are told when it connects
+ * and disconnects, and that the stream reconnects after a failure.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NoteChangeHub Tests")
+class NoteChangeHubTest {
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Mock
+    private ReactiveChangeStreamOperation.ReactiveChangeStream<Note> reactiveChangeStream;
+
+    @Mock
+    private ReactiveChangeStreamOperation.ChangeStreamWithFilterAndProjection<Note> changeStreamWithFilterAndProjection;
+
+    private static final BsonTimestamp OPERATION_TIME = new BsonTimestamp(1_700_000_000, 1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Sinks.Many<ChangeStreamEvent<Note>> changes = Sinks.many().multicast().onBackpressureBuffer();
+    private NoteChangeHub changeHub;
+
+    @BeforeEach
+    void setUp() {
+        changeHub = new NoteChangeHub(mongoTemplate, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should fan one change stream out to every subscriber")
+    void shouldFanOneChangeStreamOut() {
+        // Given
+        listenTo(changes.asFlux());
+        ChangeStreamEvent<Note> change = change();
+
+        // When & Then
+        StepVerifier.create(changeHub.changes())
+                .then(() -> StepVerifier.create(changeHub.changes())
+                        .then(() -> changes.tryEmitNext(change))
+                        .expectNext(change)
+                        .thenCancel()
+                        .verify())
+                .expectNext(change)
+                .thenCancel()
+                .verify();
+        verify(changeStreamWithFilterAndProjection, times(1)).listen();
+        assertThat(meterRegistry.timer("notes.changes.fan.out.latency").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should send a connected signal first to a subscriber joining a connected stream")
+    void shouldSendConnectedToLateSubscriber() {
+        // Given
+        listenTo(changes.asFlux());
+
+        // When & Then
+        StepVerifier.create(changeHub.signals())
+                .expectNext(ChangeSignal.connected())
+                .then(() -> {
+                    StepVerifier.create(changeHub.signals())
+                            .expectNext(ChangeSignal.connected())
+                            .then(() -> assertThat(meterRegistry.get("notes.changes.subscribers").gauge().value())
+                                    .isEqualTo(2))
+                            .thenCancel()
+                            .verify();
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Should send exactly one connected signal to a subscriber joining while the stream connects")
+    @SuppressWarnings("unchecked")
+    void shouldSendOneConnectedToSubscriberJoiningWhileConnecting() {
+        // Given
+        AtomicReference<Sinks.One<Document>> ping = new AtomicReference<>();
+        when(mongoTemplate.executeCommand(any(Document.class))).thenAnswer(invocation -> ping.get().asMono());
+        when(mongoTemplate.changeStream(Note.class)).thenReturn(reactiveChangeStream);
+        when(reactiveChangeStream.withOptions(any(Consumer.class))).thenReturn(reactiveChangeStream);
+        when(reactiveChangeStream.watchCollection(EntityName.NOTES)).thenReturn(changeStreamWithFilterAndProjection);
+        AtomicReference<Sinks.Many<ChangeStreamEvent<Note>>> stream = new AtomicReference<>();
+        when(changeStreamWithFilterAndProjection.listen()).thenAnswer(invocation -> stream.get().asFlux());
+        ChangeStreamEvent<Note> change = change();
+
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            NoteChangeHub hub = new NoteChangeHub(mongoTemplate, meterRegistry);
+            ping.set(Sinks.one());
+            stream.set(Sinks.many().multicast().onBackpressureBuffer());
+            Disposable first = hub.signals().subscribe();
+
+            // When & Then
+            Schedulers.parallel().schedule(() -> ping.get().tryEmitValue(
+                    new Document("ok", 1.0).append("operationTime", OPERATION_TIME)));
+            StepVerifier.create(hub.signals())
+                    .expectNext(ChangeSignal.connected())
+                    // The stream listens right after it signals connected, so a second signal would come first
+                    .then(() -> {
+                        await().pollDelay(Duration.ZERO).pollInterval(Duration.ofMillis(1))
+                                .until(() -> stream.get().currentSubscriberCount() > 0);
+                        stream.get().tryEmitNext(change);
+                    })
+                    .expectNext(ChangeSignal.change(change))
+                    .thenCancel()
+                    .verify(Duration.ofSeconds(5));
+            first.dispose();
+        }
+    }
+
+    @Test
+    @DisplayName("Should only signal connected once the operation time the stream starts at is known")
+    @SuppressWarnings("unchecked")
+    void shouldStartAtOperationTimeBeforeSignalingConnected() {
+        // Given
+        Sinks.One<Document> ping = Sinks.one();
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(ping.asMono());
+        when(mongoTemplate.changeStream(Note.class)).thenReturn(reactiveChangeStream);
+        when(reactiveChangeStream.withOptions(any(Consumer.class))).thenReturn(reactiveChangeStream);
+        when(reactiveChangeStream.watchCollection(EntityName.NOTES)).thenReturn(changeStreamWithFilterAndProjection);
+        when(changeStreamWithFilterAndProjection.listen()).thenReturn(changes.asFlux());
+
+        // When & Then
+        StepVerifier.create(changeHub.signals())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(() -> ping.tryEmitValue(new Document("ok", 1.0).append("operationTime", OPERATION_TIME)))
+                .expectNext(ChangeSignal.connected())
+                .thenCancel()
+                .verify();
+
+        ArgumentCaptor<Consumer<ChangeStreamOptions.ChangeStreamOptionsBuilder>> options =
+                ArgumentCaptor.forClass(Consumer.class);
+        verify(reactiveChangeStream).withOptions(options.capture());
+        ChangeStreamOptions.ChangeStreamOptionsBuilder builder = ChangeStreamOptions.builder();
+        options.getValue().accept(builder);
+        assertThat(builder.build().getResumeBsonTimestamp()).contains(OPERATION_TIME);
+    }
+
+    @Test
+    @DisplayName("Should signal a disconnect and reconnect after the change stream fails")
+    void shouldReconnectAfterFailure() {
+        // Given
+        listenTo(Flux.error(new RuntimeException("Stream error")), Flux.never());
+
+        // When & Then
+        StepVerifier.create(changeHub.signals())
+                .expectNext(ChangeSignal.connected())
+                .expectNext(ChangeSignal.disconnected())
+                .expectNext(ChangeSignal.connected())
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertThat(meterRegistry.counter("notes.changes.reconnects").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should replay the missed changes and hand over to the shared stream once caught up")
+    void shouldCatchUpAndHandOver() {
+        // Given
+        Sinks.Many<ChangeStreamEvent<Note>> missed = Sinks.many().multicast().onBackpressureBuffer();
+        listenTo(changes.asFlux(), missed.asFlux());
+        ChangeStreamEvent<Note> second = change("02");
+        ChangeStreamEvent<Note> third = change("03");
+        ChangeStreamEvent<Note> fourth = change();
+
+        // When & Then
+        StepVerifier.create(changeHub.changesAfter(NoteChangeHub.parseResumeToken("01"), NoteStreamFilter.NONE, true))
+                .then(() -> {
+                    changes.tryEmitNext(third);
+                    missed.tryEmitNext(second);
+                })
+                .expectNext(second)
+                .then(() -> missed.tryEmitNext(third))
+                .expectNext(third)
+                .then(() -> {
+                    changes.tryEmitNext(fourth);
+                    missed.tryEmitNext(fourth);
+                })
+                .expectNext(fourth)
+                .thenCancel()
+                .verify();
+        assertThat(missed.currentSubscriberCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should hand over to the shared stream when the private cursor saw its first change first")
+    void shouldHandOverWhenPrivateCursorSeesChangeFirst() {
+        // Given
+        Sinks.Many<ChangeStreamEvent<Note>> missed = Sinks.many().multicast().onBackpressureBuffer();
+        listenTo(changes.asFlux(), missed.asFlux());
+        ChangeStreamEvent<Note> second = change("02");
+        ChangeStreamEvent<Note> third = change("03");
+        ChangeStreamEvent<Note> fourth = change();
+
+        // When & Then
+        StepVerifier.create(changeHub.changesAfter(NoteChangeHub.parseResumeToken("01"), NoteStreamFilter.NONE, true))
+                .then(() -> {
+                    missed.tryEmitNext(second);
+                    missed.tryEmitNext(third);
+                })
+                .expectNext(second, third)
+                .then(() -> {
+                    changes.tryEmitNext(third);
+                    changes.tryEmitNext(fourth);
+                })
+                .expectNext(fourth)
+                .thenCancel()
+                .verify();
+        assertThat(missed.currentSubscriberCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should only send a filtered subscriber the changes of notes matching before or after them")
+    void shouldOnlySendMatchingChangesToFilteredSubscriber() {
+        // Given
+        listenTo(changes.asFlux());
+        NoteStreamFilter filter = NoteStreamFilter.builder().category("Work").build();
+        ChangeStreamEvent<Note> matching = change(Note.builder().category("Work").build(), null);
+        ChangeStreamEvent<Note> leaving = change(Note.builder().category("Home").build(),
+                new Document(Note.Fields.category, "Work"));
+        ChangeStreamEvent<Note> other = change(Note.builder().category("Home").build(), null);
+        ChangeStreamEvent<Note> unknownDelete = change(null, null);
+        when(unknownDelete.getRaw().getOperationType()).thenReturn(OperationType.DELETE);
+
+        // When & Then
+        StepVerifier.create(changeHub.signals(filter))
+                .expectNext(ChangeSignal.connected())
+                .then(() -> {
+                    changes.tryEmitNext(matching);
+                    changes.tryEmitNext(other);
+                    changes.tryEmitNext(leaving);
+                    changes.tryEmitNext(unknownDelete);
+                })
+                .expectNext(ChangeSignal.change(matching), ChangeSignal.change(leaving), ChangeSignal.change(unknownDelete))
+                .thenCancel()
+                .verify();
+        assertThat(meterRegistry.get("notes.changes.subscribers").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should match the changes of a filtered private cursor on the full document or its pre-image")
+    void shouldMatchFilteredChangesOnFullDocumentOrPreImage() {
+        // When
+        String match = NoteChangeHub.matchOf(NoteStreamFilter.builder().important(true).build())
+                .getCriteriaObject().toJson();
+
+        // Then
+        assertThat(match).contains("$or", "\"fullDocument.important\": true",
+                "\"fullDocumentBeforeChange.important\": true", "\"operationType\": \"delete\"");
+    }
+
+    @Test
+    @DisplayName("Should only accept hexadecimal resume tokens and recognize lost history")
+    void shouldParseResumeTokensAndRecognizeLostHistory() {
+        // When & Then
+        assertThat(NoteChangeHub.parseResumeToken("8263A1")).isEqualTo(new BsonDocument("_data", new BsonString("8263A1")));
+        assertThat(NoteChangeHub.parseResumeToken("not a token")).isNull();
+        assertThat(NoteChangeHub.parseResumeToken(null)).isNull();
+        assertThat(NoteChangeHub.isHistoryLost(new RuntimeException(new MongoException(286, "History lost")))).isTrue();
+        assertThat(NoteChangeHub.isHistoryLost(new MongoException(11000, "Duplicate key"))).isFalse();
+    }
+
+    /**
+     * Helper method to stub the change stream chain, returning the given streams from successive listens
+     * started at the operation time of the server
+     */
+    @SuppressWarnings("unchecked")
+    @SafeVarargs
+    private void listenTo(Flux<ChangeStreamEvent<Note>> first, Flux<ChangeStreamEvent<Note>>... next) {
+        when(mongoTemplate.changeStream(Note.class)).thenReturn(reactiveChangeStream);
+        when(reactiveChangeStream.withOptions(any(Consumer.class))).thenReturn(reactiveChangeStream);
+        when(reactiveChangeStream.watchCollection(EntityName.NOTES)).thenReturn(changeStreamWithFilterAndProjection);
+        when(changeStreamWithFilterAndProjection.listen()).thenReturn(first, next);
+        when(mongoTemplate.executeCommand(any(Document.class)))
+                .thenReturn(Mono.just(new Document("ok", 1.0).append("operationTime", OPERATION_TIME)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamEvent<Note> change() {
+        return mock(ChangeStreamEvent.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamEvent<Note> change(Note body, Document before) {
+        ChangeStreamEvent<Note> event = change();
+        ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+        when(event.getBody()).thenReturn(body);
+        when(event.getRaw()).thenReturn(raw);
+        if (before != null) {
+            when(raw.getFullDocumentBeforeChange()).thenReturn(before);
+        }
+        return event;
+    }
+
+    private static ChangeStreamEvent<Note> change(String resumeToken) {
+        ChangeStreamEvent<Note> event = change();
+        when(event.getResumeToken()).thenReturn(NoteChangeHub.parseResumeToken(resumeToken));
+        return event;
+    }
+}
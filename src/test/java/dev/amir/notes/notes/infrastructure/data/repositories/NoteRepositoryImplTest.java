@@ -1,33 +1,81 @@
 package dev.amir.notes.notes.infrastructure.data.repositories;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import com.mongodb.client.model.changestream.OperationType;
-import dev.amir.notes.notes.domain.entities.EntityName;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.mongodb.client.result.DeleteResult;
 import dev.amir.notes.notes.domain.entities.Note;
 import dev.amir.notes.notes.domain.events.EventType;
+import dev.amir.notes.notes.domain.pagination.PageQuery;
+import dev.amir.notes.notes.domain.queries.NoteQuery;
+import dev.amir.notes.notes.domain.queries.NoteStreamFilter;
+import dev.amir.notes.notes.domain.results.CategoryCount;
+import dev.amir.notes.notes.domain.results.NoteFacets;
+import dev.amir.notes.notes.infrastructure.config.NotesProperties;
+import dev.amir.notes.notes.infrastructure.data.cache.NoteCache;
+import dev.amir.notes.notes.infrastructure.data.cache.QueryCache;
+import dev.amir.notes.notes.infrastructure.data.events.CategoryChangeEvent;
+import dev.amir.notes.notes.infrastructure.data.events.ChangeSignal;
+import dev.amir.notes.notes.infrastructure.data.events.NoteChangeHub;
+import dev.amir.notes.notes.infrastructure.data.events.NoteEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonBoolean;
 import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
 import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.ChangeStreamEvent;
-import org.springframework.data.mongodb.core.ReactiveChangeStreamOperation;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
-import java.util.function.Consumer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -46,11 +94,22 @@ class NoteRepositoryImplTest {
     private ReactiveMongoTemplate mongoTemplate;
 
     @Mock
-    private ReactiveChangeStreamOperation.ReactiveChangeStream<Note> reactiveChangeStream;
+    private NoteChangeHub changeHub;
 
     @Mock
-    private ReactiveChangeStreamOperation.ChangeStreamWithFilterAndProjection<Note> changeStreamWithFilterAndProjection;
+    private ReactiveBulkOperations bulkOperations;
 
+    @Spy
+    private NotesProperties properties = new NotesProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private NoteCache noteCache = new NoteCache(null, new NotesProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private QueryCache queryCache = new QueryCache(noteCache, new NotesProperties(), new SimpleMeterRegistry());
 
     @InjectMocks
     private NoteRepositoryImpl noteRepository;
@@ -83,6 +142,84 @@ class NoteRepositoryImplTest {
                     .verifyComplete();
         }
 
+        @Test
+        @DisplayName("Should save notes in one unordered bulk write with assigned IDs")
+        void shouldSaveAllNotesInOneUnorderedBulkWrite() {
+            // Given
+            List<Note> notes = List.of(Note.builder().title("First").build(), Note.builder().title("Second").build());
+            when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class)).thenReturn(bulkOperations);
+            when(bulkOperations.insert(notes)).thenReturn(bulkOperations);
+            when(bulkOperations.execute())
+                    .thenReturn(Mono.just(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of())));
+
+            // When & Then
+            StepVerifier.create(noteRepository.saveAll(notes))
+                    .assertNext(result -> {
+                        assertThat(result.getInsertedCount()).isEqualTo(2);
+                        assertThat(result.getFailures()).isEmpty();
+                    })
+                    .verifyComplete();
+
+            assertThat(notes).allSatisfy(saved -> {
+                assertThat(saved.getId()).isNotNull();
+                assertThat(saved.getCreatedAt()).isNotNull();
+                assertThat(saved.getUpdatedAt()).isEqualTo(saved.getCreatedAt());
+            });
+            verify(noteCache).invalidateAll(notes.stream().map(Note::getId).toList());
+        }
+
+        @Test
+        @DisplayName("Should report the failed notes of a partially applied bulk write")
+        void shouldReportFailedNotesOfPartialBulkWrite() {
+            // Given
+            List<Note> notes = List.of(Note.builder().title("First").build(), Note.builder().title("Second").build());
+            MongoBulkWriteException bulkError = new MongoBulkWriteException(
+                    BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                    List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)),
+                    null, new ServerAddress(), Set.of());
+            when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class)).thenReturn(bulkOperations);
+            when(bulkOperations.insert(notes)).thenReturn(bulkOperations);
+            when(bulkOperations.execute())
+                    .thenReturn(Mono.error(new DuplicateKeyException("duplicate key", bulkError)));
+
+            // When & Then
+            StepVerifier.create(noteRepository.saveAll(notes))
+                    .assertNext(result -> {
+                        assertThat(result.getInsertedCount()).isEqualTo(1);
+                        assertThat(result.isFailed(0)).isFalse();
+                        assertThat(result.isFailed(1)).isTrue();
+                        assertThat(result.getFailures()).containsEntry(1, "duplicate key");
+                    })
+                    .verifyComplete();
+
+            verify(noteCache).invalidateAll(notes.stream().map(Note::getId).toList());
+        }
+
+        @Test
+        @DisplayName("Should set fields and update timestamp with one findAndModify returning the new note")
+        void shouldUpdateFieldsWithOneFindAndModify() {
+            // Given
+            when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                    eq(Note.class))).thenReturn(Mono.just(note));
+
+            // When & Then
+            StepVerifier.create(noteRepository.updateFields(noteId, null, Map.of(Note.Fields.important, true)))
+                    .expectNext(note)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+            ArgumentCaptor<FindAndModifyOptions> optionsCaptor = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+            verify(mongoTemplate).findAndModify(queryCaptor.capture(), updateCaptor.capture(), optionsCaptor.capture(),
+                    eq(Note.class));
+            assertThat(queryCaptor.getValue().getQueryObject()).containsEntry("id", noteId);
+            Document set = updateCaptor.getValue().getUpdateObject().get("$set", Document.class);
+            assertThat(set).containsEntry("important", true).containsKey("updatedAt").hasSize(2);
+            assertThat(updateCaptor.getValue().getUpdateObject().get("$inc", Document.class))
+                    .containsEntry("version", 1);
+            assertThat(optionsCaptor.getValue().isReturnNew()).isTrue();
+        }
+
         @Test
         @DisplayName("Should find note by ID")
         void shouldFindNoteById() {
@@ -96,15 +233,110 @@ class NoteRepositoryImplTest {
         }
 
         @Test
-        @DisplayName("Should delete note successfully")
-        void shouldDeleteNoteSuccessfully() {
+        @DisplayName("Should share one query between concurrent reads of the same note")
+        void shouldShareOneQueryBetweenConcurrentReads() {
             // Given
-            when(noteMongoRepository.delete(note)).thenReturn(Mono.empty());
+            Sinks.One<Note> source = Sinks.one();
+            when(noteMongoRepository.findById(noteId)).thenReturn(source.asMono());
+            List<Note> results = new CopyOnWriteArrayList<>();
+            noteRepository.findById(noteId).subscribe(results::add);
+            noteRepository.findById(noteId).subscribe(results::add);
+
+            // When
+            source.tryEmitValue(note);
+
+            // Then
+            assertThat(results).containsExactly(note, note);
+            verify(noteMongoRepository, times(1)).findById(noteId);
+        }
+
+        @Test
+        @DisplayName("Should find several notes by ID in one query")
+        void shouldFindAllNotesById() {
+            // Given
+            List<String> ids = List.of(noteId, "507f1f77bcf86cd799439012");
+            when(noteMongoRepository.findAllById(ids)).thenReturn(Flux.just(note));
 
             // When & Then
-            StepVerifier.create(noteRepository.delete(note))
+            StepVerifier.create(noteRepository.findAllById(ids))
+                    .expectNext(note)
                     .verifyComplete();
         }
+
+        @Test
+        @DisplayName("Should only update the note at one of the expected versions, treating version 0 as unversioned")
+        void shouldFilterUpdateByExpectedVersions() {
+            // Given
+            when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                    eq(Note.class))).thenReturn(Mono.empty());
+
+            // When & Then
+            StepVerifier.create(noteRepository.updateFields(noteId, List.of(0L), Map.of(Note.Fields.important, true)))
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).findAndModify(queryCaptor.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                    eq(Note.class));
+            assertThat(queryCaptor.getValue().getQueryObject()).containsEntry("id", noteId);
+            assertThat(queryCaptor.getValue().getQueryObject().get("version", Document.class).getList("$in", Long.class))
+                    .containsExactly(0L, null);
+        }
+
+        @Test
+        @DisplayName("Should find the version of a note reading only the ID and update time")
+        void shouldFindVersionById() {
+            // Given
+            when(mongoTemplate.findOne(any(Query.class), eq(Note.class))).thenReturn(Mono.just(note));
+
+            // When & Then
+            StepVerifier.create(noteRepository.findVersionById(noteId))
+                    .expectNext(note)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).findOne(queryCaptor.capture(), eq(Note.class));
+            assertThat(queryCaptor.getValue().getQueryObject()).containsEntry("id", noteId);
+            assertThat(queryCaptor.getValue().getFieldsObject())
+                    .containsOnlyKeys("id", "version");
+            assertThat(queryCaptor.getValue().getHint()).isEqualTo("id_version");
+        }
+
+        @Test
+        @DisplayName("Should delete note by ID with one remove and return the deleted count")
+        void shouldDeleteNoteById() {
+            // Given
+            when(mongoTemplate.remove(any(Query.class), eq(Note.class)))
+                    .thenReturn(Mono.just(DeleteResult.acknowledged(1L)));
+
+            // When & Then
+            StepVerifier.create(noteRepository.deleteById(noteId, null))
+                    .expectNext(1L)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).remove(queryCaptor.capture(), eq(Note.class));
+            assertThat(queryCaptor.getValue().getQueryObject()).containsEntry("id", noteId);
+            verify(noteCache).invalidate(noteId);
+        }
+
+        @Test
+        @DisplayName("Should delete several notes with one remove matching all IDs")
+        void shouldDeleteAllById() {
+            // Given
+            List<String> ids = List.of(noteId, "other-id");
+            when(mongoTemplate.remove(any(Query.class), eq(Note.class)))
+                    .thenReturn(Mono.just(DeleteResult.acknowledged(2L)));
+
+            // When & Then
+            StepVerifier.create(noteRepository.deleteAllById(ids))
+                    .expectNext(2L)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).remove(queryCaptor.capture(), eq(Note.class));
+            assertThat(queryCaptor.getValue().getQueryObject().get("id", Document.class))
+                    .containsEntry("$in", ids);
+        }
     }
 
     @Nested
@@ -112,15 +344,180 @@ class NoteRepositoryImplTest {
     class QueryMethods {
 
         @Test
-        @DisplayName("Should get all notes")
-        void shouldGetAllNotes() {
+        @DisplayName("Should get first page of all notes ordered by ID")
+        void shouldGetFirstPageOfAllNotes() {
             // Given
-            when(noteMongoRepository.findAll()).thenReturn(Flux.just(note));
+            PageQuery page = PageQuery.builder().limit(11).build();
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(Flux.just(note));
 
             // When & Then
-            StepVerifier.create(noteRepository.getAllNotes())
+            StepVerifier.create(noteRepository.getAllNotes(page))
                     .expectNext(note)
                     .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).find(queryCaptor.capture(), eq(Note.class));
+            Query query = queryCaptor.getValue();
+            assertThat(query.getQueryObject()).isEmpty();
+            assertThat(query.getSortObject()).containsEntry("id", 1);
+            assertThat(query.getLimit()).isEqualTo(11);
+        }
+
+        @Test
+        @DisplayName("Should read only the ID and update time of a page of note versions")
+        void shouldGetPageOfNoteVersions() {
+            // Given
+            PageQuery page = PageQuery.builder().limit(11).build();
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(Flux.just(note));
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNoteVersions(page))
+                    .expectNext(note)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).find(queryCaptor.capture(), eq(Note.class));
+            Query query = queryCaptor.getValue();
+            assertThat(query.getFieldsObject()).containsOnlyKeys("id", "version");
+            assertThat(query.getHint()).isEqualTo("id_version");
+            assertThat(query.getSortObject()).containsEntry("id", 1);
+            assertThat(query.getLimit()).isEqualTo(11);
+        }
+
+        @Test
+        @DisplayName("Should project a page to the requested fields plus ID and version")
+        void shouldProjectPageToRequestedFields() {
+            // Given
+            PageQuery page = PageQuery.builder().limit(11).fields(Set.of(Note.Fields.title)).build();
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(Flux.just(note));
+
+            // When & Then
+            StepVerifier.create(noteRepository.findByCategory("Work", page))
+                    .expectNext(note)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).find(queryCaptor.capture(), eq(Note.class));
+            assertThat(queryCaptor.getValue().getFieldsObject()).containsOnlyKeys("title", "id", "version");
+        }
+
+        @Test
+        @DisplayName("Should share one query between concurrent identical searches")
+        void shouldShareOneQueryBetweenConcurrentSearches() {
+            // Given
+            PageQuery page = PageQuery.builder().limit(11).build();
+            Sinks.Many<Note> source = Sinks.many().unicast().onBackpressureBuffer();
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(source.asFlux());
+            List<Note> results = new CopyOnWriteArrayList<>();
+            noteRepository.findByTitleContainingIgnoreCase("Plan", page).subscribe(results::add);
+            noteRepository.findByTitleContainingIgnoreCase("plan", page).subscribe(results::add);
+
+            // When
+            source.tryEmitNext(note);
+            source.tryEmitComplete();
+
+            // Then
+            assertThat(results).containsExactly(note, note);
+            verify(mongoTemplate, times(1)).find(any(Query.class), eq(Note.class));
+        }
+
+        @Test
+        @DisplayName("Should combine every filter, sort and limit into a single query")
+        void shouldCombineFiltersIntoSingleQuery() {
+            // Given
+            NoteQuery noteQuery = NoteQuery.builder()
+                    .category("Work")
+                    .important(true)
+                    .tag("urgent")
+                    .title("plan")
+                    .sortField(Note.Fields.updatedAt)
+                    .descending(true)
+                    .limit(20)
+                    .build();
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(Flux.just(note));
+
+            // When & Then
+            StepVerifier.create(noteRepository.findByQuery(noteQuery))
+                    .expectNext(note)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).find(queryCaptor.capture(), eq(Note.class));
+            Query query = queryCaptor.getValue();
+            assertThat(query.getQueryObject())
+                    .containsEntry("category", "Work")
+                    .containsEntry("important", true)
+                    .containsKeys("tags", "title")
+                    .doesNotContainKey("content");
+            assertThat(query.getSortObject()).containsExactly(
+                    Map.entry("updatedAt", -1), Map.entry("id", -1));
+            assertThat(query.getLimit()).isEqualTo(20);
+            assertThat(query.getFieldsObject()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should compute the notes and every facet from one match in a single aggregation")
+        void shouldComputeFacetsInSingleAggregation() {
+            // Given
+            NoteQuery noteQuery = NoteQuery.builder()
+                    .category("Work")
+                    .sortField(Note.Fields.updatedAt)
+                    .descending(true)
+                    .limit(20)
+                    .build();
+            NoteFacets facets = NoteFacets.builder().notes(List.of(note)).total(1).build();
+            when(mongoTemplate.aggregate(any(Aggregation.class), eq(Note.class), eq(NoteFacets.class)))
+                    .thenReturn(Flux.just(facets));
+
+            // When & Then
+            StepVerifier.create(noteRepository.findFacetsByQuery(noteQuery))
+                    .expectNext(facets)
+                    .verifyComplete();
+
+            ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+            verify(mongoTemplate).aggregate(aggregationCaptor.capture(), eq(Note.class), eq(NoteFacets.class));
+            List<Document> pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+            assertThat(pipeline).hasSize(3);
+            assertThat(pipeline.get(0).get("$match", Document.class)).containsKey("$and");
+            assertThat(pipeline.get(1).get("$facet", Document.class))
+                    .containsOnlyKeys("notes", "total", "important", "categories", "tags");
+        }
+
+        @Test
+        @DisplayName("Should seek past the cursor ID when reading a later page")
+        void shouldSeekPastCursorId() {
+            // Given
+            PageQuery page = PageQuery.builder().afterId(noteId).limit(11).build();
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(Flux.just(note));
+
+            // When & Then
+            StepVerifier.create(noteRepository.findByCategory("work", page))
+                    .expectNext(note)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).find(queryCaptor.capture(), eq(Note.class));
+            Document queryObject = queryCaptor.getValue().getQueryObject();
+            assertThat(queryObject).containsEntry("category", "work");
+            assertThat(queryObject.get("id", Document.class)).containsEntry("$gt", noteId);
+        }
+
+        @Test
+        @DisplayName("Should stream all notes with the configured cursor batch size")
+        void shouldStreamAllNotesWithConfiguredBatchSize() {
+            // Given
+            properties.getExport().setBatchSize(250);
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(Flux.just(note));
+
+            // When & Then
+            StepVerifier.create(noteRepository.streamAllNotes())
+                    .expectNext(note)
+                    .verifyComplete();
+
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).find(queryCaptor.capture(), eq(Note.class));
+            assertThat(queryCaptor.getValue().getMeta().getCursorBatchSize()).isEqualTo(250);
+            assertThat(queryCaptor.getValue().isLimited()).isFalse();
         }
 
         @Test
@@ -128,10 +525,11 @@ class NoteRepositoryImplTest {
         void shouldGetNotesByCategory() {
             // Given
             String category = "work";
-            when(noteMongoRepository.findByCategory(category)).thenReturn(Flux.just(note));
+            PageQuery page = PageQuery.builder().limit(11).build();
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(Flux.just(note));
 
             // When & Then
-            StepVerifier.create(noteRepository.findByCategory(category))
+            StepVerifier.create(noteRepository.findByCategory(category, page))
                     .expectNext(note)
                     .verifyComplete();
         }
@@ -148,22 +546,36 @@ class NoteRepositoryImplTest {
                     .expectNext(5L)
                     .verifyComplete();
         }
+
+        @Test
+        @DisplayName("Should count all categories in one aggregation")
+        void shouldCountAllCategoriesInOneAggregation() {
+            // Given
+            CategoryCount work = new CategoryCount("work", 3L);
+            CategoryCount personal = new CategoryCount("personal", 2L);
+            when(mongoTemplate.aggregate(any(Aggregation.class), eq(Note.class), eq(CategoryCount.class)))
+                    .thenReturn(Flux.just(personal, work));
+
+            // When & Then
+            StepVerifier.create(noteRepository.countAllByCategory())
+                    .expectNext(personal, work)
+                    .verifyComplete();
+
+            ArgumentCaptor<Aggregation> aggregationCaptor = ArgumentCaptor.forClass(Aggregation.class);
+            verify(mongoTemplate).aggregate(aggregationCaptor.capture(), eq(Note.class), eq(CategoryCount.class));
+            assertThat(aggregationCaptor.getValue().toString()).contains("$group", "$category");
+        }
     }
 
     @Nested
     @DisplayName("getAllNotesWithUpdates() Method")
     class GetAllNotesWithUpdatesMethod {
 
-        @SuppressWarnings("unchecked")
         @BeforeEach
         void setUp() {
-            // Setup change stream mock chain
-            when(mongoTemplate.changeStream(eq(Note.class)))
-                    .thenReturn(reactiveChangeStream);
-            when(reactiveChangeStream.withOptions(any(Consumer.class))).thenReturn(reactiveChangeStream);
-            when(reactiveChangeStream.watchCollection(EntityName.NOTES))
-                    .thenReturn(changeStreamWithFilterAndProjection);
-            when(changeStreamWithFilterAndProjection.listen()).thenReturn(Flux.empty());
+            // Setup the shared change stream
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf());
+            when(changeHub.operationTime()).thenReturn(Mono.just(new BsonTimestamp(1_700_000_000, 1)));
         }
 
         @Test
@@ -173,7 +585,7 @@ class NoteRepositoryImplTest {
             when(noteMongoRepository.findAll()).thenReturn(Flux.just(note));
 
             // When & Then
-            StepVerifier.create(noteRepository.getAllNotesWithUpdates())
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
                     .expectNextMatches(event ->
                             event.getEventType() == EventType.INITIAL &&
                                     event.getBody().equals(note))
@@ -196,10 +608,10 @@ class NoteRepositoryImplTest {
             when(rawInsert.getOperationType()).thenReturn(OperationType.INSERT);
             when(insertEvent.getRaw()).thenReturn(rawInsert);
 
-            when(changeStreamWithFilterAndProjection.listen()).thenReturn(Flux.just(insertEvent));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf(insertEvent));
 
             // Then
-            StepVerifier.create(noteRepository.getAllNotesWithUpdates())
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
                     .expectNextMatches(event ->
                             event.getEventType() == EventType.INSERT &&
                                     event.getBody().equals(note))
@@ -222,10 +634,10 @@ class NoteRepositoryImplTest {
             when(rawUpdate.getOperationType()).thenReturn(OperationType.UPDATE);
             when(updateEvent.getRaw()).thenReturn(rawUpdate);
 
-            when(changeStreamWithFilterAndProjection.listen()).thenReturn(Flux.just(updateEvent));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf(updateEvent));
 
             // Then
-            StepVerifier.create(noteRepository.getAllNotesWithUpdates())
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
                     .expectNextMatches(event ->
                             event.getEventType() == EventType.UPDATE &&
                                     event.getBody().equals(note))
@@ -248,10 +660,10 @@ class NoteRepositoryImplTest {
             when(rawDelete.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonObjectId()));
             when(deleteEvent.getRaw()).thenReturn(rawDelete);
 
-            when(changeStreamWithFilterAndProjection.listen()).thenReturn(Flux.just(deleteEvent));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf(deleteEvent));
 
             // Then
-            StepVerifier.create(noteRepository.getAllNotesWithUpdates())
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
                     .expectNextMatches(event ->
                             event.getEventType() == EventType.DELETE &&
                                     event.getEntityId() != null)
@@ -273,10 +685,10 @@ class NoteRepositoryImplTest {
             when(rawUnknown.getOperationType()).thenReturn(OperationType.INVALIDATE);
             when(unknownEvent.getRaw()).thenReturn(rawUnknown);
 
-            when(changeStreamWithFilterAndProjection.listen()).thenReturn(Flux.just(unknownEvent));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf(unknownEvent));
 
             // Then
-            StepVerifier.create(noteRepository.getAllNotesWithUpdates())
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
                     .expectNextCount(0)
                     .verifyComplete();
         }
@@ -292,10 +704,10 @@ class NoteRepositoryImplTest {
             ChangeStreamEvent<Note> nullRawEvent = mock(ChangeStreamEvent.class);
             when(nullRawEvent.getRaw()).thenReturn(null);
 
-            when(changeStreamWithFilterAndProjection.listen()).thenReturn(Flux.just(nullRawEvent));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf(nullRawEvent));
 
             // Then
-            StepVerifier.create(noteRepository.getAllNotesWithUpdates())
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
                     .expectNextCount(0)
                     .verifyComplete();
         }
@@ -316,10 +728,10 @@ class NoteRepositoryImplTest {
             when(rawDelete.getDocumentKey()).thenReturn(null); // No document key
             when(deleteEvent.getRaw()).thenReturn(rawDelete);
 
-            when(changeStreamWithFilterAndProjection.listen()).thenReturn(Flux.just(deleteEvent));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf(deleteEvent));
 
             // Then
-            StepVerifier.create(noteRepository.getAllNotesWithUpdates())
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
                     .expectNextCount(0)
                     .verifyComplete();
         }
@@ -350,15 +762,426 @@ class NoteRepositoryImplTest {
             when(updateEvent.getRaw()).thenReturn(rawUpdate);
             when(updateEvent.getBody()).thenReturn(Note.builder().id("4").build());
 
-            when(changeStreamWithFilterAndProjection.listen()).thenReturn(Flux.just(insertEvent, updateEvent));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf(insertEvent, updateEvent));
 
             // Then
-            StepVerifier.create(noteRepository.getAllNotesWithUpdates())
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
                     .expectNextMatches(event -> event.getEventType() == EventType.INITIAL && "1".equals(event.getBody().getId()))
                     .expectNextMatches(event -> event.getEventType() == EventType.INITIAL && "2".equals(event.getBody().getId()))
                     .expectNextMatches(event -> event.getEventType() == EventType.INSERT && "3".equals(event.getBody().getId()))
                     .expectNextMatches(event -> event.getEventType() == EventType.UPDATE && "4".equals(event.getBody().getId()))
                     .verifyComplete();
         }
+
+        @Test
+        @DisplayName("Should drop a change the snapshot already shows and keep the later ones")
+        void shouldDropChangeAlreadyInSnapshot() {
+            // Given
+            Sinks.Many<ChangeSignal> signals = Sinks.many().multicast().onBackpressureBuffer();
+            Sinks.Many<Note> snapshot = Sinks.many().unicast().onBackpressureBuffer();
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signals.asFlux());
+            when(noteMongoRepository.findAll()).thenReturn(snapshot.asFlux());
+            Note read = Note.builder().id(noteId).version(2L).build();
+            ChangeStreamEvent<Note> before = updateOf(read, "8263A1");
+            ChangeStreamEvent<Note> after = updateOf(Note.builder().id(noteId).version(3L).build(), "8263A2");
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
+                    .then(() -> {
+                        signals.tryEmitNext(ChangeSignal.connected());
+                        snapshot.tryEmitNext(read);
+                        snapshot.tryEmitComplete();
+                        signals.tryEmitNext(ChangeSignal.change(before));
+                        signals.tryEmitNext(ChangeSignal.change(after));
+                    })
+                    .expectNextMatches(event -> event.getEventType() == EventType.INITIAL)
+                    .expectNextMatches(event -> "8263A2".equals(event.getResumeToken()))
+                    .thenCancel()
+                    .verify();
+        }
+
+        @Test
+        @DisplayName("Should keep a change made between the server reading its note and the snapshot sending it")
+        void shouldKeepChangeMadeBetweenReadAndEmit() {
+            // Given
+            Sinks.Many<ChangeSignal> signals = Sinks.many().multicast().onBackpressureBuffer();
+            Sinks.Many<Note> snapshot = Sinks.many().unicast().onBackpressureBuffer();
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signals.asFlux());
+            when(noteMongoRepository.findAll()).thenReturn(snapshot.asFlux());
+            Note read = Note.builder().id(noteId).version(1L).build();
+            ChangeStreamEvent<Note> change = updateOf(Note.builder().id(noteId).version(2L).build(), "8263A1");
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
+                    .then(() -> {
+                        signals.tryEmitNext(ChangeSignal.connected());
+                        // The server read the note at version 1, then the write arrived before the note was sent
+                        signals.tryEmitNext(ChangeSignal.change(change));
+                        snapshot.tryEmitNext(read);
+                        snapshot.tryEmitComplete();
+                    })
+                    .expectNextMatches(event -> event.getEventType() == EventType.INITIAL
+                            && event.getBody().getVersion() == 1L)
+                    .expectNextMatches(event -> "8263A1".equals(event.getResumeToken()))
+                    .thenCancel()
+                    .verify();
+        }
+
+        @Test
+        @DisplayName("Should stop comparing versions once the changes pass the end of the snapshot")
+        void shouldKeepEveryChangeAfterSnapshotEnd() {
+            // Given
+            Sinks.Many<ChangeSignal> signals = Sinks.many().multicast().onBackpressureBuffer();
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signals.asFlux());
+            Note read = Note.builder().id(noteId).version(2L).build();
+            when(noteMongoRepository.findAll()).thenReturn(Flux.just(read));
+            ChangeStreamEvent<Note> later = updateOf(read, "8263A1");
+            when(later.getBsonTimestamp()).thenReturn(new BsonTimestamp(1_700_000_000, 2));
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
+                    .then(() -> signals.tryEmitNext(ChangeSignal.connected()))
+                    .expectNextMatches(event -> event.getEventType() == EventType.INITIAL)
+                    .then(() -> signals.tryEmitNext(ChangeSignal.change(later)))
+                    .expectNextMatches(event -> "8263A1".equals(event.getResumeToken()))
+                    .thenCancel()
+                    .verify();
+        }
+
+        @Test
+        @DisplayName("Should fail when the change stream disconnects, so the client resumes")
+        void shouldFailWhenChangeStreamDisconnects() {
+            // Given
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf().concatWith(Flux.just(ChangeSignal.disconnected())));
+            when(noteMongoRepository.findAll()).thenReturn(Flux.just(note));
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, NoteStreamFilter.NONE, false, null))
+                    .expectNextMatches(event -> event.getEventType() == EventType.INITIAL)
+                    .expectError(IllegalStateException.class)
+                    .verify();
+        }
+
+        @SuppressWarnings("unchecked")
+        private ChangeStreamEvent<Note> updateOf(Note body, String resumeToken) {
+            ChangeStreamEvent<Note> event = mock(ChangeStreamEvent.class);
+            ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+            when(raw.getOperationType()).thenReturn(OperationType.UPDATE);
+            when(event.getRaw()).thenReturn(raw);
+            when(event.getBody()).thenReturn(body);
+            when(event.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonString(resumeToken)));
+            return event;
+        }
+    }
+
+    @Nested
+    @DisplayName("getAllNotesWithUpdates() Method when resuming")
+    class ResumeNotesWithUpdatesMethod {
+
+        private final String resumeToken = "8263A1B2C3";
+
+        @Test
+        @DisplayName("Should create the buffer of a resuming subscriber only once it subscribes")
+        void shouldCreateBufferOnSubscribe() {
+            // When
+            noteRepository.getAllNotesWithUpdates(resumeToken, NoteStreamFilter.NONE, false, null);
+
+            // Then
+            verifyNoInteractions(changeHub);
+            assertThat(meterRegistry.find("notes.stream.subscriber.lag").summaries()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should send only the changes after the resume token, with their resume tokens")
+        void shouldSendOnlyChangesAfterResumeToken() {
+            // Given
+            ChangeStreamEvent<Note> insert = insertOf(note, "8263A1B2C4");
+            when(changeHub.changesAfter(new BsonDocument("_data", new BsonString(resumeToken)), NoteStreamFilter.NONE, true))
+                    .thenReturn(Flux.just(insert));
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(resumeToken, NoteStreamFilter.NONE, false, null))
+                    .expectNext(new NoteEvent(EventType.INSERT, note, noteId, "8263A1B2C4"))
+                    .verifyComplete();
+            verify(noteMongoRepository, never()).findAll();
+        }
+
+        @Test
+        @DisplayName("Should send missed updates as patches of the changed fields in delta mode, without a lookup")
+        void shouldSendPatchesInDeltaMode() {
+            // Given
+            @SuppressWarnings("unchecked")
+            ChangeStreamEvent<Note> update = mock(ChangeStreamEvent.class);
+            @SuppressWarnings("unchecked")
+            ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+            BsonDocument updatedFields = new BsonDocument(Note.Fields.important, BsonBoolean.TRUE)
+                    .append(Note.Fields.version, new BsonInt64(2))
+                    .append("_class", new BsonString(Note.class.getName()));
+            when(raw.getOperationType()).thenReturn(OperationType.UPDATE);
+            when(raw.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonObjectId(new ObjectId(noteId))));
+            when(raw.getUpdateDescription()).thenReturn(new UpdateDescription(List.of(Note.Fields.tags), updatedFields));
+            when(update.getRaw()).thenReturn(raw);
+            when(update.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonString("8263A1B2C4")));
+            when(changeHub.changesAfter(new BsonDocument("_data", new BsonString(resumeToken)), NoteStreamFilter.NONE, false))
+                    .thenReturn(Flux.just(update));
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(resumeToken, NoteStreamFilter.NONE, true, null))
+                    .expectNext(new NoteEvent(noteId, "8263A1B2C4",
+                            Map.of(Note.Fields.important, true, Note.Fields.version, 2L), List.of(Note.Fields.tags)))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should send all notes again when the resume token aged out of the oplog")
+        void shouldSendAllNotesWhenHistoryLost() {
+            // Given
+            when(changeHub.changesAfter(new BsonDocument("_data", new BsonString(resumeToken)), NoteStreamFilter.NONE, true))
+                    .thenReturn(Flux.error(new MongoException(286, "Resume point no longer in the oplog")));
+            when(noteMongoRepository.findAll()).thenReturn(Flux.just(note));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf());
+            when(changeHub.operationTime()).thenReturn(Mono.just(new BsonTimestamp(1_700_000_000, 1)));
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(resumeToken, NoteStreamFilter.NONE, false, null))
+                    .expectNext(new NoteEvent(EventType.INITIAL, note))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should send all notes again for a malformed resume token")
+        void shouldSendAllNotesForMalformedResumeToken() {
+            // Given
+            when(noteMongoRepository.findAll()).thenReturn(Flux.just(note));
+            when(changeHub.signals(NoteStreamFilter.NONE)).thenReturn(signalsOf());
+            when(changeHub.operationTime()).thenReturn(Mono.just(new BsonTimestamp(1_700_000_000, 1)));
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates("not a token", NoteStreamFilter.NONE, false, null))
+                    .expectNext(new NoteEvent(EventType.INITIAL, note))
+                    .verifyComplete();
+            verify(changeHub, never()).changesAfter(any(), any(), anyBoolean());
+        }
+
+        @Test
+        @DisplayName("Should only read the matching notes and follow their changes for a filtered stream")
+        void shouldFilterSnapshotAndChanges() {
+            // Given
+            NoteStreamFilter filter = NoteStreamFilter.builder().category("Work").tag("urgent").build();
+            when(mongoTemplate.find(any(Query.class), eq(Note.class))).thenReturn(Flux.just(note));
+            when(changeHub.signals(filter)).thenReturn(signalsOf());
+            when(changeHub.operationTime()).thenReturn(Mono.just(new BsonTimestamp(1_700_000_000, 1)));
+
+            // When & Then
+            StepVerifier.create(noteRepository.getAllNotesWithUpdates(null, filter, false, null))
+                    .expectNext(new NoteEvent(EventType.INITIAL, note))
+                    .verifyComplete();
+            ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).find(queryCaptor.capture(), eq(Note.class));
+            assertThat(queryCaptor.getValue().getQueryObject().toJson()).contains("\"category\": \"Work\"", "urgent");
+            verify(noteMongoRepository, never()).findAll();
+        }
+
+        @SuppressWarnings("unchecked")
+        private ChangeStreamEvent<Note> insertOf(Note body, String token) {
+            ChangeStreamEvent<Note> event = mock(ChangeStreamEvent.class);
+            ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+            when(raw.getOperationType()).thenReturn(OperationType.INSERT);
+            when(event.getRaw()).thenReturn(raw);
+            when(event.getBody()).thenReturn(body);
+            when(event.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonString(token)));
+            return event;
+        }
+    }
+
+    @Nested
+    @DisplayName("conflate() Method")
+    class ConflateMethod {
+
+        @Test
+        @DisplayName("Should merge patches of the same note, keeping the latest value of every field")
+        void shouldMergePatches() {
+            // Given
+            NoteEvent older = new NoteEvent(noteId, "01", Map.of(Note.Fields.title, "Old", Note.Fields.important, true),
+                    List.of(Note.Fields.tags));
+            NoteEvent newer = new NoteEvent(noteId, "02", Map.of(Note.Fields.title, "New", Note.Fields.tags, "a"),
+                    List.of(Note.Fields.category));
+
+            // When
+            NoteEvent merged = NoteRepositoryImpl.conflate(older, newer);
+
+            // Then
+            assertThat(merged).isEqualTo(new NoteEvent(noteId, "02",
+                    Map.of(Note.Fields.title, "New", Note.Fields.important, true, Note.Fields.tags, "a"),
+                    List.of(Note.Fields.category)));
+        }
+
+        @Test
+        @DisplayName("Should apply a patch to the note of an earlier full event and replace anything with a full event")
+        void shouldApplyPatchToFullEvent() {
+            // Given
+            NoteEvent insert = new NoteEvent(EventType.INSERT, note, noteId, "01");
+            NoteEvent patch = new NoteEvent(noteId, "02", Map.of(Note.Fields.important, true), List.of(Note.Fields.content));
+            NoteEvent delete = new NoteEvent(EventType.DELETE, null, noteId, "03");
+
+            // When
+            NoteEvent merged = NoteRepositoryImpl.conflate(insert, patch);
+
+            // Then
+            assertThat(merged.getEventType()).isEqualTo(EventType.INSERT);
+            assertThat(merged.getResumeToken()).isEqualTo("02");
+            assertThat(merged.getBody().getImportant()).isTrue();
+            assertThat(merged.getBody().getContent()).isNull();
+            assertThat(merged.getBody().getTitle()).isEqualTo(note.getTitle());
+            assertThat(note.getContent()).isEqualTo("Test Content");
+            assertThat(NoteRepositoryImpl.conflate(merged, delete)).isSameAs(delete);
+        }
+    }
+
+    /**
+     * Helper method to create the signals of a connected change stream delivering the given changes
+     */
+    @SafeVarargs
+    private static Flux<ChangeSignal> signalsOf(ChangeStreamEvent<Note>... events) {
+        return Flux.just(ChangeSignal.connected()).concatWith(Flux.fromArray(events).map(ChangeSignal::change));
+    }
+
+    @Nested
+    @DisplayName("keepPreImages() Method")
+    class KeepPreImagesMethod {
+
+        @Test
+        @DisplayName("Should enable pre-images on the notes collection")
+        void shouldEnablePreImages() {
+            // Given
+            when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(Mono.just(new Document("ok", 1.0)));
+
+            // When & Then
+            StepVerifier.create(noteRepository.keepPreImages())
+                    .verifyComplete();
+
+            ArgumentCaptor<Document> commandCaptor = ArgumentCaptor.forClass(Document.class);
+            verify(mongoTemplate).executeCommand(commandCaptor.capture());
+            assertThat(commandCaptor.getValue()).containsEntry("collMod", "notes")
+                    .containsEntry("changeStreamPreAndPostImages", new Document("enabled", true));
+        }
+
+        @Test
+        @DisplayName("Should create the notes collection with pre-images when it does not exist yet")
+        void shouldCreateCollectionWithPreImages() {
+            // Given
+            when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(Mono.error(
+                    new InvalidDataAccessResourceUsageException("ns does not exist", new MongoCommandException(
+                            new BsonDocument("ok", new BsonDouble(0)).append("code", new BsonInt32(26)),
+                            new ServerAddress()))));
+            when(mongoTemplate.createCollection(eq("notes"), any(CollectionOptions.class)))
+                    .thenReturn(Mono.empty());
+
+            // When & Then
+            StepVerifier.create(noteRepository.keepPreImages())
+                    .verifyComplete();
+
+            ArgumentCaptor<CollectionOptions> optionsCaptor = ArgumentCaptor.forClass(CollectionOptions.class);
+            verify(mongoTemplate).createCollection(eq("notes"), optionsCaptor.capture());
+            assertThat(optionsCaptor.getValue().getChangeStreamOptions())
+                    .hasValueSatisfying(options -> assertThat(options.getPreAndPostImages()).isTrue());
+        }
+    }
+
+    @Nested
+    @DisplayName("watchCategoryChanges() Method")
+    class WatchCategoryChangesMethod {
+
+        @Test
+        @DisplayName("Should map an insert to the category of the new note")
+        void shouldMapInsertToNewCategory() {
+            // Given
+            BsonTimestamp clusterTime = new BsonTimestamp(1_700_000_000, 1);
+            ChangeStreamDocument<Document> raw = rawChange(OperationType.INSERT, null);
+            when(raw.getFullDocument()).thenReturn(new Document("category", "work"));
+            when(raw.getClusterTime()).thenReturn(clusterTime);
+            listenTo(raw);
+
+            // When & Then
+            StepVerifier.create(noteRepository.watchCategoryChanges())
+                    .expectNext(new CategoryChangeEvent(EventType.INSERT, "work", null, true, clusterTime))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should map an update of the category using the pre-image")
+        void shouldMapCategoryUpdateUsingPreImage() {
+            // Given
+            ChangeStreamDocument<Document> raw = rawChange(OperationType.UPDATE, new Document("category", "work"));
+            when(raw.getUpdateDescription()).thenReturn(new UpdateDescription(null,
+                    new BsonDocument("category", new BsonString("personal"))));
+            listenTo(raw);
+
+            // When & Then
+            StepVerifier.create(noteRepository.watchCategoryChanges())
+                    .expectNext(new CategoryChangeEvent(EventType.UPDATE, "personal", "work", true, null))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should skip updates that do not touch the category")
+        void shouldSkipUpdatesNotTouchingCategory() {
+            // Given
+            ChangeStreamDocument<Document> raw = rawChange(OperationType.UPDATE, null);
+            when(raw.getUpdateDescription()).thenReturn(new UpdateDescription(List.of(),
+                    new BsonDocument("title", new BsonString("New title"))));
+            listenTo(raw);
+
+            // When & Then
+            StepVerifier.create(noteRepository.watchCategoryChanges())
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should map a delete with and without pre-image")
+        void shouldMapDeleteWithAndWithoutPreImage() {
+            // Given
+            ChangeStreamDocument<Document> withPreImage = rawChange(OperationType.DELETE,
+                    new Document("category", "work"));
+            ChangeStreamDocument<Document> withoutPreImage = rawChange(OperationType.DELETE, null);
+            listenTo(withPreImage, withoutPreImage);
+
+            // When & Then
+            StepVerifier.create(noteRepository.watchCategoryChanges())
+                    .expectNext(new CategoryChangeEvent(EventType.DELETE, null, "work", true, null))
+                    .expectNext(new CategoryChangeEvent(EventType.DELETE, null, null, false, null))
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should report a reconnection as a change of an unknown previous category")
+        void shouldReportReconnectionAsUnknownChange() {
+            // Given
+            when(changeHub.signals()).thenReturn(Flux.just(ChangeSignal.disconnected(), ChangeSignal.connected()));
+
+            // When & Then
+            StepVerifier.create(noteRepository.watchCategoryChanges())
+                    .expectNext(new CategoryChangeEvent(EventType.UPDATE, null, null, false, null))
+                    .verifyComplete();
+        }
+
+        @SuppressWarnings("unchecked")
+        private ChangeStreamDocument<Document> rawChange(OperationType operationType, Document before) {
+            ChangeStreamDocument<Document> raw = mock(ChangeStreamDocument.class);
+            when(raw.getOperationType()).thenReturn(operationType);
+            when(raw.getFullDocumentBeforeChange()).thenReturn(before);
+            return raw;
+        }
+
+        @SafeVarargs
+        @SuppressWarnings("unchecked")
+        private void listenTo(ChangeStreamDocument<Document>... raws) {
+            ChangeStreamEvent<Note>[] events = new ChangeStreamEvent[raws.length];
+            for (int i = 0; i < raws.length; i++) {
+                events[i] = mock(ChangeStreamEvent.class);
+                when(events[i].getRaw()).thenReturn(raws[i]);
+            }
+            when(changeHub.signals()).thenReturn(Flux.fromArray(events).map(ChangeSignal::change));
+        }
     }
 }
@@ -0,0 +1,107 @@
+package dev.amir.notes.notes.infrastructure.data.repositories;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for SingleFlight class.
+ * This class tests that identical concurrent reads share one subscription
+ * and that nothing is reused once the read is no longer in flight.
+ */
+@DisplayName("SingleFlight Tests")
+class SingleFlightTest {
+
+    private MeterRegistry meterRegistry;
+    private Sinks.One<String> source;
+    private AtomicInteger subscriptions;
+    private Supplier<Mono<String>> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        source = Sinks.one();
+        subscriptions = new AtomicInteger();
+        loader = () -> source.asMono().doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+    }
+
+    @Test
+    @DisplayName("Should share one subscription between identical concurrent reads")
+    void shouldShareOneSubscriptionBetweenConcurrentReads() {
+        // Given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", 10, meterRegistry);
+        List<String> results = new CopyOnWriteArrayList<>();
+        singleFlight.execute("key", loader).subscribe(results::add);
+        singleFlight.execute("key", loader).subscribe(results::add);
+
+        // When
+        source.tryEmitValue("value");
+
+        // Then
+        assertThat(results).containsExactly("value", "value");
+        assertThat(subscriptions).hasValue(1);
+        assertThat(count("leader")).isEqualTo(1);
+        assertThat(count("coalesced")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should read again once the previous read has completed")
+    void shouldReadAgainOnceCompleted() {
+        // Given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", 10, meterRegistry);
+        source.tryEmitValue("value");
+
+        // When & Then
+        StepVerifier.create(singleFlight.execute("key", loader)).expectNext("value").verifyComplete();
+        StepVerifier.create(singleFlight.execute("key", loader)).expectNext("value").verifyComplete();
+        assertThat(subscriptions).hasValue(2);
+        assertThat(count("leader")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should release the key when the read fails")
+    void shouldReleaseKeyWhenReadFails() {
+        // Given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", 10, meterRegistry);
+
+        // When & Then
+        StepVerifier.create(singleFlight.execute("key", () -> Mono.error(new RuntimeException("Database error"))))
+                .expectError(RuntimeException.class)
+                .verify();
+        StepVerifier.create(singleFlight.execute("key", () -> Mono.just("value")))
+                .expectNext("value")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should bypass coalescing when the in-flight limit is reached")
+    void shouldBypassWhenLimitReached() {
+        // Given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", 0, meterRegistry);
+        singleFlight.execute("key", loader).subscribe();
+        singleFlight.execute("key", loader).subscribe();
+
+        // When
+        source.tryEmitValue("value");
+
+        // Then
+        assertThat(subscriptions).hasValue(2);
+        assertThat(count("bypassed")).isEqualTo(2);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get(SingleFlight.METRIC_NAME).tag("outcome", outcome).counter().count();
+    }
+}
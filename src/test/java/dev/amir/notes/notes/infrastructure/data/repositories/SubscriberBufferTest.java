@@ -0,0 +1,139 @@
+package dev.amir.notes.notes.infrastructure.data.repositories;
+
+import dev.amir.notes.notes.domain.events.OverflowPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for SubscriberBuffer class.
+ * This class tests that a subscriber only receives events as it requests them,
+ * that its buffer stays bounded under every overflow policy and that its metrics are shared by every subscriber.
+ */
+@DisplayName("SubscriberBuffer Tests")
+class SubscriberBufferTest {
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should drop the oldest events once full and hand the rest over on demand")
+    void shouldDropOldestEvents() {
+        // Given
+        SubscriberBuffer<String> buffer = bufferOf(OverflowPolicy.DROP_OLDEST);
+        buffer.offer("a1");
+        buffer.offer("b1");
+        buffer.offer("c1");
+
+        // When & Then
+        assertThat(meterRegistry.get("notes.stream.subscriber.lag").summary().max()).isEqualTo(2);
+        StepVerifier.create(buffer.asFlux(), 0)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(10))
+                .thenRequest(1)
+                .expectNext("b1")
+                .thenRequest(1)
+                .expectNext("c1")
+                .then(buffer::complete)
+                .verifyComplete();
+        assertThat(meterRegistry.get("notes.stream.subscriber.dropped").summary().totalAmount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should record every subscriber in the same metrics, tagged only with the overflow policy")
+    void shouldShareMetricsBetweenSubscribers() {
+        // Given
+        SubscriberBuffer<String> first = bufferOf(OverflowPolicy.CONFLATE);
+        SubscriberBuffer<String> second = bufferOf(OverflowPolicy.CONFLATE);
+
+        // When
+        first.offer("a1");
+        second.offer("a1");
+        second.offer("a2");
+        first.close();
+        second.close();
+
+        // Then
+        assertThat(meterRegistry.find("notes.stream.subscriber.lag").summaries()).hasSize(1);
+        assertThat(meterRegistry.get("notes.stream.subscriber.lag").tags("overflow", "conflate").summary().count())
+                .isEqualTo(3);
+        assertThat(meterRegistry.get("notes.stream.subscriber.dropped").summary().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("notes.stream.subscriber.dropped").summary().max()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should disconnect a subscriber that falls behind, even before it subscribes")
+    void shouldDisconnectSlowSubscriber() {
+        // Given
+        SubscriberBuffer<String> buffer = bufferOf(OverflowPolicy.DISCONNECT);
+        buffer.offer("a1");
+        buffer.offer("b1");
+
+        // When
+        buffer.offer("c1");
+
+        // Then
+        StepVerifier.create(buffer.overflowed()).verifyComplete();
+        StepVerifier.create(buffer.asFlux())
+                .expectErrorMessage("The subscriber fell too far behind, resume from the last event")
+                .verify();
+        assertThat(meterRegistry.counter("notes.stream.disconnects").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep only the latest event per entity, merged with the ones it replaces")
+    void shouldConflateEventsPerEntity() {
+        // Given
+        SubscriberBuffer<String> buffer = bufferOf(OverflowPolicy.CONFLATE);
+        buffer.offer("a1");
+        buffer.offer("b1");
+
+        // When
+        buffer.offer("a2");
+        buffer.offer("a3");
+        buffer.complete();
+
+        // Then
+        StepVerifier.create(buffer.asFlux())
+                .expectNext("b1", "a1+a2+a3")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should pass the events of a source through without holding it back")
+    void shouldBufferFromSource() {
+        // Given
+        Sinks.Many<String> source = Sinks.many().multicast().directBestEffort();
+        SubscriberBuffer<String> buffer = bufferOf(OverflowPolicy.DROP_OLDEST);
+
+        // When & Then
+        StepVerifier.create(buffer.bufferFrom(source.asFlux()), 0)
+                .then(() -> {
+                    source.tryEmitNext("a1");
+                    source.tryEmitNext("b1");
+                    source.tryEmitNext("c1");
+                })
+                .thenRequest(2)
+                .expectNext("b1", "c1")
+                .thenCancel()
+                .verify();
+        assertThat(source.currentSubscriberCount()).isZero();
+    }
+
+    private SubscriberBuffer<String> bufferOf(OverflowPolicy policy) {
+        return new SubscriberBuffer<>(2, policy, event -> event.substring(0, 1),
+                (older, newer) -> older + "+" + newer, meterRegistry);
+    }
+}
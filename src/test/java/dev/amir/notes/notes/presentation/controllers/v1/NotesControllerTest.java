@@ -1,9 +1,26 @@
 package dev.amir.notes.notes.presentation.controllers.v1;
 
 import dev.amir.notes.notes.application.events.NoteResponseEvent;
+import dev.amir.notes.notes.application.mappers.ETagMapper;
+import dev.amir.notes.notes.application.mappers.PageMapper;
+import dev.amir.notes.notes.application.requests.MultiGetRequest;
+import dev.amir.notes.notes.application.requests.NotePageRequest;
+import dev.amir.notes.notes.application.requests.NotePatchRequest;
 import dev.amir.notes.notes.application.requests.NoteRequest;
+import dev.amir.notes.notes.application.requests.NoteStreamRequest;
+import dev.amir.notes.notes.application.responses.BatchItemResponse;
+import dev.amir.notes.notes.application.responses.BatchItemStatus;
+import dev.amir.notes.notes.application.responses.BulkDeleteResponse;
+import dev.amir.notes.notes.application.responses.CategoryCountResponse;
+import dev.amir.notes.notes.application.responses.FacetBucketResponse;
+import dev.amir.notes.notes.application.responses.MultiGetResponse;
+import dev.amir.notes.notes.application.responses.NotePageResponse;
 import dev.amir.notes.notes.application.responses.NoteResponse;
+import dev.amir.notes.notes.application.responses.NoteSearchResponse;
+import dev.amir.notes.notes.application.responses.SparseNoteResponse;
 import dev.amir.notes.notes.application.services.NoteService;
+import dev.amir.notes.notes.domain.events.EventType;
+import dev.amir.notes.notes.domain.events.OverflowPolicy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -12,14 +29,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -31,6 +58,8 @@ import static org.mockito.Mockito.when;
 @DisplayName("NotesController Tests")
 class NotesControllerTest {
 
+    private static final long VERSION = 3L;
+
     @Mock
     private NoteService noteService;
 
@@ -41,6 +70,7 @@ class NotesControllerTest {
     private NoteRequest noteRequest;
     private NoteResponse noteResponse;
     private NoteResponseEvent noteResponseEvent;
+    private NotePageResponse notePageResponse;
 
     @BeforeEach
     void setUp() {
@@ -63,7 +93,8 @@ class NotesControllerTest {
                 .tags("tag1, tag2")
                 .build();
 
-        noteResponseEvent = new NoteResponseEvent(null, noteResponse, "test-id");
+        noteResponseEvent = new NoteResponseEvent(null, noteResponse, "test-id", "8263A1");
+        notePageResponse = new NotePageResponse(List.of(noteResponse), "next-cursor");
     }
 
     @Nested
@@ -102,24 +133,222 @@ class NotesControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/v1/notes/batch")
+    class CreateNotesEndpoint {
+
+        private final BatchItemResponse created = BatchItemResponse.builder()
+                .index(0)
+                .status(BatchItemStatus.CREATED)
+                .id("test-id")
+                .build();
+
+        @Test
+        @DisplayName("Should accept a JSON array and return the outcome of every item")
+        void shouldAcceptJsonArray() {
+            // Given
+            when(noteService.createNotes(any()))
+                    .thenAnswer(invocation -> invocation.<Flux<NoteRequest>>getArgument(0).map(request -> created));
+
+            // When & Then
+            webTestClient.post().uri("/api/v1/notes/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(List.of(noteRequest, noteRequest))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(BatchItemResponse.class)
+                    .hasSize(2)
+                    .contains(created);
+        }
+
+        @Test
+        @DisplayName("Should accept an NDJSON body")
+        void shouldAcceptNdjson() {
+            // Given
+            when(noteService.createNotes(any()))
+                    .thenAnswer(invocation -> invocation.<Flux<NoteRequest>>getArgument(0).map(request -> created));
+            String body = "{\"title\":\"One\",\"content\":\"First\"}\n{\"title\":\"Two\",\"content\":\"Second\"}\n";
+
+            // When & Then
+            webTestClient.post().uri("/api/v1/notes/batch")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .bodyValue(body)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(BatchItemResponse.class)
+                    .hasSize(2);
+        }
+    }
+
     @Nested
     @DisplayName("GET /api/v1/notes")
     class GetAllNotesEndpoint {
 
         @Test
-        @DisplayName("Should get all notes and return 200 OK")
+        @DisplayName("Should get first page of notes and return 200 OK")
         void shouldGetAllNotesAndReturnOk() {
             // Given
-            when(noteService.getAllNotes())
-                    .thenReturn(Flux.just(noteResponse));
+            when(noteService.getAllNotes(any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(notePageResponse));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(NotePageResponse.class)
+                    .isEqualTo(notePageResponse);
+        }
+
+        @Test
+        @DisplayName("Should return 304 Not Modified without reading the page when the ETag matches")
+        void shouldReturnNotModifiedWhenPageETagMatches() {
+            // Given
+            String eTag = ETagMapper.toPageETag(notePageResponse.getItems(), notePageResponse.getNextCursor(), null);
+            when(noteService.getAllNotesETag(any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(eTag));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes")
+                    .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                    .exchange()
+                    .expectStatus().isNotModified()
+                    .expectBody().isEmpty();
+
+            verify(noteService, never()).getAllNotes(any());
+        }
+
+        @Test
+        @DisplayName("Should not return 304 Not Modified for the ETag of the same page with other fields")
+        void shouldNotMatchPageETagOfOtherFields() {
+            // Given
+            when(noteService.getAllNotesETag(any(NotePageRequest.class))).thenAnswer(invocation -> {
+                NotePageRequest pageRequest = invocation.getArgument(0);
+                return Mono.just(ETagMapper.toPageETag(notePageResponse.getItems(), notePageResponse.getNextCursor(),
+                        PageMapper.toFields(pageRequest.getFields())));
+            });
+            when(noteService.getAllNotes(any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(notePageResponse));
+            String titleETag = webTestClient.get().uri("/api/v1/notes?fields=title")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(NotePageResponse.class)
+                    .getResponseHeaders().getETag();
 
             // When & Then
+            webTestClient.get().uri("/api/v1/notes?fields=content")
+                    .header(HttpHeaders.IF_NONE_MATCH, titleETag)
+                    .exchange()
+                    .expectStatus().isOk();
             webTestClient.get().uri("/api/v1/notes")
+                    .header(HttpHeaders.IF_NONE_MATCH, titleETag)
+                    .exchange()
+                    .expectStatus().isOk();
+            webTestClient.get().uri("/api/v1/notes?fields=title")
+                    .header(HttpHeaders.IF_NONE_MATCH, titleETag)
+                    .exchange()
+                    .expectStatus().isNotModified();
+        }
+
+        @Test
+        @DisplayName("Should bind the fields parameter and leave out fields that are not returned")
+        void shouldBindFieldsAndLeaveOutOtherFields() {
+            // Given
+            NoteResponse sparseNote = SparseNoteResponse.builder().id("test-id").title("Test Title").version(VERSION).build();
+            when(noteService.getAllNotes(argThat(page -> List.of("title", "category").equals(page.getFields()))))
+                    .thenReturn(Mono.just(new NotePageResponse(List.of(sparseNote), null)));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes?fields=title,category")
                     .exchange()
                     .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.items[0].title").isEqualTo("Test Title")
+                    .jsonPath("$.items[0].content").doesNotExist()
+                    .jsonPath("$.items[0].important").doesNotExist();
+        }
+
+        @Test
+        @DisplayName("Should keep fields without a value when every field is returned")
+        void shouldKeepFieldsWithoutValueInFullRepresentation() {
+            // Given
+            NoteResponse note = NoteResponse.builder().id("test-id").title("Test Title").version(VERSION).build();
+            when(noteService.getAllNotes(any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(new NotePageResponse(List.of(note), null)));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(String.class)
+                    .value(body -> assertThat(body)
+                            .contains("\"category\":null", "\"important\":null", "\"tags\":null"));
+        }
+
+        @Test
+        @DisplayName("Should bind after and limit query parameters")
+        void shouldBindCursorAndLimit() {
+            // Given
+            when(noteService.getAllNotes(argThat(page ->
+                    "abc".equals(page.getAfter()) && page.getLimit() == 10)))
+                    .thenReturn(Mono.just(notePageResponse));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes?after=abc&limit=10")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(NotePageResponse.class)
+                    .isEqualTo(notePageResponse);
+        }
+
+        @Test
+        @DisplayName("Should return 400 Bad Request when limit exceeds the maximum")
+        void shouldReturnBadRequestForLimitAboveMaximum() {
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes?limit={limit}", NotePageRequest.MAX_LIMIT + 1)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/notes/export")
+    class ExportNotesEndpoint {
+
+        @Test
+        @DisplayName("Should stream notes as NDJSON")
+        void shouldStreamNotesAsNdjson() {
+            // Given
+            when(noteService.exportNotes())
+                    .thenReturn(Flux.just(noteResponse, noteResponse));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/export")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
                     .expectBodyList(NoteResponse.class)
+                    .hasSize(2)
                     .contains(noteResponse);
         }
+
+        @Test
+        @DisplayName("Should stream notes as a JSON array")
+        void shouldStreamNotesAsJsonArray() {
+            // Given
+            when(noteService.exportNotes())
+                    .thenReturn(Flux.just(noteResponse, noteResponse));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/export")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                    .expectBodyList(NoteResponse.class)
+                    .hasSize(2);
+        }
     }
 
     @Nested
@@ -130,7 +359,7 @@ class NotesControllerTest {
         @DisplayName("Should stream note updates with text/event-stream")
         void shouldStreamNoteUpdates() {
             // Given
-            when(noteService.getAllNotesWithUpdates())
+            when(noteService.getAllNotesWithUpdates(null, new NoteStreamRequest()))
                     .thenReturn(Flux.just(noteResponseEvent));
 
             // When & Then
@@ -143,6 +372,72 @@ class NotesControllerTest {
                     .hasSize(1)
                     .contains(noteResponseEvent);
         }
+
+        @Test
+        @DisplayName("Should pass the stream filters, delta mode and overflow policy to the service")
+        void shouldPassStreamFilters() {
+            // Given
+            NoteStreamRequest streamRequest = NoteStreamRequest.builder()
+                    .category("Work").important(true).tag("urgent").delta(true).overflow(OverflowPolicy.CONFLATE).build();
+            when(noteService.getAllNotesWithUpdates(null, streamRequest)).thenReturn(Flux.just(noteResponseEvent));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/stream?category=Work&important=true&tag=urgent&delta=true&overflow=CONFLATE")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(NoteResponseEvent.class)
+                    .contains(noteResponseEvent);
+        }
+
+        @Test
+        @DisplayName("Should send batches as arrays with the ID of their last resumable event")
+        void shouldStreamBatches() {
+            // Given
+            NoteResponseEvent initial = new NoteResponseEvent(EventType.INITIAL, noteResponse, "test-id", null);
+            when(noteService.getAllNotesWithUpdatesInBatches(null, NoteStreamRequest.builder().batch(true).build()))
+                    .thenReturn(Flux.just(List.of(noteResponseEvent, initial)));
+
+            // When & Then
+            Flux<ServerSentEvent<List<NoteResponseEvent>>> batches = webTestClient.get()
+                    .uri("/api/v1/notes/stream?batch=true")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(new ParameterizedTypeReference<ServerSentEvent<List<NoteResponseEvent>>>() {
+                    })
+                    .getResponseBody();
+            StepVerifier.create(batches)
+                    .assertNext(batch -> {
+                        assertThat(batch.id()).isEqualTo("8263A1");
+                        assertThat(batch.data()).containsExactly(noteResponseEvent, initial);
+                    })
+                    .verifyComplete();
+        }
+
+        @Test
+        @DisplayName("Should send resume tokens as event IDs and resume after Last-Event-ID")
+        void shouldResumeAfterLastEventId() {
+            // Given
+            when(noteService.getAllNotesWithUpdates("8263A0", new NoteStreamRequest()))
+                    .thenReturn(Flux.just(noteResponseEvent));
+
+            // When & Then
+            Flux<ServerSentEvent<NoteResponseEvent>> events = webTestClient.get().uri("/api/v1/notes/stream")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .header("Last-Event-ID", "8263A0")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(new ParameterizedTypeReference<ServerSentEvent<NoteResponseEvent>>() {
+                    })
+                    .getResponseBody();
+            StepVerifier.create(events)
+                    .assertNext(event -> {
+                        assertThat(event.id()).isEqualTo("8263A1");
+                        assertThat(event.data()).isEqualTo(noteResponseEvent);
+                    })
+                    .verifyComplete();
+        }
     }
 
     @Nested
@@ -164,6 +459,98 @@ class NotesControllerTest {
                     .expectBody(NoteResponse.class)
                     .isEqualTo(noteResponse);
         }
+
+        @Test
+        @DisplayName("Should return the ETag of the note")
+        void shouldReturnETagOfNote() {
+            // Given
+            String noteId = "test-id";
+            noteResponse.setVersion(VERSION);
+            when(noteService.getNoteById(noteId))
+                    .thenReturn(Mono.just(noteResponse));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/{id}", noteId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, ETagMapper.toETag(VERSION));
+
+            verify(noteService, never()).getNoteETag(any());
+        }
+
+        @Test
+        @DisplayName("Should return 304 Not Modified without reading the note when the ETag matches")
+        void shouldReturnNotModifiedWhenETagMatches() {
+            // Given
+            String noteId = "test-id";
+            String eTag = ETagMapper.toETag(VERSION);
+            when(noteService.getNoteETag(noteId))
+                    .thenReturn(Mono.just(eTag));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/{id}", noteId)
+                    .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                    .exchange()
+                    .expectStatus().isNotModified()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                    .expectBody().isEmpty();
+
+            verify(noteService, never()).getNoteById(any());
+        }
+
+        @Test
+        @DisplayName("Should return the note when the ETag no longer matches")
+        void shouldReturnNoteWhenETagDoesNotMatch() {
+            // Given
+            String noteId = "test-id";
+            noteResponse.setVersion(VERSION);
+            when(noteService.getNoteETag(noteId))
+                    .thenReturn(Mono.just(ETagMapper.toETag(VERSION)));
+            when(noteService.getNoteById(noteId))
+                    .thenReturn(Mono.just(noteResponse));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/{id}", noteId)
+                    .header(HttpHeaders.IF_NONE_MATCH, ETagMapper.toETag(VERSION - 1))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(NoteResponse.class)
+                    .isEqualTo(noteResponse);
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/v1/notes/_mget")
+    class GetNotesByIdsEndpoint {
+
+        @Test
+        @DisplayName("Should get notes by IDs and return 200 OK")
+        void shouldGetNotesByIdsAndReturnOk() {
+            // Given
+            MultiGetResponse multiGetResponse = new MultiGetResponse(List.of(noteResponse), List.of("missing-id"));
+            when(noteService.getNotesByIds(List.of("test-id", "missing-id")))
+                    .thenReturn(Mono.just(multiGetResponse));
+
+            // When & Then
+            webTestClient.post().uri("/api/v1/notes/_mget")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new MultiGetRequest(List.of("test-id", "missing-id")))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(MultiGetResponse.class)
+                    .isEqualTo(multiGetResponse);
+        }
+
+        @Test
+        @DisplayName("Should return 400 Bad Request when no IDs are given")
+        void shouldReturnBadRequestWhenNoIds() {
+            // When & Then
+            webTestClient.post().uri("/api/v1/notes/_mget")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new MultiGetRequest(List.of()))
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
     }
 
     @Nested
@@ -175,7 +562,7 @@ class NotesControllerTest {
         void shouldUpdateNoteAndReturnOk() {
             // Given
             String noteId = "test-id";
-            when(noteService.updateNote(noteId, noteRequest))
+            when(noteService.updateNote(noteId, noteRequest, null))
                     .thenReturn(Mono.just(noteResponse));
 
             // When & Then
@@ -189,6 +576,80 @@ class NotesControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("PATCH /api/v1/notes/{id}")
+    class PatchNoteEndpoint {
+
+        @Test
+        @DisplayName("Should patch note and return 200 OK")
+        void shouldPatchNoteAndReturnOk() {
+            // Given
+            String noteId = "test-id";
+            NotePatchRequest patchRequest = NotePatchRequest.builder().important(false).build();
+            when(noteService.patchNote(noteId, patchRequest, null))
+                    .thenReturn(Mono.just(noteResponse));
+
+            // When & Then
+            webTestClient.patch().uri("/api/v1/notes/{id}", noteId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(patchRequest)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(NoteResponse.class)
+                    .isEqualTo(noteResponse);
+        }
+
+        @Test
+        @DisplayName("Should return 400 Bad Request for a blank title")
+        void shouldReturnBadRequestForBlankTitle() {
+            // When & Then
+            webTestClient.patch().uri("/api/v1/notes/{id}", "test-id")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(NotePatchRequest.builder().title("   ").build())
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+    }
+
+    @Nested
+    @DisplayName("If-Match on writes")
+    class IfMatchEndpoint {
+
+        @Test
+        @DisplayName("Should pass the If-Match versions to the update and return the new ETag")
+        void shouldPassIfMatchVersionsAndReturnNewETag() {
+            // Given
+            String noteId = "test-id";
+            noteResponse.setVersion(VERSION + 1);
+            when(noteService.updateNote(noteId, noteRequest, List.of(VERSION)))
+                    .thenReturn(Mono.just(noteResponse));
+
+            // When & Then
+            webTestClient.put().uri("/api/v1/notes/{id}", noteId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_MATCH, ETagMapper.toETag(VERSION))
+                    .bodyValue(noteRequest)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, ETagMapper.toETag(VERSION + 1));
+        }
+
+        @Test
+        @DisplayName("Should pass the If-Match versions to the delete")
+        void shouldPassIfMatchVersionsToDelete() {
+            // Given
+            String noteId = "test-id";
+            when(noteService.deleteNote(noteId, List.of(VERSION)))
+                    .thenReturn(Mono.empty());
+
+            // When & Then
+            webTestClient.delete().uri("/api/v1/notes/{id}", noteId)
+                    .header(HttpHeaders.IF_MATCH, ETagMapper.toETag(VERSION))
+                    .exchange()
+                    .expectStatus().isNoContent();
+        }
+    }
+
     @Nested
     @DisplayName("DELETE /api/v1/notes/{id}")
     class DeleteNoteEndpoint {
@@ -198,7 +659,7 @@ class NotesControllerTest {
         void shouldDeleteNoteAndReturnNoContent() {
             // Given
             String noteId = "test-id";
-            when(noteService.deleteNote(noteId))
+            when(noteService.deleteNote(noteId, null))
                     .thenReturn(Mono.empty());
 
             // When & Then
@@ -208,6 +669,96 @@ class NotesControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("GET /api/v1/notes/query")
+    class QueryNotesEndpoint {
+
+        @Test
+        @DisplayName("Should bind the combined filters and return the matching notes")
+        void shouldBindFiltersAndReturnNotes() {
+            // Given
+            when(noteService.queryNotes(argThat(query -> "Work".equals(query.getCategory())
+                    && Boolean.TRUE.equals(query.getImportant())
+                    && "urgent".equals(query.getTag())
+                    && "-updatedAt".equals(query.getSort())
+                    && query.getLimit() == 10)))
+                    .thenReturn(Flux.just(noteResponse));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/query?category=Work&important=true&tag=urgent&sort=-updatedAt&limit=10")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(NoteResponse.class)
+                    .contains(noteResponse)
+                    .hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Should return 400 Bad Request for an unsupported sort")
+        void shouldReturnBadRequestForUnsupportedSort() {
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/query?sort=content")
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/notes/search")
+    class SearchNotesEndpoint {
+
+        @Test
+        @DisplayName("Should return the matching notes with facet counts and 200 OK")
+        void shouldReturnNotesWithFacetsAndOk() {
+            // Given
+            NoteSearchResponse searchResponse = NoteSearchResponse.builder()
+                    .items(List.of(noteResponse))
+                    .total(1)
+                    .importantCount(0)
+                    .categories(List.of(new FacetBucketResponse("Work", 1)))
+                    .tags(List.of())
+                    .build();
+            when(noteService.searchNotes(argThat(query -> "Work".equals(query.getCategory()))))
+                    .thenReturn(Mono.just(searchResponse));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/search?category=Work")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(NoteSearchResponse.class)
+                    .isEqualTo(searchResponse);
+        }
+    }
+
+    @Nested
+    @DisplayName("DELETE /api/v1/notes?ids=")
+    class DeleteNotesEndpoint {
+
+        @Test
+        @DisplayName("Should delete notes by IDs and return the deleted count")
+        void shouldDeleteNotesAndReturnCount() {
+            // Given
+            when(noteService.deleteNotes(List.of("a", "b")))
+                    .thenReturn(Mono.just(BulkDeleteResponse.builder().deletedCount(2L).build()));
+
+            // When & Then
+            webTestClient.delete().uri("/api/v1/notes?ids=a,b")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.deletedCount").isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should return 400 Bad Request when no IDs are given")
+        void shouldReturnBadRequestWhenNoIds() {
+            // When & Then
+            webTestClient.delete().uri("/api/v1/notes")
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+    }
+
     @Nested
     @DisplayName("GET /api/v1/notes/category/{category}")
     class GetNotesByCategoryEndpoint {
@@ -217,15 +768,15 @@ class NotesControllerTest {
         void shouldGetNotesByCategoryAndReturnOk() {
             // Given
             String category = "Test Category";
-            when(noteService.getNotesByCategory(category))
-                    .thenReturn(Flux.just(noteResponse));
+            when(noteService.getNotesByCategory(eq(category), any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(notePageResponse));
 
             // When & Then
             webTestClient.get().uri("/api/v1/notes/category/{category}", category)
                     .exchange()
                     .expectStatus().isOk()
-                    .expectBodyList(NoteResponse.class)
-                    .contains(noteResponse);
+                    .expectBody(NotePageResponse.class)
+                    .isEqualTo(notePageResponse);
         }
     }
 
@@ -237,23 +788,23 @@ class NotesControllerTest {
         @DisplayName("Should get important notes and return 200 OK")
         void shouldGetImportantNotesAndReturnOk() {
             // Given
-            when(noteService.getImportantNotes(true))
-                    .thenReturn(Flux.just(noteResponse));
+            when(noteService.getImportantNotes(eq(true), any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(notePageResponse));
 
             // When & Then
             webTestClient.get().uri("/api/v1/notes/important?important=true")
                     .exchange()
                     .expectStatus().isOk()
-                    .expectBodyList(NoteResponse.class)
-                    .contains(noteResponse);
+                    .expectBody(NotePageResponse.class)
+                    .isEqualTo(notePageResponse);
         }
 
         @Test
         @DisplayName("Should use default important=true when parameter is missing")
         void shouldUseDefaultImportantValue() {
             // Given
-            when(noteService.getImportantNotes(true))
-                    .thenReturn(Flux.just(noteResponse));
+            when(noteService.getImportantNotes(eq(true), any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(notePageResponse));
 
             // When & Then
             webTestClient.get().uri("/api/v1/notes/important")
@@ -271,8 +822,8 @@ class NotesControllerTest {
         void shouldSearchNotesByTitleAndReturnOk() {
             // Given
             String title = "Test";
-            when(noteService.searchNotesByTitle(title))
-                    .thenReturn(Flux.just(noteResponse));
+            when(noteService.searchNotesByTitle(eq(title), any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(notePageResponse));
 
             // When & Then
             webTestClient.get().uri(uriBuilder -> uriBuilder
@@ -281,8 +832,8 @@ class NotesControllerTest {
                             .build())
                     .exchange()
                     .expectStatus().isOk()
-                    .expectBodyList(NoteResponse.class)
-                    .contains(noteResponse);
+                    .expectBody(NotePageResponse.class)
+                    .isEqualTo(notePageResponse);
         }
     }
 
@@ -295,8 +846,8 @@ class NotesControllerTest {
         void shouldSearchNotesByContentAndReturnOk() {
             // Given
             String content = "Content";
-            when(noteService.searchNotesByContent(content))
-                    .thenReturn(Flux.just(noteResponse));
+            when(noteService.searchNotesByContent(eq(content), any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(notePageResponse));
 
             // When & Then
             webTestClient.get().uri(uriBuilder -> uriBuilder
@@ -305,8 +856,8 @@ class NotesControllerTest {
                             .build())
                     .exchange()
                     .expectStatus().isOk()
-                    .expectBodyList(NoteResponse.class)
-                    .contains(noteResponse);
+                    .expectBody(NotePageResponse.class)
+                    .isEqualTo(notePageResponse);
         }
     }
 
@@ -319,15 +870,15 @@ class NotesControllerTest {
         void shouldGetNotesByTagAndReturnOk() {
             // Given
             String tag = "tag1";
-            when(noteService.getNotesByTag(tag))
-                    .thenReturn(Flux.just(noteResponse));
+            when(noteService.getNotesByTag(eq(tag), any(NotePageRequest.class)))
+                    .thenReturn(Mono.just(notePageResponse));
 
             // When & Then
             webTestClient.get().uri("/api/v1/notes/tag/{tag}", tag)
                     .exchange()
                     .expectStatus().isOk()
-                    .expectBodyList(NoteResponse.class)
-                    .contains(noteResponse);
+                    .expectBody(NotePageResponse.class)
+                    .isEqualTo(notePageResponse);
         }
     }
 
@@ -352,4 +903,25 @@ class NotesControllerTest {
                     .isEqualTo(count);
         }
     }
+
+    @Nested
+    @DisplayName("GET /api/v1/notes/stats/categories")
+    class GetCategoryStatsEndpoint {
+
+        @Test
+        @DisplayName("Should return the count of every category and 200 OK")
+        void shouldReturnCategoryCountsAndOk() {
+            // Given
+            CategoryCountResponse work = new CategoryCountResponse("work", 2L);
+            when(noteService.getCategoryStats()).thenReturn(Mono.just(List.of(work)));
+
+            // When & Then
+            webTestClient.get().uri("/api/v1/notes/stats/categories")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(CategoryCountResponse.class)
+                    .contains(work)
+                    .hasSize(1);
+        }
+    }
 }
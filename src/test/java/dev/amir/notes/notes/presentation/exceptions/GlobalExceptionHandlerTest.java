@@ -1,6 +1,7 @@
 package dev.amir.notes.notes.presentation.exceptions;
 
 import dev.amir.notes.notes.domain.exceptions.NoteNotFoundException;
+import dev.amir.notes.notes.domain.exceptions.NoteVersionMismatchException;
 import dev.amir.notes.notes.domain.exceptions.ValidationException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -74,6 +75,34 @@ class GlobalExceptionHandlerTest {
         }
     }
 
+    @Nested
+    @DisplayName("NoteVersionMismatchException Handling")
+    class NoteVersionMismatchExceptionHandling {
+
+        @Test
+        @DisplayName("Should handle NoteVersionMismatchException with 412 Precondition Failed")
+        void shouldHandleNoteVersionMismatchException() {
+            // Given
+            NoteVersionMismatchException exception = new NoteVersionMismatchException(TEST_NOTE_ID);
+
+            // When
+            Mono<ResponseEntity<ErrorResponse>> result = exceptionHandler.handleNoteVersionMismatchException(exception);
+
+            // Then
+            StepVerifier.create(result)
+                    .assertNext(response -> {
+                        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+                        ErrorResponse body = response.getBody();
+                        assertThat(body).isNotNull();
+                        assertThat(body.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED.value());
+                        assertThat(body.getError()).isEqualTo("Precondition Failed");
+                        assertThat(body.getMessage()).contains(TEST_NOTE_ID);
+                        assertThat(body.getPath()).isEqualTo(TEST_PATH);
+                    })
+                    .verifyComplete();
+        }
+    }
+
     @Nested
     @DisplayName("ValidationException Handling")
     class ValidationExceptionHandling {